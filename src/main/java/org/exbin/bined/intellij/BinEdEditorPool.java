@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij;
+
+import com.intellij.ide.IdeEventQueue;
+import com.intellij.ide.ui.LafManagerListener;
+import com.intellij.openapi.application.ApplicationManager;
+import org.exbin.bined.intellij.gui.BinEdFilePanel;
+import org.exbin.bined.intellij.performance.PerformanceTracker;
+import org.exbin.bined.intellij.settings.IntelliJOptionsStorage;
+import org.exbin.bined.jaguif.document.BinEdFileManager;
+import org.exbin.bined.jaguif.document.BinaryFileDocument;
+import org.exbin.bined.jaguif.document.BinedDocumentModule;
+import org.exbin.jaguif.App;
+import org.exbin.jaguif.options.api.OptionsModuleApi;
+import org.exbin.jaguif.options.api.OptionsStorage;
+import org.exbin.jaguif.options.settings.api.OptionsSettingsModuleApi;
+import org.exbin.jaguif.options.settings.api.SettingsOptionsProvider;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Pool of prepared editor components.
+ * <p>
+ * File panel with toolbar and status bar and document with initialized code
+ * area and applied settings are created ahead when IDE is idle, so that
+ * opening of another binary editor only attaches file to them. Prepared
+ * editors are dropped when look and feel changes as they are not shown.
+ */
+@ParametersAreNonnullByDefault
+public final class BinEdEditorPool {
+
+    private static final int POOL_SIZE = 1;
+    private static final int PREPARE_IDLE_TIMEOUT_MS = 1000;
+
+    private static final Deque<PreparedEditor> EDITORS = new ArrayDeque<>();
+    private static Runnable idleListener = null;
+    private static boolean lafListenerRegistered = false;
+
+    private BinEdEditorPool() {
+    }
+
+    /**
+     * Returns prepared editor or creates new one if pool is empty.
+     * <p>
+     * Settings are applied again only if options were changed after editor
+     * was prepared.
+     *
+     * @return editor components not attached to any file
+     */
+    @Nonnull
+    public static PreparedEditor takeEditor() {
+        PreparedEditor editor;
+        synchronized (EDITORS) {
+            editor = EDITORS.pollFirst();
+        }
+        if (editor == null) {
+            editor = createEditor();
+        } else if (editor.settingsModificationCount < 0 || editor.settingsModificationCount != getSettingsModificationCount()) {
+            applySettings(editor.fileDocument);
+        }
+        schedulePrepare();
+        return editor;
+    }
+
+    /**
+     * Schedules preparation of editors to fill the pool when IDE is idle.
+     */
+    public static void schedulePrepare() {
+        Runnable listener;
+        synchronized (EDITORS) {
+            if (!lafListenerRegistered) {
+                lafListenerRegistered = true;
+                ApplicationManager.getApplication().getMessageBus().connect().subscribe(LafManagerListener.TOPIC, lafManager -> dropEditors());
+            }
+            if (idleListener != null || EDITORS.size() >= POOL_SIZE) {
+                return;
+            }
+            listener = new Runnable() {
+                @Override
+                public void run() {
+                    prepareEditor(this);
+                }
+            };
+            idleListener = listener;
+        }
+
+        ApplicationManager.getApplication().invokeLater(() -> IdeEventQueue.getInstance().addIdleListener(listener, PREPARE_IDLE_TIMEOUT_MS));
+    }
+
+    private static void prepareEditor(Runnable listener) {
+        IdeEventQueue.getInstance().removeIdleListener(listener);
+        synchronized (EDITORS) {
+            idleListener = null;
+            if (EDITORS.size() >= POOL_SIZE) {
+                return;
+            }
+        }
+
+        PreparedEditor editor;
+        try (PerformanceTracker.Span span = PerformanceTracker.start(PerformanceTracker.CATEGORY_EDITOR, "Editor preparation")) {
+            editor = createEditor();
+        }
+        synchronized (EDITORS) {
+            EDITORS.addLast(editor);
+        }
+        schedulePrepare();
+    }
+
+    /**
+     * Drops prepared editors, components created for previous look and feel
+     * are not updated while they are not shown.
+     */
+    private static void dropEditors() {
+        synchronized (EDITORS) {
+            EDITORS.clear();
+        }
+        schedulePrepare();
+    }
+
+    @Nonnull
+    private static PreparedEditor createEditor() {
+        long settingsModificationCount = getSettingsModificationCount();
+        BinaryFileDocument fileDocument = BinEdVirtualFile.createBinaryFileDocument();
+        BinEdFilePanel filePanel = new BinEdFilePanel();
+        BinedDocumentModule binedDocumentModule = App.getModule(BinedDocumentModule.class);
+        BinEdFileManager fileManager = binedDocumentModule.getFileManager();
+        fileManager.initDataComponent(fileDocument.getDataComponent());
+        fileManager.initCommandHandler(fileDocument.getDataComponent());
+        applySettings(fileDocument);
+        return new PreparedEditor(filePanel, fileDocument, settingsModificationCount);
+    }
+
+    private static void applySettings(BinaryFileDocument fileDocument) {
+        OptionsSettingsModuleApi optionsSettingsModule = App.getModule(OptionsSettingsModuleApi.class);
+        SettingsOptionsProvider settingsOptionsProvider = optionsSettingsModule.getMainSettingsManager().getSettingsOptionsProvider();
+        try (PerformanceTracker.Span span = PerformanceTracker.start(PerformanceTracker.CATEGORY_EDITOR, "Options application")) {
+            fileDocument.applySettings(settingsOptionsProvider);
+        }
+    }
+
+    private static long getSettingsModificationCount() {
+        OptionsStorage optionsStorage = App.getModule(OptionsModuleApi.class).getAppOptions();
+        // Unknown storage cannot report changes, settings are then always applied again
+        return optionsStorage instanceof IntelliJOptionsStorage ? ((IntelliJOptionsStorage) optionsStorage).getModificationCount() : -1;
+    }
+
+    /**
+     * Editor components prepared for a file.
+     */
+    public static final class PreparedEditor {
+
+        private final BinEdFilePanel filePanel;
+        private final BinaryFileDocument fileDocument;
+        private final long settingsModificationCount;
+
+        private PreparedEditor(BinEdFilePanel filePanel, BinaryFileDocument fileDocument, long settingsModificationCount) {
+            this.filePanel = filePanel;
+            this.fileDocument = fileDocument;
+            this.settingsModificationCount = settingsModificationCount;
+        }
+
+        @Nonnull
+        public BinEdFilePanel getFilePanel() {
+            return filePanel;
+        }
+
+        @Nonnull
+        public BinaryFileDocument getFileDocument() {
+            return fileDocument;
+        }
+    }
+}
@@ -28,20 +28,19 @@ import org.exbin.auxiliary.binary_data.paged.PagedData;
 import org.exbin.bined.EditMode;
 import org.exbin.bined.intellij.gui.BinEdFilePanel;
 import org.exbin.bined.intellij.gui.BinEdToolbarPanel;
-import org.exbin.bined.jaguif.document.BinedDocumentModule;
 import org.exbin.bined.swing.section.SectCodeArea;
 import org.exbin.jaguif.App;
-import org.exbin.bined.jaguif.document.BinEdFileManager;
+import org.exbin.jaguif.context.api.ActiveContextManagement;
+import org.exbin.jaguif.document.api.ContextDocument;
 import org.exbin.bined.jaguif.document.BinaryFileDocument;
 import org.exbin.bined.jaguif.document.FileProcessingMode;
 import org.exbin.bined.jaguif.document.settings.BinaryFileProcessingOptions;
 import org.exbin.jaguif.docking.api.ContextDocking;
 import org.exbin.jaguif.frame.api.FrameModuleApi;
+import org.exbin.jaguif.operation.undo.api.ContextUndoRedo;
+import org.exbin.jaguif.operation.undo.api.UndoRedoState;
 import org.exbin.jaguif.options.api.OptionsModuleApi;
 import org.exbin.jaguif.options.api.OptionsStorage;
-import org.exbin.jaguif.options.settings.api.OptionsSettingsManagement;
-import org.exbin.jaguif.options.settings.api.OptionsSettingsModuleApi;
-import org.exbin.jaguif.options.settings.api.SettingsOptionsProvider;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -57,19 +56,17 @@ import java.io.IOException;
 @ParametersAreNonnullByDefault
 public class BinEdNativeFile {
 
-    private final BinEdFilePanel filePanel = new BinEdFilePanel();
+    private final BinEdFilePanel filePanel;
     private final BinaryFileDocument fileDocument;
 
     private boolean opened = false;
     private VirtualFile virtualFile;
 
     public BinEdNativeFile() {
-        BinedDocumentModule binedDocumentModule = App.getModule(BinedDocumentModule.class);
-        BinEdFileManager fileManager = binedDocumentModule.getFileManager();
-        fileDocument = BinEdVirtualFile.createBinaryFileDocument();
+        BinEdEditorPool.PreparedEditor preparedEditor = BinEdEditorPool.takeEditor();
+        filePanel = preparedEditor.getFilePanel();
+        fileDocument = preparedEditor.getFileDocument();
         filePanel.setDocument(fileDocument);
-        fileManager.initDataComponent(fileDocument.getDataComponent());
-        fileManager.initCommandHandler(fileDocument.getDataComponent());
 
 //        BinaryIntelliJUndoRedo undoHandler = new BinaryIntelliJUndoRedo();
 //        fileDocument.setUndoHandler(undoHandler);
@@ -91,16 +88,10 @@ public class BinEdNativeFile {
 //        BinEdToolbarPanel toolbarPanel = filePanel.getToolbarPanel();
 //        toolbarPanel.setUndoHandler(fileDocument.getUndoHandler().get());
 //        toolbarPanel.loadFromOptions(optionsModule.getAppOptions());
-
-        OptionsSettingsModuleApi optionsSettingsModule = App.getModule(OptionsSettingsModuleApi.class);
-        OptionsSettingsManagement settingsManager = optionsSettingsModule.getMainSettingsManager();
-        SettingsOptionsProvider settingsOptionsProvider = settingsManager.getSettingsOptionsProvider();
-        fileDocument.applySettings(settingsOptionsProvider);
     }
 
     public void registerUndoRedo(BinaryIntelliJUndoRedo undoIntelliJHandler) {
-        // TODO Doesn't work ATM
-        /* FrameModuleApi frameModule = App.getModule(FrameModuleApi.class);
+        FrameModuleApi frameModule = App.getModule(FrameModuleApi.class);
         ActiveContextManagement contextManager = frameModule.getFrameController().getContextManager();
         fileDocument.setUndoHandler(undoIntelliJHandler);
         undoIntelliJHandler.addChangeListener(() -> {
@@ -108,9 +99,9 @@ public class BinEdNativeFile {
             if (document == fileDocument) {
                 contextManager.notifyActiveStateChange(ContextUndoRedo.class, fileDocument.getDataComponent(), UndoRedoState.ChangeType.UNDO_REDO_STATE);
             }
-        }); */
+        });
         BinEdToolbarPanel toolbarPanel = filePanel.getToolbarPanel();
-        toolbarPanel.setUndoHandler(fileDocument.getUndoHandler().get());
+        toolbarPanel.setUndoHandler(undoIntelliJHandler);
     }
 
     public boolean isModified() {
@@ -18,6 +18,7 @@ package org.exbin.bined.intellij;
 import com.intellij.diff.impl.DiffSettingsHolder;
 import com.intellij.diff.tools.fragmented.UnifiedDiffTool;
 import com.intellij.diff.tools.simple.SimpleDiffTool;
+import com.intellij.ide.AppLifecycleListener;
 import com.intellij.ide.util.PropertiesComponent;
 import com.intellij.openapi.actionSystem.DataContext;
 import com.intellij.openapi.actionSystem.IdeActions;
@@ -62,6 +63,7 @@ import org.exbin.bined.intellij.api.BinaryViewData;
 import org.exbin.bined.intellij.api.BinaryViewHandler;
 import org.exbin.bined.intellij.diff.BinEdDiffTool;
 import org.exbin.bined.intellij.objectdata.MainBinaryViewHandler;
+import org.exbin.bined.intellij.performance.PerformanceTracker;
 import org.exbin.bined.intellij.search.BinEdIntelliJComponentSearch;
 import org.exbin.bined.intellij.settings.IntegrationOptions;
 import org.exbin.bined.intellij.settings.IntegrationSettingsComponent;
@@ -207,11 +209,13 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.prefs.BackingStoreException;
@@ -230,7 +234,10 @@ public final class BinEdPluginStartupActivity implements ProjectActivity, Startu
     private static final List<IntegrationOptionsListener> INTEGRATION_OPTIONS_LISTENERS = new ArrayList<>();
     private static IntegrationOptions initialIntegrationOptions = null;
 
-    private static boolean initialized = false;
+    private static volatile boolean initialized = false;
+    private static boolean initializing = false;
+    private static AppModuleProvider appModuleProvider = null;
+    private static IntelliJOptionsStorage appOptions = null;
     private boolean extensionInitialized = false;
     private final BinaryViewHandler viewHandler = new MainBinaryViewHandler();
     private final List<BinaryViewData> initializedExtensions = new ArrayList<>();
@@ -250,13 +257,43 @@ public final class BinEdPluginStartupActivity implements ProjectActivity, Startu
         projectOpened(project);
     }
 
-    public static void initialize() {
-        if (!initialized) {
-            initialized = true;
-            AppModuleProvider appModuleProvider = new AppModuleProvider();
-            appModuleProvider.createModules();
+    /**
+     * Registers module provider and applies integration options to actions.
+     * <p>
+     * Modules are created and initialized later on first use.
+     */
+    private static synchronized void installModuleProvider() {
+        if (appModuleProvider == null) {
+            appModuleProvider = new AppModuleProvider();
+            appModuleProvider.registerModules();
             App.setModuleProvider(appModuleProvider);
-            appModuleProvider.init();
+
+            appOptions = new IntelliJOptionsStorage(PropertiesComponent.getInstance(), BinEdIntelliJPlugin.PLUGIN_PREFIX);
+            initialIntegrationOptions = new IntegrationOptions(appOptions);
+            for (IntegrationOptionsListener listener : INTEGRATION_OPTIONS_LISTENERS) {
+                listener.integrationInit(initialIntegrationOptions);
+            }
+        }
+    }
+
+    /**
+     * Performs full initialization of modules once.
+     * <p>
+     * Other threads wait until initialization is finished, nested calls from
+     * initializing thread return immediately.
+     */
+    public static synchronized void initialize() {
+        if (initialized || initializing) {
+            return;
+        }
+
+        initializing = true;
+        try {
+            installModuleProvider();
+            long startTime = System.nanoTime();
+            try (PerformanceTracker.Span span = PerformanceTracker.start(PerformanceTracker.CATEGORY_STARTUP, "Modules initialization")) {
+                appModuleProvider.init();
+            }
 
             // EditorActionHandler takes key and selection events for IDE and makes then inaccessible
             // This workaround passes them if editor is binary editor
@@ -276,6 +313,15 @@ public final class BinEdPluginStartupActivity implements ProjectActivity, Startu
             registerActionHandler(IdeActions.ACTION_SELECT_ALL, CodeAreaCommandHandler::selectAll);
 //            registerActionHandler(IdeActions.ACTION_FIND, KeyEvent.CTRL_DOWN_MASK | KeyEvent.META_DOWN_MASK, KeyEvent.VK_F);
 //            registerActionHandler(IdeActions.ACTION_REPLACE, KeyEvent.CTRL_DOWN_MASK | KeyEvent.META_DOWN_MASK, KeyEvent.VK_H);
+            Logger.getLogger(BinEdPluginStartupActivity.class.getName()).log(Level.INFO, "BinEd modules initialized in "
+                    + (System.nanoTime() - startTime) / 1000000 + " ms (" + appModuleProvider.getModuleCreationTrace() + ")");
+
+            // Prepare next editor while idle, so that opening of binary editor doesn't wait for components creation
+            BinEdEditorPool.schedulePrepare();
+
+            initialized = true;
+        } finally {
+            initializing = false;
         }
     }
 
@@ -402,7 +448,7 @@ public final class BinEdPluginStartupActivity implements ProjectActivity, Startu
     }
 
     private void projectOpened(Project project) {
-        BinEdPluginStartupActivity.initialize();
+        BinEdPluginStartupActivity.installModuleProvider();
 
         if (!extensionInitialized) {
             ProjectManager.getInstance().addProjectManagerListener(new BinEdVetoableProjectListener());
@@ -438,6 +484,11 @@ public final class BinEdPluginStartupActivity implements ProjectActivity, Startu
 
             @Override
             public void selectionChanged(@Nonnull FileEditorManagerEvent event) {
+                if (!initialized) {
+                    // No binary editor was opened yet
+                    return;
+                }
+
                 FrameModuleApi frameModule = App.getModule(FrameModuleApi.class);
                 BinEdIntelliJDocking docking = (BinEdIntelliJDocking) frameModule.getFrameController().getContextManager().getActiveState(ContextDocking.class);
                 BinaryFileDocument activeFile = null;
@@ -550,6 +601,10 @@ public final class BinEdPluginStartupActivity implements ProjectActivity, Startu
         }
     }
 
+    public static void removeIntegrationOptionsListener(IntegrationOptionsListener integrationOptionsListener) {
+        INTEGRATION_OPTIONS_LISTENERS.remove(integrationOptionsListener);
+    }
+
     public static void applyIntegrationOptions(IntegrationOptions integrationOptions) {
         LanguageModuleApi languageModule = App.getModule(LanguageModuleApi.class);
         Locale languageLocale = integrationOptions.getLanguageLocale();
@@ -599,62 +654,64 @@ public final class BinEdPluginStartupActivity implements ProjectActivity, Startu
     @ParametersAreNonnullByDefault
     private static class AppModuleProvider implements ModuleProvider {
 
+        private final Map<Class<?>, Supplier<? extends Module>> moduleSuppliers = new HashMap<>();
         private final Map<Class<?>, Module> modules = new HashMap<>();
-
-        private void createModules() {
-            modules.put(LanguageModuleApi.class, new LanguageModule());
-            modules.put(ContributionModuleApi.class, new ContributionModule());
-            modules.put(ContextModuleApi.class, new ContextModule());
-            modules.put(ActionModuleApi.class, new ActionModule());
-            modules.put(OperationUndoModuleApi.class, new OperationUndoModule());
-            modules.put(OptionsModuleApi.class, new org.exbin.jaguif.options.OptionsModule());
-            modules.put(OptionsSettingsModuleApi.class, new OptionsSettingsModule());
-            modules.put(UiModuleApi.class, new UiModule());
-            modules.put(UiThemeModuleApi.class, new UiThemeModule());
-            modules.put(HelpModuleApi.class, new HelpModule());
-            modules.put(MenuModuleApi.class, new MenuModule());
-            modules.put(ToolBarModuleApi.class, new ToolBarModule());
-            modules.put(StatusBarModuleApi.class, new StatusBarModule());
-            modules.put(ComponentModuleApi.class, new ComponentModule());
-            modules.put(WindowModuleApi.class, new WindowModule());
-            modules.put(FrameModuleApi.class, new FrameModule());
-            modules.put(TabPagesModuleApi.class, new TabPagesModule());
-            modules.put(LicenseModuleApi.class, new LicenseModule());
-            modules.put(DocumentModuleApi.class, new DocumentModule());
-            modules.put(FileModuleApi.class, new FileModule());
-            modules.put(DockingModuleApi.class, new DockingModule());
-            modules.put(HelpOnlineModule.class, new HelpOnlineModule());
-            modules.put(BinedComponentModule.class, new BinedComponentModule());
-            modules.put(BinedViewerModule.class, new BinedViewerModule());
-            modules.put(BinedEditorModule.class, new BinedEditorModule());
-            modules.put(BinedDocumentModule.class, new BinedDocumentModule());
-            modules.put(BinedThemeModule.class, new BinedThemeModule());
-            modules.put(BinedSearchModule.class, new BinedSearchModule());
-            modules.put(BinedOperationMethodModule.class, new BinedOperationMethodModule());
-            modules.put(BinedOperationCodeModule.class, new BinedOperationCodeModule());
-            modules.put(BinedOperationBouncycastleModule.class, new BinedOperationBouncycastleModule());
-            modules.put(BinedObjectDataModule.class, new BinedObjectDataModule());
-            modules.put(BinedToolContentModule.class, new BinedToolContentModule());
-            modules.put(BinedCompareModule.class, new BinedCompareModule());
-            modules.put(BinedInspectorModule.class, new BinedInspectorModule());
-            modules.put(BinedBookmarksModule.class, new BinedBookmarksModule());
-            modules.put(BinedMacroModule.class, new BinedMacroModule());
+        private final Map<Class<?>, Long> moduleCreationTimes = new LinkedHashMap<>();
+
+        private void registerModules() {
+            moduleSuppliers.put(LanguageModuleApi.class, LanguageModule::new);
+            moduleSuppliers.put(ContributionModuleApi.class, ContributionModule::new);
+            moduleSuppliers.put(ContextModuleApi.class, ContextModule::new);
+            moduleSuppliers.put(ActionModuleApi.class, ActionModule::new);
+            moduleSuppliers.put(OperationUndoModuleApi.class, OperationUndoModule::new);
+            moduleSuppliers.put(OptionsModuleApi.class, org.exbin.jaguif.options.OptionsModule::new);
+            moduleSuppliers.put(OptionsSettingsModuleApi.class, OptionsSettingsModule::new);
+            moduleSuppliers.put(UiModuleApi.class, UiModule::new);
+            moduleSuppliers.put(UiThemeModuleApi.class, UiThemeModule::new);
+            moduleSuppliers.put(HelpModuleApi.class, HelpModule::new);
+            moduleSuppliers.put(MenuModuleApi.class, MenuModule::new);
+            moduleSuppliers.put(ToolBarModuleApi.class, ToolBarModule::new);
+            moduleSuppliers.put(StatusBarModuleApi.class, StatusBarModule::new);
+            moduleSuppliers.put(ComponentModuleApi.class, ComponentModule::new);
+            moduleSuppliers.put(WindowModuleApi.class, WindowModule::new);
+            moduleSuppliers.put(FrameModuleApi.class, FrameModule::new);
+            moduleSuppliers.put(TabPagesModuleApi.class, TabPagesModule::new);
+            moduleSuppliers.put(LicenseModuleApi.class, LicenseModule::new);
+            moduleSuppliers.put(DocumentModuleApi.class, DocumentModule::new);
+            moduleSuppliers.put(FileModuleApi.class, FileModule::new);
+            moduleSuppliers.put(DockingModuleApi.class, DockingModule::new);
+            moduleSuppliers.put(HelpOnlineModule.class, HelpOnlineModule::new);
+            moduleSuppliers.put(BinedComponentModule.class, BinedComponentModule::new);
+            moduleSuppliers.put(BinedViewerModule.class, BinedViewerModule::new);
+            moduleSuppliers.put(BinedEditorModule.class, BinedEditorModule::new);
+            moduleSuppliers.put(BinedDocumentModule.class, BinedDocumentModule::new);
+            moduleSuppliers.put(BinedThemeModule.class, BinedThemeModule::new);
+            moduleSuppliers.put(BinedSearchModule.class, BinedSearchModule::new);
+            moduleSuppliers.put(BinedOperationMethodModule.class, BinedOperationMethodModule::new);
+            moduleSuppliers.put(BinedOperationCodeModule.class, BinedOperationCodeModule::new);
+            moduleSuppliers.put(BinedOperationBouncycastleModule.class, BinedOperationBouncycastleModule::new);
+            moduleSuppliers.put(BinedObjectDataModule.class, BinedObjectDataModule::new);
+            moduleSuppliers.put(BinedToolContentModule.class, BinedToolContentModule::new);
+            moduleSuppliers.put(BinedCompareModule.class, BinedCompareModule::new);
+            moduleSuppliers.put(BinedInspectorModule.class, BinedInspectorModule::new);
+            moduleSuppliers.put(BinedBookmarksModule.class, BinedBookmarksModule::new);
+            moduleSuppliers.put(BinedMacroModule.class, BinedMacroModule::new);
 
             // Language plugins
-            modules.put(LanguageCsCzModule.class, new LanguageCsCzModule());
-            modules.put(LanguageDeDeModule.class, new LanguageDeDeModule());
-            modules.put(LanguageEsEsModule.class, new LanguageEsEsModule());
-            modules.put(LanguageFrFrModule.class, new LanguageFrFrModule());
-            modules.put(LanguageItItModule.class, new LanguageItItModule());
-            modules.put(LanguageJaJpModule.class, new LanguageJaJpModule());
-            modules.put(LanguageKoKrModule.class, new LanguageKoKrModule());
-            modules.put(LanguagePlPlModule.class, new LanguagePlPlModule());
-            modules.put(LanguageRuRuModule.class, new LanguageRuRuModule());
-            modules.put(LanguageZhHansModule.class, new LanguageZhHansModule());
-            modules.put(LanguageZhHantModule.class, new LanguageZhHantModule());
+            moduleSuppliers.put(LanguageCsCzModule.class, LanguageCsCzModule::new);
+            moduleSuppliers.put(LanguageDeDeModule.class, LanguageDeDeModule::new);
+            moduleSuppliers.put(LanguageEsEsModule.class, LanguageEsEsModule::new);
+            moduleSuppliers.put(LanguageFrFrModule.class, LanguageFrFrModule::new);
+            moduleSuppliers.put(LanguageItItModule.class, LanguageItItModule::new);
+            moduleSuppliers.put(LanguageJaJpModule.class, LanguageJaJpModule::new);
+            moduleSuppliers.put(LanguageKoKrModule.class, LanguageKoKrModule::new);
+            moduleSuppliers.put(LanguagePlPlModule.class, LanguagePlPlModule::new);
+            moduleSuppliers.put(LanguageRuRuModule.class, LanguageRuRuModule::new);
+            moduleSuppliers.put(LanguageZhHansModule.class, LanguageZhHansModule::new);
+            moduleSuppliers.put(LanguageZhHantModule.class, LanguageZhHantModule::new);
 
             // Iconset plugins
-            modules.put(IconSetMaterialModule.class, new IconSetMaterialModule());
+            moduleSuppliers.put(IconSetMaterialModule.class, IconSetMaterialModule::new);
         }
 
         private void init() {
@@ -662,8 +719,13 @@ public final class BinEdPluginStartupActivity implements ProjectActivity, Startu
                     Locale.ROOT));
 
             OptionsModule optionsModule = (OptionsModule) App.getModule(OptionsModuleApi.class);
-            optionsModule.setAppOptions(new IntelliJOptionsStorage(PropertiesComponent.getInstance(),
-                    BinEdIntelliJPlugin.PLUGIN_PREFIX));
+            optionsModule.setAppOptions(appOptions);
+            ApplicationManager.getApplication().getMessageBus().connect().subscribe(AppLifecycleListener.TOPIC, new AppLifecycleListener() {
+                @Override
+                public void appWillBeClosed(boolean isRestart) {
+                    appOptions.flush();
+                }
+            });
             convertIncorrectPreferences();
 
             OptionsStorage preferences = optionsModule.getAppOptions();
@@ -927,7 +989,39 @@ public final class BinEdPluginStartupActivity implements ProjectActivity, Startu
         @Nonnull
         @Override
         public <T extends Module> T getModule(Class<T> moduleClass) {
-            return (T) modules.get(moduleClass);
+            if (!initialized) {
+                // First use of any module performs full initialization
+                BinEdPluginStartupActivity.initialize();
+            }
+            synchronized (modules) {
+                Module module = modules.get(moduleClass);
+                if (module == null) {
+                    Supplier<? extends Module> moduleSupplier = moduleSuppliers.get(moduleClass);
+                    if (moduleSupplier != null) {
+                        long startTime = System.nanoTime();
+                        module = moduleSupplier.get();
+                        long duration = System.nanoTime() - startTime;
+                        moduleCreationTimes.put(moduleClass, duration);
+                        PerformanceTracker.record(PerformanceTracker.CATEGORY_STARTUP, "Module " + moduleClass.getSimpleName(), startTime, duration);
+                        modules.put(moduleClass, module);
+                    }
+                }
+                return (T) module;
+            }
+        }
+
+        @Nonnull
+        private String getModuleCreationTrace() {
+            StringBuilder builder = new StringBuilder();
+            synchronized (modules) {
+                for (Map.Entry<Class<?>, Long> entry : moduleCreationTimes.entrySet()) {
+                    if (builder.length() > 0) {
+                        builder.append(", ");
+                    }
+                    builder.append(entry.getKey().getSimpleName()).append(' ').append(entry.getValue() / 1000000).append(" ms");
+                }
+            }
+            return builder.toString();
         }
     }
 
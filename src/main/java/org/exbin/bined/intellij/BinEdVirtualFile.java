@@ -15,19 +15,26 @@
  */
 package org.exbin.bined.intellij;
 
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileSystem;
-import com.intellij.openapi.wm.impl.IdeBackgroundUtil;
-import com.intellij.ui.Graphics2DDelegate;
 import org.exbin.bined.intellij.gui.BinEdFilePanel;
 import org.exbin.bined.intellij.gui.BinEdToolbarPanel;
-import org.exbin.bined.jaguif.document.BinedDocumentModule;
+import org.exbin.bined.intellij.gui.EditorBackgroundCodeArea;
+import org.exbin.bined.intellij.journal.DocumentJournal;
+import org.exbin.bined.intellij.performance.PerformanceTracker;
+import org.exbin.bined.intellij.utils.PagedDataOutputStream;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.auxiliary.binary_data.array.paged.ByteArrayPagedData;
+import org.exbin.bined.intellij.settings.IntegrationOptions;
 import org.exbin.bined.swing.section.SectCodeArea;
 import org.exbin.jaguif.App;
 import org.exbin.bined.jaguif.component.BinEdDataComponent;
-import org.exbin.bined.jaguif.document.BinEdFileManager;
 import org.exbin.bined.jaguif.document.BinaryFileDocument;
 import org.exbin.bined.jaguif.document.settings.BinaryFileProcessingOptions;
 import org.exbin.bined.jaguif.component.gui.BinEdComponentPanel;
@@ -37,20 +44,19 @@ import org.exbin.jaguif.file.api.FileDocumentSource;
 import org.exbin.jaguif.frame.api.FrameModuleApi;
 import org.exbin.jaguif.options.api.OptionsStorage;
 import org.exbin.jaguif.options.api.OptionsModuleApi;
-import org.exbin.jaguif.options.settings.api.OptionsSettingsManagement;
-import org.exbin.jaguif.options.settings.api.OptionsSettingsModuleApi;
-import org.exbin.jaguif.options.settings.api.SettingsOptionsProvider;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import java.awt.Graphics;
-import java.awt.Graphics2D;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ResourceBundle;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -61,15 +67,28 @@ import java.util.logging.Logger;
 public class BinEdVirtualFile extends VirtualFile implements DumbAware {
 
     public static final String PATH_PREFIX = "bined://";
+    private static final int JOURNAL_DELAY_MS = 2000;
+    private static final int JOURNAL_MAX_DELAY_MS = 10000;
+    private static final int JOURNAL_SNAPSHOT_SLICE_SIZE = 1024 * 1024;
 
     private final VirtualFile parentFile;
-    private final BinEdFilePanel filePanel = new BinEdFilePanel();
+    private final BinEdFilePanel filePanel;
     private final BinaryFileDocument fileDocument;
     private String displayName;
     private boolean closing = false;
+    private DocumentJournal journal = null;
+    private final Timer journalTimer = new Timer(JOURNAL_DELAY_MS, e -> writeJournalCheckpoint());
+    private long journalPendingSince = 0;
+    private long dataModificationCount = 0;
+    private ByteArrayPagedData journalSnapshot = null;
+    private long journalSnapshotModificationCount = 0;
+    private final BinEdPluginStartupActivity.IntegrationOptionsListener undoLimitListener;
 
     public BinEdVirtualFile(VirtualFile parentFile) {
-        fileDocument = BinEdVirtualFile.createBinaryFileDocument();
+        long startTime = System.nanoTime();
+        BinEdEditorPool.PreparedEditor preparedEditor = BinEdEditorPool.takeEditor();
+        filePanel = preparedEditor.getFilePanel();
+        fileDocument = preparedEditor.getFileDocument();
         if (parentFile.getPath().startsWith(PATH_PREFIX)) {
             this.parentFile = LocalFileSystem.getInstance().findFileByPath(parentFile.getPath().substring(PATH_PREFIX.length()));
         } else {
@@ -83,14 +102,21 @@ public class BinEdVirtualFile extends VirtualFile implements DumbAware {
             this.displayName = "";
         }
 
-        BinedDocumentModule binedDocumentModule = App.getModule(BinedDocumentModule.class);
-        BinEdFileManager fileManager = binedDocumentModule.getFileManager();
-        filePanel.setDocument(fileDocument);
-        fileManager.initDataComponent(fileDocument.getDataComponent());
-        fileManager.initCommandHandler(fileDocument.getDataComponent());
-
         OptionsModuleApi optionsModule = App.getModule(OptionsModuleApi.class);
         OptionsStorage optionsStorage = optionsModule.getAppOptions();
+        int undoMemoryLimit = new IntegrationOptions(optionsStorage).getUndoMemoryLimit();
+        BinaryBoundedUndoRedo undoRedo = new BinaryBoundedUndoRedo(fileDocument.getCodeArea(), undoMemoryLimit * 1024L * 1024L, BinaryBoundedUndoRedo.DEFAULT_COMMANDS_LIMIT);
+        fileDocument.setUndoHandler(undoRedo);
+        undoLimitListener = integrationOptions -> undoRedo.setMemoryLimit(integrationOptions.getUndoMemoryLimit() * 1024L * 1024L);
+        BinEdPluginStartupActivity.addIntegrationOptionsListener(undoLimitListener);
+
+        filePanel.setDocument(fileDocument);
+        journalTimer.setRepeats(false);
+        ((SectCodeArea) fileDocument.getCodeArea()).addDataChangedListener(() -> {
+            dataModificationCount++;
+            scheduleJournalCheckpoint();
+        });
+
         fileDocument.setInitialProcessingMode(new BinaryFileProcessingOptions(optionsStorage).getFileProcessingMode());
 
         BinEdToolbarPanel toolbarPanel = filePanel.getToolbarPanel();
@@ -98,17 +124,14 @@ public class BinEdVirtualFile extends VirtualFile implements DumbAware {
         toolbarPanel.setSaveAction(e -> {
             fileDocument.saveTo(fileDocument.getDocumentSource().get());
             fileDocument.fileSync();
+            discardJournal();
             FrameModuleApi frameModule = App.getModule(FrameModuleApi.class);
             BinEdIntelliJDocking docking = (BinEdIntelliJDocking) frameModule.getFrameController().getContextManager().getActiveState(
                     ContextDocking.class);
             docking.setActiveDocument(fileDocument);
         });
         toolbarPanel.loadFromOptions(optionsStorage);
-
-        OptionsSettingsModuleApi optionsSettingsModule = App.getModule(OptionsSettingsModuleApi.class);
-        OptionsSettingsManagement settingsManager = optionsSettingsModule.getMainSettingsManager();
-        SettingsOptionsProvider settingsOptionsProvider = settingsManager.getSettingsOptionsProvider();
-        fileDocument.applySettings(settingsOptionsProvider);
+        PerformanceTracker.record(PerformanceTracker.CATEGORY_EDITOR, "Editor creation", startTime, System.nanoTime() - startTime);
     }
 
     @Nonnull
@@ -130,6 +153,16 @@ public class BinEdVirtualFile extends VirtualFile implements DumbAware {
         return fileDocument;
     }
 
+    /**
+     * Returns file opened in binary editor.
+     *
+     * @return original virtual file
+     */
+    @Nonnull
+    public VirtualFile getOriginalFile() {
+        return parentFile;
+    }
+
     @Nonnull
     public JComponent getEditorComponent() {
         // Beware: IntelliJ analysis component if it finds JTextComponent it overrides its document handling
@@ -254,6 +287,8 @@ public class BinEdVirtualFile extends VirtualFile implements DumbAware {
     }
 
     public void dispose() {
+        BinEdPluginStartupActivity.removeIntegrationOptionsListener(undoLimitListener);
+        discardJournal();
         FrameModuleApi frameModule = App.getModule(FrameModuleApi.class);
         BinEdIntelliJDocking docking = (BinEdIntelliJDocking) frameModule.getFrameController().getContextManager().getActiveState(ContextDocking.class);
         docking.removeDocument(fileDocument);
@@ -265,18 +300,28 @@ public class BinEdVirtualFile extends VirtualFile implements DumbAware {
     }
 
     public void openFile(BinaryFileDocument fileDocument) {
+        journalTimer.stop();
+        journal = null;
+        journalPendingSince = 0;
+        journalSnapshot = null;
         if (!isDirectory() && isValid()) {
-            File file = extractFile(this);
-            fileDocument.clearFile();
-            if (file.isFile() && file.exists()) {
-                fileDocument.loadFrom(new FileDocumentSource(file));
-                fileDocument.fileSync();
-            } else {
-                try (InputStream stream = getInputStream()) {
-                    fileDocument.loadFrom(new VirtualFileDocumentSource());
+            try (PerformanceTracker.Span span = PerformanceTracker.start(PerformanceTracker.CATEGORY_EDITOR, "Data load")) {
+                File file = extractFile(this);
+                fileDocument.clearFile();
+                if (file.isFile() && file.exists()) {
+                    fileDocument.loadFrom(new FileDocumentSource(file));
                     fileDocument.fileSync();
-                } catch (IOException ex) {
-                    Logger.getLogger(BinEdVirtualFile.class.getName()).log(Level.SEVERE, null, ex);
+                    if (fileDocument == this.fileDocument) {
+                        journal = new DocumentJournal(file.toPath());
+                        SwingUtilities.invokeLater(this::recoverFromJournal);
+                    }
+                } else {
+                    try (InputStream stream = getInputStream()) {
+                        fileDocument.loadFrom(new VirtualFileDocumentSource());
+                        fileDocument.fileSync();
+                    } catch (IOException ex) {
+                        Logger.getLogger(BinEdVirtualFile.class.getName()).log(Level.SEVERE, null, ex);
+                    }
                 }
             }
         }
@@ -285,6 +330,151 @@ public class BinEdVirtualFile extends VirtualFile implements DumbAware {
         docking.setActiveDocument(fileDocument);
     }
 
+    private void scheduleJournalCheckpoint() {
+        if (journal == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (journalPendingSince == 0) {
+            journalPendingSince = now;
+        }
+        if (now - journalPendingSince >= JOURNAL_MAX_DELAY_MS) {
+            // Continuous editing still writes checkpoint regularly
+            journalTimer.stop();
+            writeJournalCheckpoint();
+        } else {
+            journalTimer.restart();
+        }
+    }
+
+    private void writeJournalCheckpoint() {
+        journalPendingSince = 0;
+        journalSnapshot = null;
+        if (journal == null) {
+            return;
+        }
+
+        if (!fileDocument.isModified()) {
+            journal.discard();
+            return;
+        }
+
+        BinaryData contentData = fileDocument.getCodeArea().getContentData();
+        if (contentData.getDataSize() > DocumentJournal.MAX_DOCUMENT_SIZE) {
+            // Copy of large document would block dispatch thread and double memory use,
+            // previous checkpoint is dropped as it doesn't match current data anymore
+            journal.discard();
+            return;
+        }
+
+        journalSnapshot = new ByteArrayPagedData();
+        journalSnapshotModificationCount = dataModificationCount;
+        copyJournalSnapshotSlice();
+    }
+
+    /**
+     * Copies next slice of document data to journal snapshot.
+     * <p>
+     * Snapshot is copied in slices in separate events so that dispatch thread
+     * is not blocked by copying of large document. Copying is abandoned when
+     * data is changed meanwhile as new checkpoint is scheduled for the change.
+     */
+    private void copyJournalSnapshotSlice() {
+        ByteArrayPagedData snapshot = journalSnapshot;
+        if (snapshot == null || journal == null) {
+            return;
+        }
+
+        if (journalSnapshotModificationCount != dataModificationCount) {
+            journalSnapshot = null;
+            return;
+        }
+
+        BinaryData contentData = fileDocument.getCodeArea().getContentData();
+        long position = snapshot.getDataSize();
+        int length = (int) Math.min(JOURNAL_SNAPSHOT_SLICE_SIZE, contentData.getDataSize() - position);
+        if (length > 0) {
+            byte[] slice = new byte[length];
+            contentData.copyToArray(position, slice, 0, length);
+            snapshot.insert(position, slice);
+        }
+
+        if (snapshot.getDataSize() < contentData.getDataSize()) {
+            SwingUtilities.invokeLater(this::copyJournalSnapshotSlice);
+        } else {
+            journalSnapshot = null;
+            journal.scheduleCheckpoint(snapshot);
+        }
+    }
+
+    private void discardJournal() {
+        journalTimer.stop();
+        journalPendingSince = 0;
+        journalSnapshot = null;
+        if (journal != null) {
+            journal.discard();
+        }
+    }
+
+    private void recoverFromJournal() {
+        DocumentJournal recoveryJournal = journal;
+        if (recoveryJournal == null) {
+            return;
+        }
+
+        byte[] patch = recoveryJournal.readRecoverablePatch();
+        if (patch == null) {
+            recoveryJournal.discard();
+            return;
+        }
+
+        ResourceBundle resourceBundle = BinEdIntelliJPlugin.getResourceBundle();
+        int result = Messages.showYesNoDialog(filePanel,
+                String.format(resourceBundle.getString("BinEdVirtualFile.recoverJournal.message"), getName()),
+                resourceBundle.getString("BinEdVirtualFile.recoverJournal.title"),
+                Messages.getQuestionIcon());
+        if (result != Messages.YES || recoveryJournal != journal) {
+            recoveryJournal.discard();
+            return;
+        }
+
+        long recoveryModificationCount = dataModificationCount;
+        ProgressManager.getInstance().run(new Task.Backgroundable(null, "Recovering unsaved changes", true) {
+            private ByteArrayPagedData recoveredData;
+            private IOException failure;
+
+            @Override
+            public void run(ProgressIndicator indicator) {
+                // Data is streamed directly to pages without intermediate buffer
+                try (PagedDataOutputStream outputStream = new PagedDataOutputStream()) {
+                    recoveryJournal.recover(patch, outputStream, indicator::checkCanceled);
+                    recoveredData = outputStream.getData();
+                } catch (IOException ex) {
+                    failure = ex;
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                if (failure != null) {
+                    Logger.getLogger(BinEdVirtualFile.class.getName()).log(Level.SEVERE, null, failure);
+                    recoveryJournal.discard();
+                    return;
+                }
+                if (recoveryJournal != journal || recoveryModificationCount != dataModificationCount) {
+                    // Document was reopened or edited meanwhile
+                    return;
+                }
+
+                fileDocument.getCodeArea().setContentData(recoveredData);
+                // Recovered content differs from file so document stays modified
+                fileDocument.getUndoHandler().ifPresent(undoHandler -> undoHandler.setSyncPosition(-1));
+                fileDocument.getCodeArea().notifyDataChanged();
+            }
+        });
+    }
+
     public static class VirtualFileDocumentSource implements DocumentSource {
         // TODO
     }
@@ -297,29 +487,26 @@ public class BinEdVirtualFile extends VirtualFile implements DumbAware {
         @Nonnull
         @Override
         protected SectCodeArea createCodeArea() {
-            return new SectCodeArea() {
-                private Graphics2DDelegate graphicsCache = null;
+            return new EditorBackgroundCodeArea() {
+                private long firstPaintStartTime = 0;
+                private boolean painted = false;
 
-                @Nonnull
                 @Override
-                protected Graphics getComponentGraphics(Graphics g) {
-                    if (g instanceof Graphics2DDelegate) {
-                        return g;
-                    }
-
-                    if (graphicsCache != null && graphicsCache.getDelegate() == g) {
-                        return graphicsCache;
+                public void addNotify() {
+                    super.addNotify();
+                    // Code area can be prepared ahead, first paint is measured from showing in editor
+                    if (!painted) {
+                        firstPaintStartTime = System.nanoTime();
                     }
+                }
 
-                    if (graphicsCache != null) {
-                        graphicsCache.dispose();
+                @Override
+                public void paintComponent(Graphics g) {
+                    super.paintComponent(g);
+                    if (!painted && firstPaintStartTime != 0) {
+                        painted = true;
+                        PerformanceTracker.record(PerformanceTracker.CATEGORY_EDITOR, "First paint", firstPaintStartTime, System.nanoTime() - firstPaintStartTime);
                     }
-
-                    Graphics2D editorGraphics = IdeBackgroundUtil.withEditorBackground(g, this);
-                    graphicsCache = editorGraphics instanceof Graphics2DDelegate ?
-                            (Graphics2DDelegate) editorGraphics :
-                            new Graphics2DDelegate(editorGraphics);
-                    return graphicsCache;
                 }
             };
         }
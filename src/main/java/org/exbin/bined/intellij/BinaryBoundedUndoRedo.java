@@ -0,0 +1,417 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij;
+
+import org.exbin.bined.SelectionRange;
+import org.exbin.bined.capability.CaretCapable;
+import org.exbin.bined.capability.SelectionCapable;
+import org.exbin.bined.operation.BinaryDataUndoRedoChangeListener;
+import org.exbin.bined.operation.command.BinaryDataCommand;
+import org.exbin.bined.operation.command.BinaryDataUndoRedo;
+import org.exbin.bined.operation.command.BinaryDataUndoableCommand;
+import org.exbin.bined.swing.CodeAreaCore;
+import org.exbin.bined.swing.section.SectCodeArea;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Undo handler with limited memory used by commands history.
+ * <p>
+ * Payload of each command is estimated from length of data affected by its
+ * execution, undo and redo, which is the largest of change of data size,
+ * length of replaced selection and distance the caret moved over. Edits
+ * merged into the top command are measured when data change is reported.
+ * <p>
+ * When total payload exceeds memory budget, oldest commands are dropped from
+ * history. Single command exceeding the budget by itself is not kept, whole
+ * history is then discarded and the operation cannot be undone.
+ */
+@ParametersAreNonnullByDefault
+public class BinaryBoundedUndoRedo implements BinaryDataUndoRedo {
+
+    public static final long DEFAULT_MEMORY_LIMIT = 256L * 1024 * 1024;
+    public static final int DEFAULT_COMMANDS_LIMIT = 10000;
+    /**
+     * Estimated size of command without data payload.
+     */
+    private static final long COMMAND_BASE_SIZE = 64;
+
+    protected final List<BinaryDataUndoRedoChangeListener> listeners = new ArrayList<>();
+    protected final List<BinaryDataUndoableCommand> commands = new ArrayList<>();
+    protected final List<Long> payloadSizes = new ArrayList<>();
+    protected final CodeAreaCore codeArea;
+    protected long memoryLimit;
+    protected int commandsLimit;
+    protected long payloadSize = 0;
+    protected int commandPosition;
+    protected int syncPointPosition = -1;
+    private AffectedDataProbe topCommandProbe = null;
+
+    public BinaryBoundedUndoRedo(CodeAreaCore codeArea) {
+        this(codeArea, DEFAULT_MEMORY_LIMIT, DEFAULT_COMMANDS_LIMIT);
+    }
+
+    public BinaryBoundedUndoRedo(CodeAreaCore codeArea, long memoryLimit, int commandsLimit) {
+        this.codeArea = codeArea;
+        this.memoryLimit = memoryLimit;
+        this.commandsLimit = commandsLimit;
+        init();
+        if (codeArea instanceof SectCodeArea) {
+            ((SectCodeArea) codeArea).addDataChangedListener(this::topCommandChanged);
+        }
+    }
+
+    private void init() {
+        commandPosition = 0;
+        setSyncPosition(0);
+    }
+
+    @Override
+    public void execute(BinaryDataCommand command) {
+        topCommandProbe = null;
+        AffectedDataProbe probe = new AffectedDataProbe();
+        command.execute();
+        commandAdded((BinaryDataUndoableCommand) command, probe.getAffectedLength());
+    }
+
+    @Nonnull
+    @Override
+    public Optional<BinaryDataCommand> getTopUndoCommand() {
+        if (commandPosition == 0) {
+            return Optional.empty();
+        }
+
+        // Command handler may append edit to returned command, change is measured when reported
+        topCommandProbe = new AffectedDataProbe();
+        return Optional.of(commands.get(commandPosition - 1));
+    }
+
+    private void topCommandChanged() {
+        AffectedDataProbe probe = topCommandProbe;
+        topCommandProbe = null;
+        if (probe == null || commandPosition == 0) {
+            return;
+        }
+
+        long affectedLength = probe.getAffectedLength();
+        if (affectedLength > 0) {
+            payloadSizes.set(commandPosition - 1, payloadSizes.get(commandPosition - 1) + affectedLength);
+            payloadSize += affectedLength;
+            trimHistory();
+            undoUpdated();
+        }
+    }
+
+    private void commandAdded(BinaryDataUndoableCommand command, long commandPayload) {
+        // Commands which were undone are replaced by new command
+        while (commands.size() > commandPosition) {
+            removeCommand(commands.size() - 1);
+        }
+        if (syncPointPosition > commandPosition) {
+            syncPointPosition = -1;
+        }
+
+        commands.add(command);
+        payloadSizes.add(COMMAND_BASE_SIZE + commandPayload);
+        payloadSize += COMMAND_BASE_SIZE + commandPayload;
+        commandPosition++;
+        trimHistory();
+        undoUpdated();
+    }
+
+    @Override
+    public void performUndo() {
+        performUndoInt();
+        undoUpdated();
+    }
+
+    private void performUndoInt() {
+        if (commandPosition == 0) {
+            return;
+        }
+
+        topCommandProbe = null;
+        commandPosition--;
+        BinaryDataUndoableCommand command = commands.get(commandPosition);
+        AffectedDataProbe probe = new AffectedDataProbe();
+        command.undo();
+        updatePayloadSize(commandPosition, probe.getAffectedLength());
+    }
+
+    @Override
+    public void performRedo() {
+        performRedoInt();
+        undoUpdated();
+    }
+
+    private void performRedoInt() {
+        if (commandPosition == commands.size()) {
+            return;
+        }
+
+        topCommandProbe = null;
+        BinaryDataUndoableCommand command = commands.get(commandPosition);
+        AffectedDataProbe probe = new AffectedDataProbe();
+        command.redo();
+        updatePayloadSize(commandPosition, probe.getAffectedLength());
+        commandPosition++;
+    }
+
+    @Override
+    public void performUndo(int count) {
+        for (int i = 0; i < count && commandPosition > 0; i++) {
+            performUndoInt();
+        }
+        undoUpdated();
+    }
+
+    @Override
+    public void performRedo(int count) {
+        for (int i = 0; i < count && commandPosition < commands.size(); i++) {
+            performRedoInt();
+        }
+        undoUpdated();
+    }
+
+    @Override
+    public void clear() {
+        topCommandProbe = null;
+        for (BinaryDataUndoableCommand command : commands) {
+            disposeCommand(command);
+        }
+        commands.clear();
+        payloadSizes.clear();
+        payloadSize = 0;
+        init();
+        undoUpdated();
+    }
+
+    @Override
+    public boolean canUndo() {
+        return commandPosition > 0;
+    }
+
+    @Override
+    public boolean canRedo() {
+        return commandPosition < commands.size();
+    }
+
+    @Override
+    public int getCommandPosition() {
+        return commandPosition;
+    }
+
+    @Override
+    public int getCommandsCount() {
+        return commands.size();
+    }
+
+    @Override
+    public void performSync() {
+        setCommandPosition(syncPointPosition);
+    }
+
+    @Override
+    public int getSyncPosition() {
+        return syncPointPosition;
+    }
+
+    @Override
+    public void setSyncPosition(int syncPointPosition) {
+        this.syncPointPosition = syncPointPosition;
+    }
+
+    @Override
+    public void setSyncPosition() {
+        this.syncPointPosition = commandPosition;
+    }
+
+    @Nonnull
+    @Override
+    public List<BinaryDataCommand> getCommandList() {
+        return Collections.unmodifiableList(new ArrayList<>(commands));
+    }
+
+    /**
+     * Performs undo or redo operation to reach given position.
+     *
+     * @param targetPosition desired position
+     */
+    public void setCommandPosition(int targetPosition) {
+        if (targetPosition < 0) {
+            return;
+        }
+
+        if (targetPosition < commandPosition) {
+            performUndo(commandPosition - targetPosition);
+        } else if (targetPosition > commandPosition) {
+            performRedo(targetPosition - commandPosition);
+        }
+    }
+
+    /**
+     * Returns estimated memory used by commands history.
+     *
+     * @return size in bytes
+     */
+    public long getPayloadSize() {
+        return payloadSize;
+    }
+
+    public long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    public void setMemoryLimit(long memoryLimit) {
+        this.memoryLimit = memoryLimit;
+        trimHistory();
+        undoUpdated();
+    }
+
+    public int getCommandsLimit() {
+        return commandsLimit;
+    }
+
+    public void setCommandsLimit(int commandsLimit) {
+        this.commandsLimit = commandsLimit;
+        trimHistory();
+        undoUpdated();
+    }
+
+    private void trimHistory() {
+        // Redo commands are dropped first as they are least likely to be used
+        while (commands.size() > Math.max(commandPosition, 1) && isOverLimit()) {
+            removeCommand(commands.size() - 1);
+        }
+        while (commands.size() > 1 && commandPosition > 1 && isOverLimit()) {
+            removeCommand(0);
+            commandPosition--;
+            syncPointPosition = syncPointPosition > 0 ? syncPointPosition - 1 : -1;
+        }
+        if (payloadSize > memoryLimit) {
+            discardHistory();
+        }
+    }
+
+    /**
+     * Drops all commands, used when remaining command exceeds memory budget
+     * by itself.
+     */
+    private void discardHistory() {
+        boolean synced = syncPointPosition == commandPosition;
+        while (!commands.isEmpty()) {
+            removeCommand(commands.size() - 1);
+        }
+        topCommandProbe = null;
+        commandPosition = 0;
+        syncPointPosition = synced ? 0 : -1;
+    }
+
+    private boolean isOverLimit() {
+        return payloadSize > memoryLimit || commands.size() > commandsLimit;
+    }
+
+    private void updatePayloadSize(int index, long commandPayload) {
+        // Payload of command is largest of observed changes
+        long size = COMMAND_BASE_SIZE + commandPayload;
+        long previousSize = payloadSizes.get(index);
+        if (size > previousSize) {
+            payloadSizes.set(index, size);
+            payloadSize += size - previousSize;
+        }
+    }
+
+    private void removeCommand(int index) {
+        disposeCommand(commands.remove(index));
+        payloadSize -= payloadSizes.remove(index);
+    }
+
+    private long getDataSize() {
+        return codeArea.getDataSize();
+    }
+
+    private long getCaretPosition() {
+        return codeArea instanceof CaretCapable ? ((CaretCapable) codeArea).getDataPosition() : 0;
+    }
+
+    private long getSelectionLength() {
+        if (codeArea instanceof SelectionCapable) {
+            SelectionRange selection = ((SelectionCapable) codeArea).getSelection();
+            return selection.getLength();
+        }
+        return 0;
+    }
+
+    private static void disposeCommand(BinaryDataUndoableCommand command) {
+        try {
+            command.dispose();
+        } catch (Exception ex) {
+            Logger.getLogger(BinaryBoundedUndoRedo.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    private void undoUpdated() {
+        for (BinaryDataUndoRedoChangeListener listener : listeners) {
+            listener.undoChanged();
+        }
+    }
+
+    @Override
+    public void addChangeListener(BinaryDataUndoRedoChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(BinaryDataUndoRedoChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public boolean isModified() {
+        return commandPosition != syncPointPosition;
+    }
+
+    /**
+     * State of code area captured before command is performed.
+     */
+    private class AffectedDataProbe {
+
+        private final long dataSize = getDataSize();
+        private final long caretPosition = getCaretPosition();
+        private final long selectionLength = getSelectionLength();
+
+        /**
+         * Returns estimated length of data affected since the probe was created.
+         * <p>
+         * Commands replacing data of the same size change neither size nor
+         * position, so replaced selection is counted as well.
+         *
+         * @return length in bytes
+         */
+        private long getAffectedLength() {
+            long sizeChange = Math.abs(getDataSize() - dataSize);
+            long caretMove = Math.abs(getCaretPosition() - caretPosition);
+            return Math.max(sizeChange, Math.max(caretMove, selectionLength));
+        }
+    }
+}
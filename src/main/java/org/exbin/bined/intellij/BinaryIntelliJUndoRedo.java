@@ -25,30 +25,43 @@ import org.exbin.bined.operation.BinaryDataUndoRedoChangeListener;
 import org.exbin.bined.operation.command.BinaryDataCommand;
 import org.exbin.bined.operation.command.BinaryDataUndoRedo;
 import org.exbin.bined.operation.command.BinaryDataUndoableCommand;
-import org.jetbrains.annotations.Nullable;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * TODO: Undo handler for binary editor using IntelliJ Idea's undo manager. Doesn't work ATM.
+ * Undo handler for binary editor using IntelliJ Idea's undo manager.
+ * <p>
+ * Commands are kept in local list and consecutive commands of the same type
+ * are coalesced into group registered as single undoable action of the IDE.
+ * Top command is provided to code area command handler so that typing is
+ * appended to existing edit command instead of creating new command for
+ * each keystroke.
  */
 @ParametersAreNonnullByDefault
 public class BinaryIntelliJUndoRedo implements BinaryDataUndoRedo {
 
+    public static final long COALESCE_TIMEOUT_MS = 1000;
+
     protected final List<BinaryDataUndoRedoChangeListener> listeners = new ArrayList<>();
+    protected final List<BinaryDataUndoableCommand> commands = new ArrayList<>();
     protected UndoManager undoManager = null;
     protected BinEdNativeFileEditor fileEditor;
     protected DocumentReference documentReference;
     protected int commandPosition;
     protected int syncPointPosition = -1;
+    protected CommandGroup lastGroup = null;
+    protected long lastCommandTime = 0;
 
     public BinaryIntelliJUndoRedo() {
         init();
@@ -56,6 +69,7 @@ public class BinaryIntelliJUndoRedo implements BinaryDataUndoRedo {
 
     private void init() {
         commandPosition = 0;
+        lastGroup = null;
         setSyncPosition(0);
     }
 
@@ -74,102 +88,80 @@ public class BinaryIntelliJUndoRedo implements BinaryDataUndoRedo {
     @Nonnull
     @Override
     public Optional<BinaryDataCommand> getTopUndoCommand() {
-        throw new UnsupportedOperationException();
+        return commandPosition > 0 ? Optional.of(commands.get(commandPosition - 1)) : Optional.empty();
     }
 
-    private void commandAdded(final BinaryDataUndoableCommand command) {
-        UndoableAction action = new UndoableAction() {
-            @Override
-            public void undo() throws CannotUndoException {
-                commandPosition--;
-                try {
-                    command.undo();
-                } catch (Exception ex) {
-                    Logger.getLogger(BinaryIntelliJUndoRedo.class.getName()).log(Level.SEVERE, null, ex);
-                }
-                undoUpdated();
-            }
-
-            @Override
-            public void redo() throws CannotRedoException {
-                commandPosition++;
-                try {
-                    command.redo();
-                } catch (Exception ex) {
-                    Logger.getLogger(BinaryIntelliJUndoRedo.class.getName()).log(Level.SEVERE, null, ex);
-                }
-                undoUpdated();
-            }
-
-            @Nullable
-            @Override
-            public DocumentReference[] getAffectedDocuments() {
-                return new DocumentReference[]{documentReference};
-            }
-
-            @Override
-            public boolean isGlobal() {
-                return false;
-            }
-        };
-        CommandProcessor commandProcessor = CommandProcessor.getInstance();
-        commandProcessor.executeCommand(fileEditor.getProject(), () -> undoManager.undoableActionPerformed(action), command.getType().getClass().getTypeName(), "BinEd");
+    private void commandAdded(BinaryDataUndoableCommand command) {
+        // Commands which were undone are replaced by new command
+        while (commands.size() > commandPosition) {
+            disposeCommand(commands.remove(commands.size() - 1));
+        }
+        if (syncPointPosition > commandPosition) {
+            syncPointPosition = -1;
+        }
 
+        long time = System.currentTimeMillis();
+        boolean coalesce = lastGroup != null && lastGroup.end == commandPosition && syncPointPosition != commandPosition
+                && time - lastCommandTime < COALESCE_TIMEOUT_MS
+                && Objects.equals(commands.get(commandPosition - 1).getType(), command.getType());
+        commands.add(command);
         commandPosition++;
-        undoUpdated();
-        for (BinaryDataUndoRedoChangeListener listener : listeners) {
-            listener.undoChanged();
+        lastCommandTime = time;
+        if (coalesce) {
+            lastGroup.end = commandPosition;
+        } else {
+            CommandGroup group = new CommandGroup(commandPosition - 1, commandPosition);
+            lastGroup = group;
+            CommandProcessor commandProcessor = CommandProcessor.getInstance();
+            commandProcessor.executeCommand(fileEditor.getProject(), () -> undoManager.undoableActionPerformed(group), command.getType().toString(), "BinEd");
         }
-    }
 
-    @Override
-    public void performUndo() {
-        performUndoInt();
         undoUpdated();
     }
 
-    private void performUndoInt() {
-        undoManager.undo(fileEditor);
+    @Override
+    public void performUndo() {
+        if (canUndo()) {
+            undoManager.undo(fileEditor);
+        }
     }
 
     @Override
     public void performRedo() {
-        performRedoInt();
-        undoUpdated();
-    }
-
-    private void performRedoInt() {
-        undoManager.redo(fileEditor);
+        if (canRedo()) {
+            undoManager.redo(fileEditor);
+        }
     }
 
     @Override
     public void performUndo(int count) {
-        for (int i = 0; i < count; i++) {
-            performUndo();
-        }
+        setCommandPosition(commandPosition - count);
     }
 
     @Override
     public void performRedo(int count) {
-        for (int i = 0; i < count; i++) {
-            performRedo();
-        }
+        setCommandPosition(commandPosition + count);
     }
 
     @Override
     public void clear() {
         ((UndoManagerImpl) undoManager).invalidateActionsFor(documentReference);
+        for (BinaryDataUndoableCommand command : commands) {
+            disposeCommand(command);
+        }
+        commands.clear();
         init();
+        undoUpdated();
     }
 
     @Override
     public boolean canUndo() {
-        return undoManager.isUndoAvailable(fileEditor);
+        return commandPosition > 0 && undoManager.isUndoAvailable(fileEditor);
     }
 
     @Override
     public boolean canRedo() {
-        return undoManager.isRedoAvailable(fileEditor);
+        return commandPosition < commands.size() && undoManager.isRedoAvailable(fileEditor);
     }
 
     @Override
@@ -179,7 +171,7 @@ public class BinaryIntelliJUndoRedo implements BinaryDataUndoRedo {
 
     @Override
     public int getCommandsCount() {
-        throw new UnsupportedOperationException();
+        return commands.size();
     }
 
     @Override
@@ -205,19 +197,32 @@ public class BinaryIntelliJUndoRedo implements BinaryDataUndoRedo {
     @Nonnull
     @Override
     public List<BinaryDataCommand> getCommandList() {
-        throw new UnsupportedOperationException();
+        return Collections.unmodifiableList(new ArrayList<>(commands));
     }
 
     /**
      * Performs undo or redo operation to reach given position.
+     * <p>
+     * Undo manager processes whole groups of commands so resulting position
+     * can be behind target position if it's inside of group.
      *
      * @param targetPosition desired position
      */
     public void setCommandPosition(int targetPosition) {
-        if (targetPosition < commandPosition) {
-            performUndo(commandPosition - targetPosition);
-        } else if (targetPosition > commandPosition) {
-            performRedo(targetPosition - commandPosition);
+        // Undo manager may process action of other editor instead, stop when position doesn't change
+        while (targetPosition < commandPosition && canUndo()) {
+            int previousPosition = commandPosition;
+            performUndo();
+            if (commandPosition == previousPosition) {
+                break;
+            }
+        }
+        while (targetPosition > commandPosition && canRedo()) {
+            int previousPosition = commandPosition;
+            performRedo();
+            if (commandPosition == previousPosition) {
+                break;
+            }
         }
     }
 
@@ -227,6 +232,14 @@ public class BinaryIntelliJUndoRedo implements BinaryDataUndoRedo {
         }
     }
 
+    private static void disposeCommand(BinaryDataUndoableCommand command) {
+        try {
+            command.dispose();
+        } catch (Exception ex) {
+            Logger.getLogger(BinaryIntelliJUndoRedo.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
     @Override
     public void addChangeListener(BinaryDataUndoRedoChangeListener listener) {
         listeners.add(listener);
@@ -241,4 +254,89 @@ public class BinaryIntelliJUndoRedo implements BinaryDataUndoRedo {
     public boolean isModified() {
         return commandPosition != syncPointPosition;
     }
+
+    /**
+     * Range of consecutive commands undone and redone as single IDE action.
+     */
+    protected class CommandGroup implements UndoableAction {
+
+        private final int start;
+        private int end;
+
+        public CommandGroup(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public void undo() throws CannotUndoException {
+            for (int index = end - 1; index >= start; index--) {
+                try {
+                    commands.get(index).undo();
+                } catch (Exception ex) {
+                    // Commands already undone are redone so that document is not left partially undone
+                    rollback(index + 1, end, true);
+                    CannotUndoException exception = new CannotUndoException();
+                    exception.initCause(ex);
+                    throw exception;
+                }
+            }
+            commandPosition = start;
+            // Next command has to start new group
+            lastGroup = null;
+            undoUpdated();
+        }
+
+        @Override
+        public void redo() throws CannotRedoException {
+            for (int index = start; index < end; index++) {
+                try {
+                    commands.get(index).redo();
+                } catch (Exception ex) {
+                    rollback(start, index, false);
+                    CannotRedoException exception = new CannotRedoException();
+                    exception.initCause(ex);
+                    throw exception;
+                }
+            }
+            commandPosition = end;
+            lastGroup = null;
+            undoUpdated();
+        }
+
+        /**
+         * Reverts commands of the group which were already processed.
+         *
+         * @param from start index of processed commands
+         * @param to end index of processed commands
+         * @param redo true to redo undone commands, false to undo redone commands
+         */
+        private void rollback(int from, int to, boolean redo) {
+            try {
+                if (redo) {
+                    for (int index = from; index < to; index++) {
+                        commands.get(index).redo();
+                    }
+                } else {
+                    for (int index = to - 1; index >= from; index--) {
+                        commands.get(index).undo();
+                    }
+                }
+            } catch (Exception ex) {
+                Logger.getLogger(BinaryIntelliJUndoRedo.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            undoUpdated();
+        }
+
+        @Nullable
+        @Override
+        public DocumentReference[] getAffectedDocuments() {
+            return new DocumentReference[]{documentReference};
+        }
+
+        @Override
+        public boolean isGlobal() {
+            return false;
+        }
+    }
 }
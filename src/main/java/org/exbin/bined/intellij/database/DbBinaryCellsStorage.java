@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.database;
+
+import com.intellij.database.datagrid.DataGrid;
+import com.intellij.database.datagrid.GridColumn;
+import com.intellij.database.datagrid.GridModel;
+import com.intellij.database.datagrid.GridRow;
+import com.intellij.database.datagrid.ModelIndex;
+import com.intellij.database.run.ui.DataAccessType;
+import com.intellij.openapi.application.ApplicationManager;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Layout of binary values of database cells exported to directory.
+ * <p>
+ * Values are stored either as separate file per cell or concatenated in
+ * single container file with text index of cell offsets.
+ */
+@ParametersAreNonnullByDefault
+public final class DbBinaryCellsStorage {
+
+    public static final String CONTAINER_FILE = "values.bin";
+    public static final String INDEX_FILE = "values.idx";
+    public static final String CELL_FILE_EXTENSION = ".bin";
+    /**
+     * Extension of empty file marking SQL NULL value of cell.
+     */
+    public static final String NULL_FILE_EXTENSION = ".null";
+    /**
+     * Maximum number of cells transferred from or to data grid at once.
+     */
+    public static final int BATCH_SIZE = 256;
+    /**
+     * Maximum size of imported values held in memory at once.
+     */
+    public static final long BATCH_DATA_LIMIT = 16 * 1024 * 1024;
+
+    private DbBinaryCellsStorage() {
+    }
+
+    /**
+     * Returns name of the file for given cell.
+     * <p>
+     * Column index is included so that columns with names differing only in
+     * replaced characters don't share the file.
+     *
+     * @param rowNumber row number
+     * @param columnIndex column model index
+     * @param columnName column name
+     * @return file name
+     */
+    @Nonnull
+    public static String getCellFileName(int rowNumber, int columnIndex, String columnName) {
+        return getCellFilePrefix(rowNumber, columnIndex, columnName) + CELL_FILE_EXTENSION;
+    }
+
+    /**
+     * Returns name of the file marking SQL NULL value of given cell.
+     *
+     * @param rowNumber row number
+     * @param columnIndex column model index
+     * @param columnName column name
+     * @return file name
+     */
+    @Nonnull
+    public static String getNullCellFileName(int rowNumber, int columnIndex, String columnName) {
+        return getCellFilePrefix(rowNumber, columnIndex, columnName) + NULL_FILE_EXTENSION;
+    }
+
+    @Nonnull
+    private static String getCellFilePrefix(int rowNumber, int columnIndex, String columnName) {
+        return "row" + rowNumber + "_col" + columnIndex + "_" + columnName.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    @Nonnull
+    public static String getCellKey(int rowNumber, String columnName) {
+        return rowNumber + "\t" + columnName;
+    }
+
+    /**
+     * Writes index line for cell stored in container.
+     *
+     * @param writer index writer
+     * @param rowNumber row number
+     * @param columnName column name
+     * @param offset offset of value in container
+     * @param length length of value or -1 for null value
+     * @throws IOException if writing fails
+     */
+    public static void writeIndexEntry(Writer writer, int rowNumber, String columnName, long offset, long length) throws IOException {
+        writer.write(rowNumber + "\t" + offset + "\t" + length + "\t" + columnName.replace('\t', ' ').replace('\n', ' ') + "\n");
+    }
+
+    /**
+     * Reads container index.
+     *
+     * @param indexFile index file
+     * @return entries by cell key
+     * @throws IOException if index cannot be read
+     */
+    @Nonnull
+    public static Map<String, IndexEntry> readIndex(Path indexFile) throws IOException {
+        Map<String, IndexEntry> entries = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", 4);
+                if (parts.length != 4) {
+                    continue;
+                }
+                try {
+                    int rowNumber = Integer.parseInt(parts[0]);
+                    entries.put(getCellKey(rowNumber, parts[3]), new IndexEntry(Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+                } catch (NumberFormatException ex) {
+                    throw new IOException("Invalid index line: " + line, ex);
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns cell key with tab and new line characters replaced in the same
+     * way as in the index.
+     *
+     * @param rowNumber row number
+     * @param columnName column name
+     * @return cell key
+     */
+    @Nonnull
+    public static String getIndexCellKey(int rowNumber, String columnName) {
+        return getCellKey(rowNumber, columnName.replace('\t', ' ').replace('\n', ' '));
+    }
+
+    /**
+     * Reads batch of selected cells from data grid in dispatch thread.
+     * <p>
+     * Cells are ordered by rows first.
+     *
+     * @param grid data grid
+     * @param rows selected row model indices
+     * @param columns selected column model indices
+     * @param batchStart index of the first cell of the batch
+     * @return cells of the batch
+     */
+    @Nonnull
+    public static List<GridCell> fetchCells(DataGrid grid, int[] rows, int[] columns, int batchStart) {
+        List<GridCell> batch = new ArrayList<>(BATCH_SIZE);
+        ApplicationManager.getApplication().invokeAndWait(() -> {
+            GridModel<GridRow, GridColumn> dataModel = grid.getDataModel(DataAccessType.DATA_WITH_MUTATIONS);
+            long batchEnd = Math.min(batchStart + BATCH_SIZE, (long) rows.length * columns.length);
+            for (int index = batchStart; index < batchEnd; index++) {
+                int rowIndex = rows[index / columns.length];
+                int columnIndex = columns[index % columns.length];
+                GridRow row = dataModel.getRow(ModelIndex.forRow(grid, rowIndex));
+                GridColumn column = dataModel.getColumn(ModelIndex.forColumn(grid, columnIndex));
+                if (row == null || column == null) {
+                    continue;
+                }
+                Object value = column.getValue(row);
+                boolean binaryType = DbBinaryValues.isBinaryType(grid, column, dataModel.getValueAt(ModelIndex.forRow(grid, rowIndex), ModelIndex.forColumn(grid, columnIndex)));
+                batch.add(new GridCell(rowIndex, columnIndex, row.getRowNum(), column.getName(), value, binaryType));
+            }
+        });
+        return batch;
+    }
+
+    /**
+     * Cell of data grid with its value.
+     */
+    public static final class GridCell {
+
+        private final int rowIndex;
+        private final int columnIndex;
+        private final int rowNumber;
+        private final String columnName;
+        private final Object value;
+        private final boolean binaryType;
+
+        public GridCell(int rowIndex, int columnIndex, int rowNumber, String columnName, @Nullable Object value, boolean binaryType) {
+            this.rowIndex = rowIndex;
+            this.columnIndex = columnIndex;
+            this.rowNumber = rowNumber;
+            this.columnName = columnName;
+            this.value = value;
+            this.binaryType = binaryType;
+        }
+
+        public int getRowIndex() {
+            return rowIndex;
+        }
+
+        public int getColumnIndex() {
+            return columnIndex;
+        }
+
+        public int getRowNumber() {
+            return rowNumber;
+        }
+
+        @Nonnull
+        public String getColumnName() {
+            return columnName;
+        }
+
+        @Nullable
+        public Object getValue() {
+            return value;
+        }
+
+        /**
+         * Returns true if column of the cell stores binary values.
+         *
+         * @return true for binary and BLOB columns
+         */
+        public boolean isBinaryType() {
+            return binaryType;
+        }
+
+        /**
+         * Returns true if cell contains SQL NULL value.
+         *
+         * @return true for null value
+         */
+        public boolean isNull() {
+            return value == null;
+        }
+
+        /**
+         * Returns true if cell contains binary value which can be transferred.
+         *
+         * @return true if value is supported
+         */
+        public boolean isSupported() {
+            return DbBinaryValues.isStreamable(value);
+        }
+    }
+
+    /**
+     * Position of cell value in container.
+     */
+    public static final class IndexEntry {
+
+        private final long offset;
+        private final long length;
+
+        public IndexEntry(long offset, long length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Returns length of value or -1 for null value.
+         *
+         * @return length
+         */
+        public long getLength() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.database;
+
+import com.intellij.database.datagrid.DataGrid;
+import com.intellij.database.datagrid.DataGridListener;
+import com.intellij.database.datagrid.GridRequestSource;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import org.exbin.bined.intellij.database.gui.DbBinaryPreviewPanel;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * Tool window showing binary preview of cell selected in data grid.
+ */
+@ParametersAreNonnullByDefault
+public class DbBinaryPreviewToolWindowFactory implements ToolWindowFactory, DumbAware {
+
+    @Override
+    public void createToolWindowContent(Project project, ToolWindow toolWindow) {
+        DbBinaryPreviewPanel previewPanel = new DbBinaryPreviewPanel();
+        Content content = ContentFactory.getInstance().createContent(previewPanel, null, false);
+        toolWindow.getContentManager().addContent(content);
+
+        project.getMessageBus().connect(toolWindow.getDisposable()).subscribe(DataGridListener.TOPIC, new DataGridListener() {
+            @Override
+            public void onSelectionChanged(DataGrid dataGrid) {
+                if (toolWindow.isVisible()) {
+                    previewPanel.showSelectedCell(dataGrid);
+                }
+            }
+
+            @Override
+            public void onContentChanged(DataGrid dataGrid, @Nullable GridRequestSource.RequestPlace place) {
+                valuesChanged(dataGrid);
+            }
+
+            @Override
+            public void onValueEdited(DataGrid dataGrid, @Nullable Object object) {
+                valuesChanged(dataGrid);
+            }
+
+            private void valuesChanged(DataGrid dataGrid) {
+                // Cached previews might not match current values anymore
+                previewPanel.clearCache(dataGrid);
+                if (toolWindow.isVisible()) {
+                    previewPanel.showSelectedCell(dataGrid);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.database;
+
+import com.intellij.database.datagrid.DataGrid;
+import com.intellij.database.datagrid.DataGridListener;
+import com.intellij.database.datagrid.DataGridUtil;
+import com.intellij.database.datagrid.GridColumn;
+import com.intellij.database.datagrid.GridModel;
+import com.intellij.database.datagrid.GridRequestSource;
+import com.intellij.database.datagrid.GridRow;
+import com.intellij.database.datagrid.ModelIndex;
+import com.intellij.database.extractors.ExtractorsUtil;
+import com.intellij.database.extractors.TextInfo;
+import com.intellij.database.remote.jdbc.LobInfo;
+import com.intellij.database.run.ui.DataAccessType;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.util.Disposer;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.auxiliary.binary_data.paged.PagedData;
+import org.exbin.bined.intellij.utils.PagedDataOutputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.sql.Types;
+import java.util.Arrays;
+
+/**
+ * Streaming access to binary values of database cells.
+ * <p>
+ * Large values are transferred in chunks, so that they are never copied
+ * into single array.
+ */
+@ParametersAreNonnullByDefault
+public final class DbBinaryValues {
+
+    public static final int TRANSFER_CHUNK_SIZE = 64 * 1024;
+    /**
+     * Size limit for values set to cell as array, larger values are passed
+     * as file.
+     */
+    public static final long ARRAY_VALUE_LIMIT = 16 * 1024 * 1024;
+
+    private DbBinaryValues() {
+    }
+
+    /**
+     * Returns true if column stores binary values.
+     *
+     * @param grid data grid
+     * @param column column
+     * @param value cell value
+     * @return true for binary and BLOB columns
+     */
+    public static boolean isBinaryType(DataGrid grid, GridColumn column, @Nullable Object value) {
+        // CoreGridCellEditorHelper.get(grid).guessJdbcTypeForEditing() is obsolete
+        switch (ExtractorsUtil.guessJdbcType(column, value, DataGridUtil.getDbms(grid))) {
+            case Types.LONGVARBINARY:
+            case Types.VARBINARY:
+            case Types.BINARY:
+            case Types.BLOB:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns true if value is binary value supported for streaming.
+     * <p>
+     * Large objects are provided by data grid as {@link LobInfo}, values
+     * truncated by the grid are not supported as the rest of data is not
+     * available.
+     *
+     * @param value cell value
+     * @return true if supported
+     */
+    public static boolean isStreamable(@Nullable Object value) {
+        if (value instanceof LobInfo.FileBlobInfo) {
+            return true;
+        }
+        if (value instanceof LobInfo.BlobInfo) {
+            return !((LobInfo.BlobInfo) value).isTruncated();
+        }
+        return value instanceof byte[] || value instanceof TextInfo;
+    }
+
+    /**
+     * Returns true if value is large object which was loaded only partially.
+     *
+     * @param value cell value
+     * @return true if truncated
+     */
+    public static boolean isTruncated(@Nullable Object value) {
+        return value instanceof LobInfo.BlobInfo && !(value instanceof LobInfo.FileBlobInfo) && ((LobInfo.BlobInfo) value).isTruncated();
+    }
+
+    /**
+     * Returns size of binary value or -1 if not known.
+     *
+     * @param value cell value
+     * @return size in bytes
+     */
+    public static long getValueSize(@Nullable Object value) {
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        } else if (value instanceof TextInfo) {
+            return ((TextInfo) value).bytes.length;
+        } else if (value instanceof LobInfo.FileBlobInfo) {
+            return ((LobInfo.FileBlobInfo) value).file.length();
+        } else if (value instanceof LobInfo.BlobInfo) {
+            return ((LobInfo.BlobInfo) value).length;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads binary value into paged data.
+     *
+     * @param value cell value
+     * @param cancelCheck cancel check invoked for each chunk
+     * @return paged data
+     * @throws IOException if value is not binary or reading fails
+     */
+    @Nonnull
+    public static PagedData readValue(Object value, Runnable cancelCheck) throws IOException {
+        PagedDataOutputStream outputStream = new PagedDataOutputStream();
+        writeValue(value, outputStream, cancelCheck);
+        return outputStream.getData();
+    }
+
+    /**
+     * Reads beginning of binary value.
+     *
+     * @param value cell value
+     * @param limit maximum number of bytes
+     * @return prefix of value data
+     * @throws IOException if value is not binary or reading fails
+     */
+    @Nonnull
+    public static byte[] readPrefix(@Nullable Object value, int limit) throws IOException {
+        if (value == null) {
+            return new byte[0];
+        }
+
+        byte[] data;
+        if (value instanceof byte[]) {
+            data = (byte[]) value;
+        } else if (value instanceof TextInfo) {
+            data = ((TextInfo) value).bytes;
+        } else if (value instanceof LobInfo.FileBlobInfo) {
+            try (InputStream stream = Files.newInputStream(((LobInfo.FileBlobInfo) value).file.toPath())) {
+                return stream.readNBytes(limit);
+            }
+        } else if (value instanceof LobInfo.BlobInfo) {
+            data = ((LobInfo.BlobInfo) value).data;
+        } else {
+            throw new IOException("Unsupported value type: " + value.getClass().getName());
+        }
+        return data.length <= limit ? data : Arrays.copyOf(data, limit);
+    }
+
+    /**
+     * Writes binary value of cell to output stream.
+     *
+     * @param value cell value
+     * @param outputStream output stream
+     * @param cancelCheck cancel check invoked for each chunk
+     * @throws IOException if value is not binary or transfer fails
+     */
+    public static void writeValue(@Nullable Object value, OutputStream outputStream, Runnable cancelCheck) throws IOException {
+        if (value == null) {
+            return;
+        }
+
+        if (value instanceof byte[]) {
+            outputStream.write((byte[]) value);
+        } else if (value instanceof TextInfo) {
+            outputStream.write(((TextInfo) value).bytes);
+        } else if (value instanceof LobInfo.FileBlobInfo) {
+            try (InputStream stream = Files.newInputStream(((LobInfo.FileBlobInfo) value).file.toPath())) {
+                byte[] buffer = new byte[TRANSFER_CHUNK_SIZE];
+                int length;
+                while ((length = stream.read(buffer)) > 0) {
+                    cancelCheck.run();
+                    outputStream.write(buffer, 0, length);
+                }
+            }
+        } else if (value instanceof LobInfo.BlobInfo) {
+            if (isTruncated(value)) {
+                throw new IOException("Value was not fully loaded");
+            }
+            outputStream.write(((LobInfo.BlobInfo) value).data);
+        } else {
+            throw new IOException("Unsupported value type: " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * Writes binary data to output stream in chunks.
+     *
+     * @param data binary data
+     * @param outputStream output stream
+     * @param cancelCheck cancel check invoked for each chunk
+     * @throws IOException if writing fails
+     */
+    public static void writeData(BinaryData data, OutputStream outputStream, Runnable cancelCheck) throws IOException {
+        long dataSize = data.getDataSize();
+        byte[] buffer = new byte[(int) Math.min(TRANSFER_CHUNK_SIZE, dataSize)];
+        long position = 0;
+        while (position < dataSize) {
+            cancelCheck.run();
+            int length = (int) Math.min(buffer.length, dataSize - position);
+            data.copyToArray(position, buffer, 0, length);
+            outputStream.write(buffer, 0, length);
+            position += length;
+        }
+    }
+
+    /**
+     * Returns true if data are passed to BLOB column as file.
+     *
+     * @param data binary data
+     * @param blobType true if column accepts file as value
+     * @return true for large data of BLOB columns
+     */
+    public static boolean isFileValue(BinaryData data, boolean blobType) {
+        return isFileValue(data.getDataSize(), blobType);
+    }
+
+    /**
+     * Returns true if value of given size is passed to BLOB column as file.
+     *
+     * @param dataSize size of data
+     * @param blobType true if column accepts file as value
+     * @return true for large data of BLOB columns
+     */
+    public static boolean isFileValue(long dataSize, boolean blobType) {
+        return blobType && dataSize > ARRAY_VALUE_LIMIT;
+    }
+
+    /**
+     * Creates array value for cell from binary data.
+     *
+     * @param data binary data
+     * @return cell value
+     * @throws IOException if data are too large for array
+     */
+    @Nonnull
+    public static byte[] createArrayValue(BinaryData data) throws IOException {
+        long dataSize = data.getDataSize();
+        if (dataSize > Integer.MAX_VALUE - 8) {
+            throw new IOException("Data are too large for cell value: " + dataSize);
+        }
+        byte[] resultData = new byte[(int) dataSize];
+        if (dataSize > 0) {
+            data.copyToArray(0, resultData, 0, (int) dataSize);
+        }
+        return resultData;
+    }
+
+    /**
+     * Creates file value for BLOB cell from binary data.
+     * <p>
+     * Data are written to temporary file which is streamed to database when
+     * changes are submitted, see {@link #deleteWhenReleased}.
+     *
+     * @param data binary data
+     * @param cancelCheck cancel check invoked for each chunk
+     * @return cell value
+     * @throws IOException if temporary file cannot be written
+     */
+    @Nonnull
+    public static LobInfo.FileBlobInfo createFileValue(BinaryData data, Runnable cancelCheck) throws IOException {
+        File file = Files.createTempFile("bined-blob", ".bin").toFile();
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(file.toPath()))) {
+            writeData(data, outputStream, cancelCheck);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(file.toPath());
+            throw ex;
+        }
+        return new LobInfo.FileBlobInfo(file);
+    }
+
+    /**
+     * Deletes temporary file of the value once none of the given cells holds
+     * the value anymore, which happens when the changes are submitted or
+     * reverted, or when the grid is disposed.
+     *
+     * @param grid data grid
+     * @param rows model indices of rows
+     * @param columns model indices of columns
+     * @param value file value set to the cells
+     */
+    public static void deleteWhenReleased(DataGrid grid, int[] rows, int[] columns, LobInfo.FileBlobInfo value) {
+        Disposable valueDisposable = Disposer.newDisposable(grid, "BinEd temporary cell value");
+        Disposer.register(valueDisposable, () -> {
+            if (!value.file.delete() && value.file.exists()) {
+                value.file.deleteOnExit();
+            }
+        });
+        grid.getProject().getMessageBus().connect(valueDisposable).subscribe(DataGridListener.TOPIC, new DataGridListener() {
+            @Override
+            public void onContentChanged(DataGrid dataGrid, @Nullable GridRequestSource.RequestPlace place) {
+                if (dataGrid == grid && !isValueHeld(grid, rows, columns, value)) {
+                    Disposer.dispose(valueDisposable);
+                }
+            }
+        });
+    }
+
+    private static boolean isValueHeld(DataGrid grid, int[] rows, int[] columns, Object value) {
+        GridModel<GridRow, GridColumn> dataModel = grid.getDataModel(DataAccessType.DATA_WITH_MUTATIONS);
+        for (int row : rows) {
+            for (int column : columns) {
+                if (dataModel.getValueAt(ModelIndex.forRow(grid, row), ModelIndex.forColumn(grid, column)) == value) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.database;
+
+import com.intellij.database.datagrid.DataGrid;
+import com.intellij.database.datagrid.GridRow;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of previews of binary cell values.
+ * <p>
+ * Entries are keyed by grid and row instance, so that rows of reloaded grid
+ * are not matched, least recently used entries are dropped. Entries of grid
+ * have to be cleared when values of the grid are changed.
+ */
+@ParametersAreNonnullByDefault
+public class DbCellPreviewCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+
+    private final Map<CellKey, Preview> previews;
+
+    public DbCellPreviewCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public DbCellPreviewCache(int maxEntries) {
+        previews = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CellKey, Preview> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Nullable
+    public synchronized Preview get(DataGrid grid, GridRow row, String columnName) {
+        return previews.get(new CellKey(grid, row, columnName));
+    }
+
+    public synchronized void put(DataGrid grid, GridRow row, String columnName, Preview preview) {
+        previews.put(new CellKey(grid, row, columnName), preview);
+    }
+
+    /**
+     * Drops previews of cells of given grid.
+     *
+     * @param grid data grid
+     */
+    public synchronized void clear(DataGrid grid) {
+        previews.keySet().removeIf(key -> key.grid == grid);
+    }
+
+    /**
+     * Beginning of cell value with its full size.
+     */
+    public static final class Preview {
+
+        private final byte[] data;
+        private final long valueSize;
+
+        public Preview(byte[] data, long valueSize) {
+            this.data = data;
+            this.valueSize = valueSize;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        /**
+         * Returns size of whole value or -1 if not known.
+         *
+         * @return size in bytes
+         */
+        public long getValueSize() {
+            return valueSize;
+        }
+    }
+
+    private static final class CellKey {
+
+        private final DataGrid grid;
+        private final GridRow row;
+        private final String columnName;
+
+        public CellKey(DataGrid grid, GridRow row, String columnName) {
+            this.grid = grid;
+            this.row = row;
+            this.columnName = columnName;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            CellKey that = (CellKey) o;
+            return grid == that.grid && row == that.row && columnName.equals(that.columnName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(grid) + System.identityHashCode(row)) + columnName.hashCode();
+        }
+    }
+}
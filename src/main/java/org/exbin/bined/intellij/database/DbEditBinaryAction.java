@@ -20,9 +20,10 @@ import com.intellij.database.datagrid.DataGridUtil;
 import com.intellij.database.datagrid.GridColumn;
 import com.intellij.database.datagrid.GridModel;
 import com.intellij.database.datagrid.GridRow;
+import com.intellij.database.datagrid.ModelIndexSet;
 import com.intellij.database.datagrid.SelectionModel;
-import com.intellij.database.extractors.ExtractorsUtil;
 import com.intellij.database.extractors.TextInfo;
+import com.intellij.database.remote.jdbc.LobInfo;
 import com.intellij.database.run.actions.GridAction;
 import com.intellij.database.run.ui.DataAccessType;
 import com.intellij.openapi.actionSystem.ActionUpdateThread;
@@ -30,6 +31,9 @@ import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.Presentation;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.DumbAware;
 import com.intellij.openapi.project.Project;
 import org.exbin.auxiliary.binary_data.BinaryData;
@@ -43,6 +47,7 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.annotation.Nonnull;
 import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
 import java.util.Objects;
 import java.util.ResourceBundle;
 import java.util.logging.Level;
@@ -77,19 +82,41 @@ public class DbEditBinaryAction extends AnAction implements DumbAware, GridActio
             GridRow row = Objects.requireNonNull(dataModel.getRow(selectionModel.getSelectedRow()));
             Object value = column.getValue(row);
 
-            boolean isBlobType;
-            // CoreGridCellEditorHelper.get(grid).guessJdbcTypeForEditing() is obsolete
-            switch (ExtractorsUtil.guessJdbcType(column,
-                    dataModel.getValueAt(selectionModel.getSelectedRow(), selectionModel.getSelectedColumn()),
-                    DataGridUtil.getDbms(grid))) {
-            case -4:
-            case -3:
-            case -2:
-            case 2004:
-                isBlobType = true;
-                break;
-            default:
-                isBlobType = false;
+            boolean isBlobType = DbBinaryValues.isBinaryType(grid, column,
+                    dataModel.getValueAt(selectionModel.getSelectedRow(), selectionModel.getSelectedColumn()));
+
+            Project project = grid.getProject();
+            if (DbBinaryValues.isTruncated(value)) {
+                // Only loaded part of large object is available, editing it would drop the rest
+                ApplicationManager.getApplication().invokeLater(() -> showDataDialog(grid, new ByteArrayData(((LobInfo.BlobInfo) value).data), isBlobType));
+                return;
+            }
+
+            if (value instanceof LobInfo.BlobInfo) {
+                // Large objects are read using stream in background
+                ProgressManager.getInstance().run(new Task.Backgroundable(project, "Reading binary value", true) {
+                    private BinaryData binaryData;
+                    private IOException failure;
+
+                    @Override
+                    public void run(ProgressIndicator indicator) {
+                        try {
+                            binaryData = DbBinaryValues.readValue(value, indicator::checkCanceled);
+                        } catch (IOException ex) {
+                            failure = ex;
+                        }
+                    }
+
+                    @Override
+                    public void onSuccess() {
+                        if (failure != null) {
+                            Logger.getLogger(DbEditBinaryAction.class.getName()).log(Level.SEVERE, "Unable to read value", failure);
+                            return;
+                        }
+                        showDataDialog(grid, binaryData, isBlobType);
+                    }
+                });
+                return;
             }
 
             BinaryData binaryData;
@@ -104,37 +131,63 @@ public class DbEditBinaryAction extends AnAction implements DumbAware, GridActio
             }
 
             if (binaryData != null) {
-                Project project = grid.getProject();
-                ApplicationManager.getApplication().invokeLater(() -> {
-                    DataDialog.SetDataListener setDataListener = new DataDialog.SetDataListener() {
+                ApplicationManager.getApplication().invokeLater(() -> showDataDialog(grid, binaryData, isBlobType));
+            }
+        }
+    }
+
+    private static void showDataDialog(DataGrid grid, BinaryData binaryData, boolean isBlobType) {
+        DataDialog.SetDataListener setDataListener = new DataDialog.SetDataListener() {
+            @Override
+            public void setData(@Nullable BinaryData contentData) {
+                SelectionModel<GridRow, GridColumn> selectionModel = grid.getSelectionModel();
+                int[] rows = selectionModel.getSelectedRows().asArray();
+                int[] columns = selectionModel.getSelectedColumns().asArray();
+                grid.cancelEditing();
+                if (contentData != null && DbBinaryValues.isFileValue(contentData, isBlobType)) {
+                    // Large data are written to temporary file in background
+                    ProgressManager.getInstance().run(new Task.Backgroundable(grid.getProject(), "Writing binary value", true) {
+                        private LobInfo.FileBlobInfo fileValue;
+                        private IOException failure;
+
                         @Override
-                        public void setData(@Nullable BinaryData contentData) {
+                        public void run(ProgressIndicator indicator) {
                             try {
-                                SelectionModel<GridRow, GridColumn> selectionModel = grid.getSelectionModel();
-                                grid.cancelEditing();
-                                int size = contentData != null ? (int) contentData.getDataSize() : 0;
-                                byte[] resultData = new byte[size];
-                                if (size > 0) {
-                                    contentData.copyToArray(0, resultData, 0, size);
-                                }
-                                grid.setCells(
-                                        selectionModel.getSelectedRows(),
-                                        selectionModel.getSelectedColumns(),
-                                        resultData
-                                );
-                            } catch (Exception ex) {
-                                Logger.getLogger(DbEditBinaryAction.class.getName()).log(Level.SEVERE, "Unable to set value", ex);
+                                fileValue = DbBinaryValues.createFileValue(contentData, indicator::checkCanceled);
+                            } catch (IOException ex) {
+                                failure = ex;
                             }
                         }
-                    };
-                    DataDialog dialog = new DataDialog(project, setDataListener, binaryData);
-                    boolean editable = binaryData instanceof EditableBinaryData;
-                    ResourceBundle resourceBundle = dialog.getResourceBundle();
-                    dialog.setTitle(editable ? resourceBundle.getString("dialog.title.edit") : resourceBundle.getString("dialog.title"));
-                    dialog.show();
-                });
+
+                        @Override
+                        public void onSuccess() {
+                            if (failure != null) {
+                                Logger.getLogger(DbEditBinaryAction.class.getName()).log(Level.SEVERE, "Unable to set value", failure);
+                                return;
+                            }
+                            setCells(grid, rows, columns, fileValue);
+                            DbBinaryValues.deleteWhenReleased(grid, rows, columns, fileValue);
+                        }
+                    });
+                    return;
+                }
+
+                try {
+                    setCells(grid, rows, columns, contentData != null ? DbBinaryValues.createArrayValue(contentData) : new byte[0]);
+                } catch (Exception ex) {
+                    Logger.getLogger(DbEditBinaryAction.class.getName()).log(Level.SEVERE, "Unable to set value", ex);
+                }
             }
-        }
+        };
+        DataDialog dialog = new DataDialog(grid.getProject(), setDataListener, binaryData);
+        boolean editable = binaryData instanceof EditableBinaryData;
+        ResourceBundle resourceBundle = dialog.getResourceBundle();
+        dialog.setTitle(editable ? resourceBundle.getString("dialog.title.edit") : resourceBundle.getString("dialog.title"));
+        dialog.show();
+    }
+
+    private static void setCells(DataGrid grid, int[] rows, int[] columns, Object value) {
+        grid.setCells(ModelIndexSet.forRows(grid, rows), ModelIndexSet.forColumns(grid, columns), value);
     }
 
     @Override
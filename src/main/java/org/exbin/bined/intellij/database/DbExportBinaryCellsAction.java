@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.database;
+
+import com.intellij.database.datagrid.DataGrid;
+import com.intellij.database.datagrid.DataGridUtil;
+import com.intellij.database.datagrid.GridColumn;
+import com.intellij.database.datagrid.GridRow;
+import com.intellij.database.datagrid.SelectionModel;
+import com.intellij.database.run.actions.GridAction;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.Presentation;
+import com.intellij.openapi.fileChooser.FileChooser;
+import com.intellij.openapi.fileChooser.FileChooserDescriptor;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.exbin.bined.intellij.BinEdPluginStartupActivity;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Export binary values of selected database cells to files action.
+ */
+@ParametersAreNonnullByDefault
+public class DbExportBinaryCellsAction extends AnAction implements DumbAware, GridAction {
+
+    private static final int FORMAT_SEPARATE_FILES = 0;
+    private static final int FORMAT_CONTAINER = 1;
+
+    private boolean actionVisible = true;
+
+    public DbExportBinaryCellsAction() {
+        BinEdPluginStartupActivity.addIntegrationOptionsListener(integrationOptions -> actionVisible =
+                integrationOptions.isRegisterEditAsBinaryForDbColumn());
+    }
+
+    @Nonnull
+    @Override
+    public ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void actionPerformed(AnActionEvent event) {
+        DataGrid grid = DataGridUtil.getDataGrid(event.getDataContext());
+        if (grid == null) {
+            return;
+        }
+
+        Project project = grid.getProject();
+        int format = Messages.showDialog(project, "Store values of selected cells as separate files or as single file with index?",
+                "Export Binary Values", new String[]{"Separate Files", "Single Container", Messages.getCancelButton()}, FORMAT_SEPARATE_FILES, Messages.getQuestionIcon());
+        if (format != FORMAT_SEPARATE_FILES && format != FORMAT_CONTAINER) {
+            return;
+        }
+
+        FileChooserDescriptor chooserDescriptor = new FileChooserDescriptor(false, true, false, false, false, false);
+        VirtualFile targetDirectory = FileChooser.chooseFile(chooserDescriptor, project, null);
+        if (targetDirectory == null) {
+            return;
+        }
+
+        SelectionModel<GridRow, GridColumn> selectionModel = grid.getSelectionModel();
+        int[] rows = selectionModel.getSelectedRows().asArray();
+        int[] columns = selectionModel.getSelectedColumns().asArray();
+        Path targetPath = targetDirectory.toNioPath();
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Exporting binary values", true) {
+            private IOException failure;
+            private int exportedCount = 0;
+            private int skippedCount = 0;
+
+            @Override
+            public void run(ProgressIndicator indicator) {
+                indicator.setIndeterminate(false);
+                long cellsCount = (long) rows.length * columns.length;
+                try {
+                    if (format == FORMAT_CONTAINER) {
+                        try (OutputStream containerStream = new BufferedOutputStream(Files.newOutputStream(targetPath.resolve(DbBinaryCellsStorage.CONTAINER_FILE)));
+                             Writer indexWriter = Files.newBufferedWriter(targetPath.resolve(DbBinaryCellsStorage.INDEX_FILE), StandardCharsets.UTF_8)) {
+                            long offset = 0;
+                            for (int batchStart = 0; batchStart < cellsCount; batchStart += DbBinaryCellsStorage.BATCH_SIZE) {
+                                for (DbBinaryCellsStorage.GridCell cell : DbBinaryCellsStorage.fetchCells(grid, rows, columns, batchStart)) {
+                                    indicator.checkCanceled();
+                                    exportedCount++;
+                                    if (!cell.isNull() && !cell.isSupported()) {
+                                        // Unsupported value is left out of the index, length -1 marks SQL NULL only
+                                        skippedCount++;
+                                        continue;
+                                    }
+                                    long length = -1;
+                                    if (!cell.isNull()) {
+                                        CountingOutputStream countingStream = new CountingOutputStream(containerStream);
+                                        DbBinaryValues.writeValue(cell.getValue(), countingStream, indicator::checkCanceled);
+                                        length = countingStream.count;
+                                    }
+                                    DbBinaryCellsStorage.writeIndexEntry(indexWriter, cell.getRowNumber(), cell.getColumnName(), offset, length);
+                                    offset += Math.max(length, 0);
+                                }
+                                indicator.setFraction((double) exportedCount / cellsCount);
+                            }
+                        }
+                    } else {
+                        for (int batchStart = 0; batchStart < cellsCount; batchStart += DbBinaryCellsStorage.BATCH_SIZE) {
+                            for (DbBinaryCellsStorage.GridCell cell : DbBinaryCellsStorage.fetchCells(grid, rows, columns, batchStart)) {
+                                indicator.checkCanceled();
+                                if (cell.isNull()) {
+                                    // Empty marker file keeps SQL NULL distinct from empty value
+                                    Files.write(targetPath.resolve(DbBinaryCellsStorage.getNullCellFileName(cell.getRowNumber(), cell.getColumnIndex(), cell.getColumnName())), new byte[0]);
+                                } else if (!cell.isSupported()) {
+                                    skippedCount++;
+                                } else {
+                                    Path cellFile = targetPath.resolve(DbBinaryCellsStorage.getCellFileName(cell.getRowNumber(), cell.getColumnIndex(), cell.getColumnName()));
+                                    try (OutputStream cellStream = new BufferedOutputStream(Files.newOutputStream(cellFile))) {
+                                        DbBinaryValues.writeValue(cell.getValue(), cellStream, indicator::checkCanceled);
+                                    }
+                                }
+                                exportedCount++;
+                            }
+                            indicator.setFraction((double) exportedCount / cellsCount);
+                        }
+                    }
+                } catch (IOException ex) {
+                    failure = ex;
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                if (failure != null) {
+                    Messages.showErrorDialog(project, failure.getMessage(), "Unable to Export Binary Values");
+                } else if (skippedCount > 0) {
+                    Messages.showWarningDialog(project, skippedCount + " cell(s) were skipped as their values are not binary or were not fully loaded.", "Export Binary Values");
+                }
+                targetDirectory.refresh(true, false);
+            }
+        });
+    }
+
+    @Override
+    public void update(AnActionEvent event) {
+        Presentation presentation = event.getPresentation();
+        presentation.setVisible(actionVisible);
+        if (actionVisible) {
+            boolean enabled = false;
+            DataGrid grid = DataGridUtil.getDataGrid(event.getDataContext());
+            if (grid != null) {
+                SelectionModel<GridRow, GridColumn> selectionModel = grid.getSelectionModel();
+                enabled = selectionModel.getSelectedColumnCount() > 0 && selectionModel.getSelectedRowCount() > 0;
+            }
+            presentation.setEnabled(enabled);
+        }
+    }
+
+    /**
+     * Output stream counting written bytes without closing underlying stream.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+
+        private final OutputStream outputStream;
+        private long count = 0;
+
+        public CountingOutputStream(OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            outputStream.write(value);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            outputStream.write(data, offset, length);
+            count += length;
+        }
+    }
+}
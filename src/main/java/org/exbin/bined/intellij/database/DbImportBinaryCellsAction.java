@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.database;
+
+import com.intellij.database.datagrid.DataGrid;
+import com.intellij.database.datagrid.DataGridUtil;
+import com.intellij.database.datagrid.GridColumn;
+import com.intellij.database.datagrid.GridRow;
+import com.intellij.database.datagrid.ModelIndexSet;
+import com.intellij.database.datagrid.SelectionModel;
+import com.intellij.database.remote.jdbc.LobInfo;
+import com.intellij.database.run.actions.GridAction;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.Presentation;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.fileChooser.FileChooser;
+import com.intellij.openapi.fileChooser.FileChooserDescriptor;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.exbin.bined.intellij.BinEdPluginStartupActivity;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Import binary values of selected database cells from files action.
+ * <p>
+ * Accepts directory created by {@link DbExportBinaryCellsAction} in either
+ * format, cells without stored value are left unchanged. Large values are
+ * passed to BLOB columns as files.
+ */
+@ParametersAreNonnullByDefault
+public class DbImportBinaryCellsAction extends AnAction implements DumbAware, GridAction {
+
+    private boolean actionVisible = true;
+
+    public DbImportBinaryCellsAction() {
+        BinEdPluginStartupActivity.addIntegrationOptionsListener(integrationOptions -> actionVisible =
+                integrationOptions.isRegisterEditAsBinaryForDbColumn());
+    }
+
+    @Nonnull
+    @Override
+    public ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void actionPerformed(AnActionEvent event) {
+        DataGrid grid = DataGridUtil.getDataGrid(event.getDataContext());
+        if (grid == null) {
+            return;
+        }
+
+        Project project = grid.getProject();
+        FileChooserDescriptor chooserDescriptor = new FileChooserDescriptor(false, true, false, false, false, false);
+        VirtualFile sourceDirectory = FileChooser.chooseFile(chooserDescriptor, project, null);
+        if (sourceDirectory == null) {
+            return;
+        }
+
+        SelectionModel<GridRow, GridColumn> selectionModel = grid.getSelectionModel();
+        int[] rows = selectionModel.getSelectedRows().asArray();
+        int[] columns = selectionModel.getSelectedColumns().asArray();
+        Path sourcePath = sourceDirectory.toNioPath();
+        grid.cancelEditing();
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Importing binary values", true) {
+            private IOException failure;
+
+            @Override
+            public void run(ProgressIndicator indicator) {
+                indicator.setIndeterminate(false);
+                long cellsCount = (long) rows.length * columns.length;
+                Path indexFile = sourcePath.resolve(DbBinaryCellsStorage.INDEX_FILE);
+                List<ImportedValue> pendingValues = new ArrayList<>();
+                long pendingSize = 0;
+                try (FileChannel containerChannel = Files.isRegularFile(indexFile) ? FileChannel.open(sourcePath.resolve(DbBinaryCellsStorage.CONTAINER_FILE), StandardOpenOption.READ) : null) {
+                    Map<String, DbBinaryCellsStorage.IndexEntry> index = containerChannel != null ? DbBinaryCellsStorage.readIndex(indexFile) : null;
+                    for (int batchStart = 0; batchStart < cellsCount; batchStart += DbBinaryCellsStorage.BATCH_SIZE) {
+                        for (DbBinaryCellsStorage.GridCell cell : DbBinaryCellsStorage.fetchCells(grid, rows, columns, batchStart)) {
+                            indicator.checkCanceled();
+                            ImportedValue importedValue = index != null ?
+                                    readContainerValue(containerChannel, index, cell) :
+                                    readFileValue(sourcePath, cell);
+                            if (importedValue == null) {
+                                continue;
+                            }
+                            pendingValues.add(importedValue);
+                            pendingSize += importedValue.size;
+                            if (pendingSize >= DbBinaryCellsStorage.BATCH_DATA_LIMIT) {
+                                setCells(grid, pendingValues);
+                                pendingSize = 0;
+                            }
+                        }
+                        setCells(grid, pendingValues);
+                        pendingSize = 0;
+                        indicator.setFraction(Math.min(batchStart + DbBinaryCellsStorage.BATCH_SIZE, cellsCount) / (double) cellsCount);
+                    }
+                } catch (IOException ex) {
+                    failure = ex;
+                } finally {
+                    // Temporary files of values which were not set are not needed anymore
+                    for (ImportedValue importedValue : pendingValues) {
+                        importedValue.deleteTemporaryFile();
+                    }
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                if (failure != null) {
+                    Messages.showErrorDialog(project, failure.getMessage(), "Unable to Import Binary Values");
+                }
+            }
+        });
+    }
+
+    @Nullable
+    private static ImportedValue readFileValue(Path sourcePath, DbBinaryCellsStorage.GridCell cell) throws IOException {
+        if (Files.isRegularFile(sourcePath.resolve(DbBinaryCellsStorage.getNullCellFileName(cell.getRowNumber(), cell.getColumnIndex(), cell.getColumnName())))) {
+            return new ImportedValue(cell, null, 0, false);
+        }
+
+        Path cellFile = sourcePath.resolve(DbBinaryCellsStorage.getCellFileName(cell.getRowNumber(), cell.getColumnIndex(), cell.getColumnName()));
+        if (!Files.isRegularFile(cellFile)) {
+            return null;
+        }
+
+        long size = Files.size(cellFile);
+        if (DbBinaryValues.isFileValue(size, cell.isBinaryType())) {
+            // Large value is streamed from the file when changes are submitted
+            return new ImportedValue(cell, new LobInfo.FileBlobInfo(cellFile.toFile()), 0, false);
+        }
+        checkArraySize(size);
+        return new ImportedValue(cell, Files.readAllBytes(cellFile), size, false);
+    }
+
+    @Nullable
+    private static ImportedValue readContainerValue(FileChannel containerChannel, Map<String, DbBinaryCellsStorage.IndexEntry> index, DbBinaryCellsStorage.GridCell cell) throws IOException {
+        DbBinaryCellsStorage.IndexEntry entry = index.get(DbBinaryCellsStorage.getIndexCellKey(cell.getRowNumber(), cell.getColumnName()));
+        if (entry == null) {
+            return null;
+        }
+
+        long length = entry.getLength();
+        if (length < 0) {
+            return new ImportedValue(cell, null, 0, false);
+        }
+
+        if (DbBinaryValues.isFileValue(length, cell.isBinaryType())) {
+            Path valueFile = Files.createTempFile("bined-blob", ".bin");
+            try (FileChannel valueChannel = FileChannel.open(valueFile, StandardOpenOption.WRITE)) {
+                long transferred = 0;
+                while (transferred < length) {
+                    long count = containerChannel.transferTo(entry.getOffset() + transferred, length - transferred, valueChannel);
+                    if (count <= 0) {
+                        throw new IOException("Container file is truncated");
+                    }
+                    transferred += count;
+                }
+            } catch (IOException | RuntimeException ex) {
+                Files.deleteIfExists(valueFile);
+                throw ex;
+            }
+            return new ImportedValue(cell, new LobInfo.FileBlobInfo(valueFile.toFile()), 0, true);
+        }
+
+        checkArraySize(length);
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        while (buffer.hasRemaining()) {
+            if (containerChannel.read(buffer, entry.getOffset() + buffer.position()) < 0) {
+                throw new IOException("Container file is truncated");
+            }
+        }
+        return new ImportedValue(cell, buffer.array(), length, false);
+    }
+
+    private static void checkArraySize(long size) throws IOException {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException("Value is too large for cell of non-binary column: " + size);
+        }
+    }
+
+    /**
+     * Sets values to cells in dispatch thread and clears the list.
+     * <p>
+     * Temporary files are deleted once the cells don't hold them anymore.
+     */
+    private static void setCells(DataGrid grid, List<ImportedValue> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+
+        ApplicationManager.getApplication().invokeAndWait(() -> {
+            for (ImportedValue importedValue : values) {
+                int[] rows = {importedValue.cell.getRowIndex()};
+                int[] columns = {importedValue.cell.getColumnIndex()};
+                grid.setCells(ModelIndexSet.forRows(grid, rows), ModelIndexSet.forColumns(grid, columns), importedValue.value);
+                if (importedValue.temporaryFile) {
+                    DbBinaryValues.deleteWhenReleased(grid, rows, columns, (LobInfo.FileBlobInfo) importedValue.value);
+                }
+            }
+        });
+        values.clear();
+    }
+
+    @Override
+    public void update(AnActionEvent event) {
+        Presentation presentation = event.getPresentation();
+        presentation.setVisible(actionVisible);
+        if (actionVisible) {
+            boolean enabled = false;
+            DataGrid grid = DataGridUtil.getDataGrid(event.getDataContext());
+            if (grid != null) {
+                SelectionModel<GridRow, GridColumn> selectionModel = grid.getSelectionModel();
+                enabled = selectionModel.getSelectedColumnCount() > 0 && selectionModel.getSelectedRowCount() > 0;
+            }
+            presentation.setEnabled(enabled);
+        }
+    }
+
+    /**
+     * Value read for the cell.
+     */
+    private static final class ImportedValue {
+
+        private final DbBinaryCellsStorage.GridCell cell;
+        private final Object value;
+        private final long size;
+        private final boolean temporaryFile;
+
+        public ImportedValue(DbBinaryCellsStorage.GridCell cell, @Nullable Object value, long size, boolean temporaryFile) {
+            this.cell = cell;
+            this.value = value;
+            this.size = size;
+            this.temporaryFile = temporaryFile;
+        }
+
+        public void deleteTemporaryFile() {
+            if (temporaryFile) {
+                File file = ((LobInfo.FileBlobInfo) value).file;
+                if (!file.delete() && file.exists()) {
+                    file.deleteOnExit();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.database.gui;
+
+import com.intellij.database.datagrid.DataGrid;
+import com.intellij.database.datagrid.GridColumn;
+import com.intellij.database.datagrid.GridModel;
+import com.intellij.database.datagrid.GridRow;
+import com.intellij.database.datagrid.SelectionModel;
+import com.intellij.database.run.ui.DataAccessType;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.exbin.auxiliary.binary_data.array.ByteArrayData;
+import org.exbin.bined.EditMode;
+import org.exbin.bined.intellij.database.DbBinaryValues;
+import org.exbin.bined.intellij.database.DbCellPreviewCache;
+import org.exbin.bined.jaguif.component.BinEdDataComponent;
+import org.exbin.bined.jaguif.component.gui.BinEdComponentPanel;
+import org.exbin.bined.jaguif.document.BinEdFileManager;
+import org.exbin.bined.jaguif.document.BinedDocumentModule;
+import org.exbin.bined.swing.section.SectCodeArea;
+import org.exbin.jaguif.App;
+import org.exbin.jaguif.language.api.LanguageModuleApi;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import java.awt.BorderLayout;
+import java.io.IOException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Panel showing preview of binary value of selected database cell.
+ * <p>
+ * Only beginning of the value is fetched in background and recent previews
+ * are cached.
+ */
+@ParametersAreNonnullByDefault
+public class DbBinaryPreviewPanel extends JPanel {
+
+    public static final int PREVIEW_SIZE = 64 * 1024;
+
+    private final ResourceBundle resourceBundle = App.getModule(LanguageModuleApi.class).getBundle(DbBinaryPreviewPanel.class);
+    private static final ExecutorService EXECUTOR = AppExecutorUtil.createBoundedApplicationPoolExecutor("BinEd Database Preview", 1);
+
+    private final BinEdDataComponent dataComponent;
+    private final JLabel statusLabel = new JLabel();
+    private final DbCellPreviewCache previewCache = new DbCellPreviewCache();
+    private final AtomicLong currentRequest = new AtomicLong();
+
+    public DbBinaryPreviewPanel() {
+        super(new BorderLayout());
+        dataComponent = new BinEdDataComponent(new BinEdComponentPanel());
+        BinedDocumentModule binedDocumentModule = App.getModule(BinedDocumentModule.class);
+        BinEdFileManager fileManager = binedDocumentModule.getFileManager();
+        fileManager.initDataComponent(dataComponent);
+        SectCodeArea codeArea = (SectCodeArea) dataComponent.getCodeArea();
+        codeArea.setEditMode(EditMode.READ_ONLY);
+
+        add(dataComponent.getComponent(), BorderLayout.CENTER);
+        add(statusLabel, BorderLayout.SOUTH);
+        showStatus(resourceBundle.getString("preview.noCell"));
+    }
+
+    /**
+     * Shows preview of cell selected in given grid.
+     *
+     * @param grid data grid
+     */
+    public void showSelectedCell(DataGrid grid) {
+        long request = currentRequest.incrementAndGet();
+        SelectionModel<GridRow, GridColumn> selectionModel = grid.getSelectionModel();
+        if (selectionModel.getSelectedColumnCount() != 1 || selectionModel.getSelectedRowCount() != 1) {
+            showStatus(resourceBundle.getString("preview.noCell"));
+            return;
+        }
+
+        GridModel<GridRow, GridColumn> dataModel = grid.getDataModel(DataAccessType.DATA_WITH_MUTATIONS);
+        GridRow row = dataModel.getRow(selectionModel.getSelectedRow());
+        GridColumn column = dataModel.getColumn(selectionModel.getSelectedColumn());
+        if (row == null || column == null) {
+            showStatus(resourceBundle.getString("preview.noCell"));
+            return;
+        }
+
+        String columnName = column.getName();
+        DbCellPreviewCache.Preview preview = previewCache.get(grid, row, columnName);
+        if (preview != null) {
+            showPreview(preview);
+            return;
+        }
+
+        Object value = column.getValue(row);
+        // Loaded part of truncated large object is shown as partial preview
+        if (!DbBinaryValues.isStreamable(value) && !DbBinaryValues.isTruncated(value)) {
+            showStatus(resourceBundle.getString(value == null ? "preview.nullValue" : "preview.notBinary"));
+            return;
+        }
+
+        showStatus(resourceBundle.getString("preview.loading"));
+        EXECUTOR.execute(() -> {
+            if (currentRequest.get() != request) {
+                // Selection was already moved to other cell
+                return;
+            }
+
+            try {
+                DbCellPreviewCache.Preview loadedPreview = new DbCellPreviewCache.Preview(DbBinaryValues.readPrefix(value, PREVIEW_SIZE), DbBinaryValues.getValueSize(value));
+                previewCache.put(grid, row, columnName, loadedPreview);
+                SwingUtilities.invokeLater(() -> {
+                    if (currentRequest.get() == request) {
+                        showPreview(loadedPreview);
+                    }
+                });
+            } catch (IOException ex) {
+                Logger.getLogger(DbBinaryPreviewPanel.class.getName()).log(Level.WARNING, "Unable to read cell value", ex);
+                SwingUtilities.invokeLater(() -> {
+                    if (currentRequest.get() == request) {
+                        showStatus(resourceBundle.getString("preview.failed"));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drops cached previews of grid, called when values of grid were changed.
+     *
+     * @param grid data grid
+     */
+    public void clearCache(DataGrid grid) {
+        previewCache.clear(grid);
+    }
+
+    private void showPreview(DbCellPreviewCache.Preview preview) {
+        byte[] data = preview.getData();
+        dataComponent.getCodeArea().setContentData(new ByteArrayData(data));
+        long valueSize = preview.getValueSize();
+        statusLabel.setText(valueSize > data.length ?
+                String.format(resourceBundle.getString("preview.partial"), data.length, valueSize) :
+                String.format(resourceBundle.getString("preview.full"), data.length));
+    }
+
+    private void showStatus(String status) {
+        dataComponent.getCodeArea().setContentData(new ByteArrayData());
+        statusLabel.setText(status);
+    }
+
+    @Nonnull
+    public ResourceBundle getResourceBundle() {
+        return resourceBundle;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.debug;
+
+import org.exbin.bined.jaguif.objectdata.PageProvider;
+import org.exbin.bined.jaguif.objectdata.PageProviderBinaryData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Refreshable page provider caching pages of provider reading live values.
+ * <p>
+ * Pages are kept until refresh, so that changed pages can be detected after
+ * debugger stop.
+ */
+@ParametersAreNonnullByDefault
+public class CachedRefreshablePageProvider implements RefreshablePageProvider {
+
+    private final PageProvider pageProvider;
+    private final DebugPageCache pageCache;
+
+    public CachedRefreshablePageProvider(PageProvider pageProvider) {
+        this.pageProvider = pageProvider;
+        // Pages are read separately as provider has no block access
+        pageCache = new DebugPageCache(pageProvider.getDocumentSize(), 1, DebugPageCache.DEFAULT_MAX_CACHED_PAGES, this::readBlock);
+    }
+
+    @Nonnull
+    @Override
+    public byte[] getPage(long pageIndex) {
+        return pageCache.getPage(pageIndex);
+    }
+
+    @Override
+    public long getDocumentSize() {
+        return pageCache.getDocumentSize();
+    }
+
+    @Nonnull
+    @Override
+    public Map<Long, byte[]> refresh() {
+        return pageCache.refresh();
+    }
+
+    private boolean readBlock(long position, byte[] target) {
+        try {
+            int offset = 0;
+            while (offset < target.length) {
+                byte[] page = pageProvider.getPage((position + offset) / PageProviderBinaryData.PAGE_SIZE);
+                int length = Math.min(page.length, target.length - offset);
+                if (length <= 0) {
+                    return false;
+                }
+                System.arraycopy(page, 0, target, offset, length);
+                offset += length;
+            }
+            return true;
+        } catch (RuntimeException ex) {
+            // Value might not be available anymore, for example when it was collected
+            Logger.getLogger(CachedRefreshablePageProvider.class.getName()).log(Level.WARNING, "Unable to read page at " + position, ex);
+            return false;
+        }
+    }
+}
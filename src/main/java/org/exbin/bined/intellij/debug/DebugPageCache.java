@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.debug;
+
+import org.exbin.auxiliary.binary_data.OutOfBoundsException;
+import org.exbin.bined.jaguif.objectdata.PageProviderBinaryData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Cache of pages fetched from debugger with block read-ahead.
+ * <p>
+ * Missing page is fetched together with following pages which are not cached
+ * yet using single block read, least recently used pages are dropped.
+ * Cached pages can be refreshed when debugged process was resumed.
+ * <p>
+ * Pages which failed to be read are not cached, they are marked as
+ * unreadable and provided as zeroed until next refresh.
+ */
+@ParametersAreNonnullByDefault
+public class DebugPageCache {
+
+    public static final int DEFAULT_READ_AHEAD_PAGES = 16;
+    public static final int DEFAULT_MAX_CACHED_PAGES = 256;
+
+    private final long documentSize;
+    private final int readAheadPages;
+    private final BlockReader blockReader;
+    private final Map<Long, byte[]> pages;
+    private final Set<Long> unreadablePages = new HashSet<>();
+    private PageHashReader pageHashReader = null;
+
+    public DebugPageCache(long documentSize, BlockReader blockReader) {
+        this(documentSize, DEFAULT_READ_AHEAD_PAGES, DEFAULT_MAX_CACHED_PAGES, blockReader);
+    }
+
+    public DebugPageCache(long documentSize, int readAheadPages, int maxCachedPages, BlockReader blockReader) {
+        this.documentSize = documentSize;
+        this.readAheadPages = Math.max(readAheadPages, 1);
+        this.blockReader = blockReader;
+        pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > maxCachedPages;
+            }
+        };
+    }
+
+    @Nonnull
+    public synchronized byte[] getPage(long pageIndex) {
+        byte[] page = pages.get(pageIndex);
+        if (page != null) {
+            return page;
+        }
+
+        if (pageIndex < 0 || pageIndex > documentSize / PageProviderBinaryData.PAGE_SIZE) {
+            throw new OutOfBoundsException();
+        }
+
+        if (unreadablePages.contains(pageIndex)) {
+            return new byte[getPageLength(pageIndex)];
+        }
+
+        long pagesCount = getPagesCount();
+        long endPage = pageIndex + 1;
+        long readAheadLimit = Math.min(pageIndex + readAheadPages, pagesCount);
+        while (endPage < readAheadLimit && !pages.containsKey(endPage) && !unreadablePages.contains(endPage)) {
+            endPage++;
+        }
+
+        byte[][] blockPages = readPages(pageIndex, endPage);
+        if (blockPages == null) {
+            // Pages of failed block are read one by one so that only failing pages are marked
+            for (long index = endPage - 1; index >= pageIndex; index--) {
+                byte[][] singlePage = readPages(index, index + 1);
+                if (singlePage == null) {
+                    unreadablePages.add(index);
+                } else {
+                    pages.put(index, singlePage[0]);
+                }
+            }
+            page = pages.get(pageIndex);
+            return page != null ? page : new byte[getPageLength(pageIndex)];
+        }
+
+        for (int i = blockPages.length - 1; i >= 0; i--) {
+            pages.put(pageIndex + i, blockPages[i]);
+        }
+
+        return blockPages[0];
+    }
+
+    /**
+     * Reads again all cached pages and replaces pages which were changed.
+     * <p>
+     * If page hash reader is available, only pages with different checksum
+     * are transferred.
+     *
+     * @return previous content of changed pages by page index
+     */
+    @Nonnull
+    public synchronized Map<Long, byte[]> refresh() {
+        // Pages which were not readable are attempted again on next access
+        unreadablePages.clear();
+        Map<Long, byte[]> changedPages = new HashMap<>();
+        List<Long> cachedPages = new ArrayList<>(pages.keySet());
+        Collections.sort(cachedPages);
+        int runStart = 0;
+        while (runStart < cachedPages.size()) {
+            int runEnd = runStart + 1;
+            while (runEnd < cachedPages.size() && cachedPages.get(runEnd) == cachedPages.get(runEnd - 1) + 1) {
+                runEnd++;
+            }
+
+            long startPage = cachedPages.get(runStart);
+            long endPage = startPage + (runEnd - runStart);
+            long[] hashes = pageHashReader == null ? null : pageHashReader.readPageHashes(startPage, (int) (endPage - startPage));
+            if (hashes == null || hashes.length != endPage - startPage) {
+                refreshPages(startPage, endPage, changedPages);
+            } else {
+                long staleStart = -1;
+                for (long index = startPage; index <= endPage; index++) {
+                    boolean stale = index < endPage && hashes[(int) (index - startPage)] != computePageHash(pages.get(index));
+                    if (stale && staleStart == -1) {
+                        staleStart = index;
+                    } else if (!stale && staleStart != -1) {
+                        refreshPages(staleStart, index, changedPages);
+                        staleStart = -1;
+                    }
+                }
+            }
+            runStart = runEnd;
+        }
+
+        return changedPages;
+    }
+
+    /**
+     * Returns page if it was already fetched.
+     *
+     * @param pageIndex page index
+     * @return cached page or null
+     */
+    @Nullable
+    public synchronized byte[] getCachedPage(long pageIndex) {
+        return pages.get(pageIndex);
+    }
+
+    public long getDocumentSize() {
+        return documentSize;
+    }
+
+    public synchronized void setPageHashReader(@Nullable PageHashReader pageHashReader) {
+        this.pageHashReader = pageHashReader;
+    }
+
+    public synchronized void clear() {
+        pages.clear();
+        unreadablePages.clear();
+    }
+
+    private void refreshPages(long startPage, long endPage, Map<Long, byte[]> changedPages) {
+        byte[][] blockPages = readPages(startPage, endPage);
+        if (blockPages == null) {
+            if (endPage - startPage > 1) {
+                // Pages of failed block are refreshed one by one
+                for (long index = startPage; index < endPage; index++) {
+                    refreshPages(index, index + 1, changedPages);
+                }
+                return;
+            }
+
+            // Failed page is dropped, so that it's read again on next access
+            byte[] previousPage = pages.remove(startPage);
+            if (previousPage != null) {
+                changedPages.put(startPage, previousPage);
+            }
+            return;
+        }
+
+        for (int i = 0; i < blockPages.length; i++) {
+            long index = startPage + i;
+            byte[] previousPage = pages.put(index, blockPages[i]);
+            if (previousPage != null && !Arrays.equals(previousPage, blockPages[i])) {
+                changedPages.put(index, previousPage);
+            }
+        }
+    }
+
+    /**
+     * Reads range of pages using single block read.
+     *
+     * @param startPage first page index
+     * @param endPage page index after the last page
+     * @return pages or null if block was not fully read
+     */
+    @Nullable
+    private byte[][] readPages(long startPage, long endPage) {
+        long startPosition = startPage * PageProviderBinaryData.PAGE_SIZE;
+        int blockLength = (int) (Math.min(endPage * PageProviderBinaryData.PAGE_SIZE, documentSize) - startPosition);
+        byte[] block = new byte[blockLength];
+        if (blockLength > 0 && !blockReader.readBlock(startPosition, block)) {
+            return null;
+        }
+
+        byte[][] blockPages = new byte[(int) (endPage - startPage)][];
+        for (int i = 0; i < blockPages.length; i++) {
+            int offset = i * PageProviderBinaryData.PAGE_SIZE;
+            int pageLength = Math.max(Math.min(PageProviderBinaryData.PAGE_SIZE, blockLength - offset), 0);
+            blockPages[i] = new byte[pageLength];
+            if (pageLength > 0) {
+                System.arraycopy(block, offset, blockPages[i], 0, pageLength);
+            }
+        }
+        return blockPages;
+    }
+
+    /**
+     * Computes page checksum compatible with page hash reader.
+     *
+     * @param page page data
+     * @return CRC-32 checksum
+     */
+    public static long computePageHash(byte[] page) {
+        CRC32 crc = new CRC32();
+        crc.update(page, 0, page.length);
+        return crc.getValue();
+    }
+
+    private int getPageLength(long pageIndex) {
+        return (int) Math.max(Math.min(PageProviderBinaryData.PAGE_SIZE, documentSize - pageIndex * PageProviderBinaryData.PAGE_SIZE), 0);
+    }
+
+    private long getPagesCount() {
+        return (documentSize + PageProviderBinaryData.PAGE_SIZE - 1) / PageProviderBinaryData.PAGE_SIZE;
+    }
+
+    /**
+     * Reader of continuous block of data from debugger.
+     */
+    @ParametersAreNonnullByDefault
+    public interface BlockReader {
+
+        /**
+         * Reads data to fill whole target array.
+         *
+         * @param position data position
+         * @param target target array
+         * @return true if whole block was read, false if reading failed
+         */
+        boolean readBlock(long position, byte[] target);
+    }
+
+    /**
+     * Reader of page checksums computed on debugger side.
+     */
+    @ParametersAreNonnullByDefault
+    public interface PageHashReader {
+
+        /**
+         * Returns CRC-32 checksums of pages.
+         *
+         * @param startPage first page index
+         * @param pagesCount number of pages
+         * @return array of checksums or null if not available
+         */
+        @Nullable
+        long[] readPageHashes(long startPage, int pagesCount);
+    }
+}
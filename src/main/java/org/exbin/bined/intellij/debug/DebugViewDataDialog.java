@@ -19,6 +19,9 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.util.ui.JBUI;
 import com.intellij.util.ui.components.BorderLayoutPanel;
+import com.intellij.xdebugger.XDebugSession;
+import com.intellij.xdebugger.XDebugSessionListener;
+import com.intellij.xdebugger.XDebuggerManager;
 import com.intellij.xdebugger.impl.ui.tree.nodes.XValueNodeImpl;
 import org.exbin.bined.intellij.debug.gui.DebugViewPanel;
 import org.exbin.bined.intellij.debug.intellij.XValueNodeConvertor;
@@ -63,6 +66,16 @@ public class DebugViewDataDialog extends DialogWrapper {
             viewPanel.addProvider(provider);
         }
 
+        XDebugSession session = XDebuggerManager.getInstance(project).getCurrentSession();
+        if (session != null) {
+            session.addSessionListener(new XDebugSessionListener() {
+                @Override
+                public void sessionPaused() {
+                    viewPanel.refreshData();
+                }
+            }, getDisposable());
+        }
+
         init();
     }
 
@@ -16,6 +16,7 @@
 package org.exbin.bined.intellij.debug;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import org.exbin.auxiliary.binary_data.BinaryData;
 
@@ -30,4 +31,13 @@ public interface DebugViewDataProvider {
 
     @Nonnull
     BinaryData getData();
+
+    /**
+     * Sets listener invoked in dispatch thread when data were delivered
+     * asynchronously and view should be updated.
+     *
+     * @param dataChangeListener listener
+     */
+    default void setDataChangeListener(@Nullable Runnable dataChangeListener) {
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.debug;
+
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.bined.jaguif.objectdata.PageProvider;
+import org.exbin.bined.jaguif.objectdata.PageProviderBinaryData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Map;
+
+/**
+ * Debug view data provider which can be refreshed when debugger stops.
+ */
+@ParametersAreNonnullByDefault
+public class RefreshableDebugViewDataProvider implements DebugViewDataProvider {
+
+    private final String name;
+    private final RefreshablePageProvider pageProvider;
+    private BinaryData data;
+
+    public RefreshableDebugViewDataProvider(String name, RefreshablePageProvider pageProvider) {
+        this.name = name;
+        this.pageProvider = pageProvider;
+        data = new PageProviderBinaryData(pageProvider);
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Nonnull
+    @Override
+    public BinaryData getData() {
+        return data;
+    }
+
+    /**
+     * Reads again already fetched data.
+     * <p>
+     * Only pages which were already fetched are read again.
+     *
+     * @return data with previous content of changed pages
+     */
+    @Nonnull
+    public BinaryData refresh() {
+        Map<Long, byte[]> changedPages = pageProvider.refresh();
+        data = new PageProviderBinaryData(pageProvider);
+        return new PageProviderBinaryData(new PageProvider() {
+            @Nonnull
+            @Override
+            public byte[] getPage(long pageIndex) {
+                byte[] previousPage = changedPages.get(pageIndex);
+                return previousPage != null ? previousPage : pageProvider.getPage(pageIndex);
+            }
+
+            @Override
+            public long getDocumentSize() {
+                return pageProvider.getDocumentSize();
+            }
+        });
+    }
+}
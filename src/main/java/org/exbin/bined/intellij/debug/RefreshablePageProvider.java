@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.debug;
+
+import org.exbin.bined.jaguif.objectdata.PageProvider;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Map;
+
+/**
+ * Page provider which can refresh already fetched data after debugger stop.
+ */
+@ParametersAreNonnullByDefault
+public interface RefreshablePageProvider extends PageProvider {
+
+    /**
+     * Reads again already fetched pages.
+     *
+     * @return previous content of changed pages by page index
+     */
+    @Nonnull
+    Map<Long, byte[]> refresh();
+}
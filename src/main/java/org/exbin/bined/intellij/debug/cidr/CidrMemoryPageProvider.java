@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.debug.cidr;
+
+import com.jetbrains.cidr.execution.debugger.CidrDebugProcess;
+import com.jetbrains.cidr.execution.debugger.backend.LLMemoryHunk;
+import com.jetbrains.cidr.execution.debugger.memory.Address;
+import com.jetbrains.cidr.execution.debugger.memory.AddressRange;
+import org.exbin.bined.intellij.debug.DebugPageCache;
+import org.exbin.bined.intellij.debug.RefreshablePageProvider;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Native memory data source for CIDR (LLDB/GDB) debugger view.
+ * <p>
+ * Reads raw memory block of the value directly from debugger backend.
+ */
+@ParametersAreNonnullByDefault
+public class CidrMemoryPageProvider implements RefreshablePageProvider {
+
+    private static final long READ_TIMEOUT_MS = 30_000;
+
+    private final CidrDebugProcess process;
+    private final long address;
+    private final long size;
+    private final DebugPageCache pageCache;
+
+    public CidrMemoryPageProvider(CidrDebugProcess process, long address, long size) {
+        this.process = process;
+        this.address = address;
+        this.size = size;
+        pageCache = new DebugPageCache(size, this::readMemory);
+    }
+
+    @Nonnull
+    @Override
+    public byte[] getPage(long pageIndex) {
+        return pageCache.getPage(pageIndex);
+    }
+
+    @Override
+    public long getDocumentSize() {
+        return size;
+    }
+
+    @Nonnull
+    @Override
+    public Map<Long, byte[]> refresh() {
+        return pageCache.refresh();
+    }
+
+    private boolean readMemory(long position, byte[] target) {
+        Address startAddress = Address.fromUnsignedLong(address + position);
+        AddressRange range = new AddressRange(startAddress, startAddress.plus(target.length - 1));
+        CidrDebugProcess.DebuggerCommand<List<LLMemoryHunk>> command = driver -> driver.dumpMemory(range);
+        try {
+            List<LLMemoryHunk> hunks = process.postCommand(command).get(READ_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            long readBytes = 0;
+            for (LLMemoryHunk hunk : hunks) {
+                long offset = hunk.getRange().getStart().minus(startAddress);
+                List<Byte> bytes = hunk.getBytes();
+                int hunkSize = bytes.size();
+                for (int i = 0; i < hunkSize; i++) {
+                    long targetPosition = offset + i;
+                    if (targetPosition >= 0 && targetPosition < target.length) {
+                        target[(int) targetPosition] = bytes.get(i);
+                        readBytes++;
+                    }
+                }
+            }
+            // Unreadable parts of the range are not covered by any hunk
+            return readBytes >= target.length;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ex) {
+            Logger.getLogger(CidrMemoryPageProvider.class.getName()).log(Level.SEVERE, "Unable to read memory at " + range, ex);
+        }
+        return false;
+    }
+
+    /**
+     * Returns size of primitive type in bytes or 0 if it's not known.
+     *
+     * @param typeName type name
+     * @return size in bytes
+     */
+    public static int getPrimitiveTypeSize(String typeName) {
+        switch (typeName) {
+            case "char":
+            case "signed char":
+            case "unsigned char":
+            case "bool":
+            case "int8_t":
+            case "uint8_t":
+            case "std::byte":
+            case "i8":
+            case "u8": {
+                return 1;
+            }
+            case "short":
+            case "signed short":
+            case "unsigned short":
+            case "char16_t":
+            case "int16_t":
+            case "uint16_t":
+            case "i16":
+            case "u16": {
+                return 2;
+            }
+            case "int":
+            case "signed int":
+            case "unsigned int":
+            case "float":
+            case "char32_t":
+            case "int32_t":
+            case "uint32_t":
+            case "i32":
+            case "u32":
+            case "f32": {
+                return 4;
+            }
+            case "signed long":
+            case "unsigned long":
+            case "long":
+            case "long long":
+            case "signed long long":
+            case "unsigned long long":
+            case "double":
+            case "int64_t":
+            case "uint64_t":
+            case "i64":
+            case "u64":
+            case "f64": {
+                return 8;
+            }
+        }
+
+        return 0;
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.exbin.bined.intellij.debug.gui;
 
+import com.intellij.openapi.application.ApplicationManager;
 import org.exbin.auxiliary.binary_data.BinaryData;
 import org.exbin.bined.CodeAreaUtils;
 import org.exbin.bined.CodeType;
@@ -22,6 +23,7 @@ import org.exbin.bined.EditMode;
 import org.exbin.bined.capability.CharsetCapable;
 import org.exbin.bined.highlight.swing.NonprintablesCodeAreaAssessor;
 import org.exbin.bined.intellij.debug.DebugViewDataProvider;
+import org.exbin.bined.intellij.debug.RefreshableDebugViewDataProvider;
 import org.exbin.bined.intellij.gui.BinEdToolbarPanel;
 import org.exbin.bined.jaguif.component.BinedComponentModule;
 import org.exbin.bined.jaguif.document.BinedDocumentModule;
@@ -32,6 +34,8 @@ import org.exbin.bined.swing.basic.color.CodeAreaColorsProfile;
 import org.exbin.bined.swing.capability.ColorAssessorPainterCapable;
 import org.exbin.bined.swing.capability.FontCapable;
 import org.exbin.bined.swing.section.SectCodeArea;
+import org.exbin.bined.swing.section.SectionCodeAreaPainter;
+import org.exbin.bined.swing.section.diff.DiffHighlightCodeAreaColorAssessor;
 import org.exbin.bined.swing.section.theme.SectionCodeAreaThemeProfile;
 import org.exbin.jaguif.App;
 import org.exbin.jaguif.action.api.ActionConsts;
@@ -84,6 +88,7 @@ import javax.swing.Action;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
 import javax.swing.event.PopupMenuEvent;
 import javax.swing.event.PopupMenuListener;
 import java.awt.BorderLayout;
@@ -112,6 +117,7 @@ public class DebugViewPanel extends javax.swing.JPanel {
     protected BinEdToolbarPanel toolbarPanel = new BinEdToolbarPanel();
     protected StatusBar statusBar;
     protected final BinEdDataComponent dataComponent;
+    protected DiffHighlightCodeAreaColorAssessor changesColorAssessor = null;
 
     public DebugViewPanel() {
         panel = new JPanel(new BorderLayout());
@@ -331,7 +337,11 @@ public class DebugViewPanel extends javax.swing.JPanel {
         int selectedIndex = providerComboBox.getSelectedIndex();
         if (selectedProvider != selectedIndex) {
             selectedProvider = selectedIndex;
-            setContentData(providers.get(selectedProvider).getData());
+            BinaryData data = providers.get(selectedProvider).getData();
+            setContentData(data);
+            if (changesColorAssessor != null) {
+                changesColorAssessor.setComparedData(data);
+            }
         }
     }
 
@@ -347,6 +357,11 @@ public class DebugViewPanel extends javax.swing.JPanel {
 
         providers.add(provider);
         providerComboBox.addItem(provider.getName());
+        provider.setDataChangeListener(() -> {
+            if (providers.get(selectedProvider) == provider) {
+                dataComponent.getCodeArea().notifyDataChanged();
+            }
+        });
     }
 
     public void setContentData(@Nullable BinaryData data) {
@@ -355,6 +370,47 @@ public class DebugViewPanel extends javax.swing.JPanel {
         // TODO statusBar.getBinaryStatusPanel().setCurrentDocumentSize(dataSize, dataSize);
     }
 
+    /**
+     * Reads again data of currently shown provider and highlights changed
+     * bytes.
+     * <p>
+     * Provider is selected in event dispatch thread and data are fetched in
+     * pooled thread, so it can be called from any thread.
+     */
+    public void refreshData() {
+        SwingUtilities.invokeLater(() -> {
+            if (providers.isEmpty()) {
+                return;
+            }
+
+            DebugViewDataProvider provider = providers.get(selectedProvider);
+            if (!(provider instanceof RefreshableDebugViewDataProvider)) {
+                return;
+            }
+
+            ApplicationManager.getApplication().executeOnPooledThread(() -> {
+                BinaryData previousData = ((RefreshableDebugViewDataProvider) provider).refresh();
+                SwingUtilities.invokeLater(() -> showRefreshedData(provider, previousData));
+            });
+        });
+    }
+
+    private void showRefreshedData(DebugViewDataProvider provider, BinaryData previousData) {
+        if (providers.get(selectedProvider) != provider) {
+            return;
+        }
+
+        SectCodeArea codeArea = (SectCodeArea) dataComponent.getCodeArea();
+        if (changesColorAssessor == null) {
+            SectionCodeAreaPainter painter = (SectionCodeAreaPainter) codeArea.getPainter();
+            changesColorAssessor = new DiffHighlightCodeAreaColorAssessor(codeArea, painter.getColorAssessor(), previousData);
+            painter.setColorAssessor(changesColorAssessor);
+        } else {
+            changesColorAssessor.setComparedData(previousData);
+        }
+        setContentData(provider.getData());
+    }
+
     @Nonnull
     private AbstractAction createOnlineHelpAction() {
         return new AbstractAction() {
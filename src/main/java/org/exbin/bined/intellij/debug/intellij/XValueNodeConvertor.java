@@ -29,6 +29,7 @@ import com.jetbrains.cidr.execution.debugger.evaluation.CidrMemberValue;
 import com.jetbrains.cidr.execution.debugger.evaluation.CidrPhysicalValue;
 import com.jetbrains.cidr.execution.debugger.evaluation.CidrValue;
 import com.jetbrains.php.debug.common.PhpNavigatableValue;
+import com.jetbrains.php.debug.xdebug.debugger.XdebugValue;
 import com.jetbrains.php.lang.psi.resolve.types.PhpType;
 import com.jetbrains.python.debugger.PyDebugValue;
 import com.sun.jdi.ArrayReference;
@@ -46,9 +47,13 @@ import com.sun.jdi.Type;
 import com.sun.jdi.Value;
 import org.exbin.auxiliary.binary_data.BinaryData;
 import org.exbin.auxiliary.binary_data.array.ByteArrayData;
+import org.exbin.bined.jaguif.objectdata.PageProvider;
 import org.exbin.bined.jaguif.objectdata.PageProviderBinaryData;
+import org.exbin.bined.intellij.debug.CachedRefreshablePageProvider;
 import org.exbin.bined.intellij.debug.DebugViewDataProvider;
 import org.exbin.bined.intellij.debug.DefaultDebugViewDataProvider;
+import org.exbin.bined.intellij.debug.RefreshableDebugViewDataProvider;
+import org.exbin.bined.intellij.debug.cidr.CidrMemoryPageProvider;
 import org.exbin.bined.intellij.debug.jdi.JdiBooleanArrayPageProvider;
 import org.exbin.bined.intellij.debug.jdi.JdiByteArrayPageProvider;
 import org.exbin.bined.intellij.debug.jdi.JdiCharArrayPageProvider;
@@ -58,6 +63,7 @@ import org.exbin.bined.intellij.debug.jdi.JdiIntegerArrayPageProvider;
 import org.exbin.bined.intellij.debug.jdi.JdiLongArrayPageProvider;
 import org.exbin.bined.intellij.debug.jdi.JdiShortArrayPageProvider;
 import org.exbin.bined.intellij.debug.php.PhpByteArrayPageProvider;
+import org.exbin.bined.intellij.debug.python.PythonBufferPageProvider;
 import org.exbin.bined.intellij.debug.python.PythonByteArrayPageProvider;
 import org.exbin.bined.jaguif.inspector.gui.BasicValuesPanel;
 import org.jetbrains.annotations.Nullable;
@@ -71,7 +77,6 @@ import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -193,9 +198,9 @@ public class XValueNodeConvertor {
                         }
                     }
 
-                    BinaryData data = processArrayData(descriptor);
-                    if (data != null)
-                        providers.add(new DefaultDebugViewDataProvider("Binary sequence from array", data));
+                    PageProvider pageProvider = processArrayData(descriptor);
+                    if (pageProvider != null)
+                        providers.add(new RefreshableDebugViewDataProvider("Binary sequence from array", new CachedRefreshablePageProvider(pageProvider)));
                 } else {
                     BinaryData data = processSimpleValue(descriptor);
                     if (data != null) {
@@ -210,7 +215,21 @@ public class XValueNodeConvertor {
             if (dataType != null) {
                 switch (dataType) {
                     case "bytearray":
-                    case "bytes": {
+                    case "bytes":
+                    case "memoryview":
+                    case "array":
+                    case "ndarray": {
+                        try {
+                            providers.add(new RefreshableDebugViewDataProvider("Python buffer value", PythonBufferPageProvider.createProvider((PyDebugValue) container)));
+                            break;
+                        } catch (Exception e) {
+                            // Not a contiguous buffer, fallback to value representation if possible
+                            Logger.getLogger(XValueNodeConvertor.class.getName()).log(Level.FINE, "Buffer access not available for " + dataType + " value", e);
+                            if (!"bytearray".equals(dataType) && !"bytes".equals(dataType)) {
+                                break;
+                            }
+                        }
+
                         // Very primitive and inefficient data reading using existing readers via string
                         try {
                             String fullValue = myDataNode.getRawValue();
@@ -240,12 +259,24 @@ public class XValueNodeConvertor {
 
         if (cValueClassAvailable && container instanceof CidrValue) {
             if (container instanceof CidrPhysicalValue) {
-                String typeName = ((CidrPhysicalValue) container).getType();
+                CidrPhysicalValue physicalValue = (CidrPhysicalValue) container;
+                String typeName = physicalValue.getType();
+                int rustArraySizePos = typeName.indexOf(";");
+                if (typeName.startsWith("[") && rustArraySizePos > 0) {
+                    // Rust array type [u8; 16]
+                    try {
+                        String childType = typeName.substring(1, rustArraySizePos).strip();
+                        long arraySize = Long.parseLong(typeName.substring(rustArraySizePos + 1, typeName.length() - 1).strip());
+                        addCidrMemoryProvider(providers, physicalValue, childType, arraySize);
+                    } catch (Exception ex) {
+                    }
+                }
                 int arraySizePos = typeName.indexOf("[");
                 if (arraySizePos > 0) {
                     try {
                         String childType = typeName.substring(0, arraySizePos).strip();
                         int arraySize = Integer.parseInt(typeName.substring(arraySizePos + 1, typeName.length() - 1));
+                        addCidrMemoryProvider(providers, physicalValue, childType, arraySize);
                         childValueExtractor = XValueNodeConvertor::getCValueText;
                         switch (childType) {
                             case "signed char":
@@ -320,9 +351,16 @@ public class XValueNodeConvertor {
 
                 switch (dataType.toString()) {
                     case "array": {
-                        Map<String, String> value = ((PhpNavigatableValue) container).getLoadedChildren();
-                        BinaryData data = new PageProviderBinaryData(new PhpByteArrayPageProvider(value));
-                        providers.add(new DefaultDebugViewDataProvider("PHP bytearray value", data));
+                        // Page provider reads array using Xdebug connection only
+                        if (container instanceof XdebugValue) {
+                            PhpByteArrayPageProvider pageProvider = new PhpByteArrayPageProvider((XdebugValue) container);
+                            providers.add(new DefaultDebugViewDataProvider("PHP bytearray value", new PageProviderBinaryData(pageProvider)) {
+                                @Override
+                                public void setDataChangeListener(@Nullable Runnable dataChangeListener) {
+                                    pageProvider.setLoadListener(dataChangeListener);
+                                }
+                            });
+                        }
                         break;
                     }
                 }
@@ -573,7 +611,7 @@ public class XValueNodeConvertor {
     }
 
     @Nullable
-    private static BinaryData processArrayData(ValueDescriptorImpl descriptor) {
+    private static PageProvider processArrayData(ValueDescriptorImpl descriptor) {
         final ArrayReference arrayRef = (ArrayReference) descriptor.getValue();
         final ArrayType arrayType = (ArrayType) descriptor.getType();
         if (arrayType != null) {
@@ -581,35 +619,35 @@ public class XValueNodeConvertor {
             switch (componentType) {
                 case CommonClassNames.JAVA_LANG_BOOLEAN:
                 case "boolean": {
-                    return new PageProviderBinaryData(new JdiBooleanArrayPageProvider(arrayRef));
+                    return new JdiBooleanArrayPageProvider(arrayRef);
                 }
                 case CommonClassNames.JAVA_LANG_BYTE:
                 case "byte": {
-                    return new PageProviderBinaryData(new JdiByteArrayPageProvider(arrayRef));
+                    return new JdiByteArrayPageProvider(arrayRef);
                 }
                 case CommonClassNames.JAVA_LANG_SHORT:
                 case "short": {
-                    return new PageProviderBinaryData(new JdiShortArrayPageProvider(arrayRef));
+                    return new JdiShortArrayPageProvider(arrayRef);
                 }
                 case CommonClassNames.JAVA_LANG_INTEGER:
                 case "int": {
-                    return new PageProviderBinaryData(new JdiIntegerArrayPageProvider(arrayRef));
+                    return new JdiIntegerArrayPageProvider(arrayRef);
                 }
                 case CommonClassNames.JAVA_LANG_LONG:
                 case "long": {
-                    return new PageProviderBinaryData(new JdiLongArrayPageProvider(arrayRef));
+                    return new JdiLongArrayPageProvider(arrayRef);
                 }
                 case CommonClassNames.JAVA_LANG_FLOAT:
                 case "float": {
-                    return new PageProviderBinaryData(new JdiFloatArrayPageProvider(arrayRef));
+                    return new JdiFloatArrayPageProvider(arrayRef);
                 }
                 case CommonClassNames.JAVA_LANG_DOUBLE:
                 case "double": {
-                    return new PageProviderBinaryData(new JdiDoubleArrayPageProvider(arrayRef));
+                    return new JdiDoubleArrayPageProvider(arrayRef);
                 }
                 case CommonClassNames.JAVA_LANG_CHARACTER:
                 case "char": {
-                    return new PageProviderBinaryData(new JdiCharArrayPageProvider(arrayRef));
+                    return new JdiCharArrayPageProvider(arrayRef);
                 }
             }
         }
@@ -733,6 +771,18 @@ public class XValueNodeConvertor {
                 || CommonClassNames.JAVA_LANG_CHARACTER.equals(type);
     }
 
+    private static void addCidrMemoryProvider(List<DebugViewDataProvider> providers, CidrPhysicalValue value, String childType, long arraySize) {
+        Long address = value.getVar().getAddress();
+        int childTypeSize = CidrMemoryPageProvider.getPrimitiveTypeSize(childType);
+        if (address == null || childTypeSize == 0 || arraySize <= 0) {
+            return;
+        }
+
+        // Raw memory reading without formatting of individual child values
+        // Pointers to heap buffers are not covered as the length of the buffer is not known from the type
+        providers.add(new RefreshableDebugViewDataProvider("Native memory", new CidrMemoryPageProvider(value.getProcess(), address, arraySize * childTypeSize)));
+    }
+
     @Nonnull
     public static String getGoValueText(XValue valueContainer) {
         try {
@@ -15,69 +15,245 @@
  */
 package org.exbin.bined.intellij.debug.php;
 
+import com.intellij.ui.SimpleTextAttributes;
+import com.intellij.xdebugger.frame.XCompositeNode;
+import com.intellij.xdebugger.frame.XDebuggerTreeNodeHyperlink;
+import com.intellij.xdebugger.frame.XValue;
+import com.intellij.xdebugger.frame.XValueChildrenList;
+import com.jetbrains.php.debug.common.PhpNavigatableValue;
+import com.jetbrains.php.debug.xdebug.debugger.XdebugValue;
 import org.exbin.bined.jaguif.objectdata.PageProvider;
 import org.exbin.bined.jaguif.objectdata.PageProviderBinaryData;
 import org.exbin.auxiliary.binary_data.OutOfBoundsException;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
-import java.util.Map;
+import javax.swing.Icon;
+import javax.swing.SwingUtilities;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * PHP bytearray data source for debugger view.
+ * <p>
+ * Size is taken from Xdebug property metadata and children are requested
+ * lazily on page access. Xdebug delivers children in pages which are decoded
+ * directly into byte pages without keeping child values. Pages are provided
+ * as zeroed until their children are delivered, next pages of children are
+ * requested only up to the end of the requested page.
  */
 @ParametersAreNonnullByDefault
 public class PhpByteArrayPageProvider implements PageProvider {
 
-    private final Map<String, String> value;
-    private int size = 0;
+    private static final long LOAD_TIMEOUT_MS = 30_000;
 
-    public PhpByteArrayPageProvider(Map<String, String> value) {
-        this.value = value;
+    private final XdebugValue value;
+    private final long size;
+    private final byte[][] pages;
 
-        int pos = 0;
-        do {
-            String child = value.get(String.valueOf(pos));
-            try {
-                Integer.parseInt(child);
-            } catch (NumberFormatException ex) {
-                break;
-            }
-            pos++;
-            size++;
-        } while (true);
+    private volatile ChildrenCollector activeCollector = null;
+    private Runnable nextChildren = null;
+    private boolean requestPending = false;
+    private long requestTime = 0;
+    private long requestedEnd = 0;
+    private volatile boolean loadingFinished = false;
+    private long loadedCount = 0;
+    private Runnable loadListener = null;
+
+    public PhpByteArrayPageProvider(XdebugValue value) {
+        this.value = value;
+        size = Math.max(value.getChildrenCount(), 0);
+        pages = new byte[(int) (size / PageProviderBinaryData.PAGE_SIZE) + 1][];
     }
 
     @Nonnull
     @Override
-    public byte[] getPage(long pageIndex) {
+    public synchronized byte[] getPage(long pageIndex) {
         long documentSize = getDocumentSize();
-        if (pageIndex > documentSize / PageProviderBinaryData.PAGE_SIZE )
+        if (pageIndex > documentSize / PageProviderBinaryData.PAGE_SIZE)
             throw new OutOfBoundsException();
 
-        int length;
-        if (documentSize / PageProviderBinaryData.PAGE_SIZE == pageIndex) {
-            length = (int) (documentSize % PageProviderBinaryData.PAGE_SIZE);
-        } else {
-            length = PageProviderBinaryData.PAGE_SIZE;
+        long pageEnd = Math.min((pageIndex + 1) * PageProviderBinaryData.PAGE_SIZE, documentSize);
+        if (loadedCount < pageEnd && !loadingFinished) {
+            requestedEnd = Math.max(requestedEnd, pageEnd);
+            requestChildren();
         }
-        byte[] page = new byte[length];
 
-        int position = (int) pageIndex * PageProviderBinaryData.PAGE_SIZE;
-        int offset = 0;
-        while (offset < length) {
-            int intValue = Integer.parseInt(value.get(String.valueOf(position)));
-            byte byteValue = intValue > -128 && intValue < 256 ? (byte) intValue : 0;
-            page[offset] = byteValue;
-            offset++;
-            position++;
-        }
-
-        return page;
+        return getPageStorage((int) pageIndex);
     }
 
     @Override
     public long getDocumentSize() {
         return size;
     }
+
+    /**
+     * Sets listener invoked in dispatch thread when next children were
+     * delivered.
+     *
+     * @param loadListener listener
+     */
+    public synchronized void setLoadListener(@Nullable Runnable loadListener) {
+        this.loadListener = loadListener;
+    }
+
+    private void requestChildren() {
+        long time = System.currentTimeMillis();
+        if (requestPending) {
+            if (time - requestTime < LOAD_TIMEOUT_MS) {
+                return;
+            }
+
+            // Loading is started again from the beginning with new collector
+            Logger.getLogger(PhpByteArrayPageProvider.class.getName()).log(Level.WARNING, "Timeout while loading PHP array children");
+            activeCollector = null;
+            nextChildren = null;
+            loadedCount = 0;
+        }
+
+        if (activeCollector != null && nextChildren == null) {
+            // Xdebug reported no more children
+            loadingFinished = true;
+            return;
+        }
+
+        requestPending = true;
+        requestTime = time;
+        if (nextChildren != null) {
+            Runnable addNextChildren = nextChildren;
+            nextChildren = null;
+            addNextChildren.run();
+        } else {
+            activeCollector = new ChildrenCollector();
+            value.computeChildren(activeCollector);
+        }
+    }
+
+    @Nonnull
+    private byte[] getPageStorage(int pageIndex) {
+        byte[] page = pages[pageIndex];
+        if (page == null) {
+            int length;
+            if (size / PageProviderBinaryData.PAGE_SIZE == pageIndex) {
+                length = (int) (size % PageProviderBinaryData.PAGE_SIZE);
+            } else {
+                length = PageProviderBinaryData.PAGE_SIZE;
+            }
+            page = new byte[length];
+            pages[pageIndex] = page;
+        }
+        return page;
+    }
+
+    private synchronized void childrenAdded(ChildrenCollector collector, XValueChildrenList children, boolean last) {
+        if (collector != activeCollector) {
+            return;
+        }
+
+        int childrenCount = children.size();
+        for (int i = 0; i < childrenCount && loadedCount < size; i++) {
+            byte[] page = getPageStorage((int) (loadedCount / PageProviderBinaryData.PAGE_SIZE));
+            page[(int) (loadedCount % PageProviderBinaryData.PAGE_SIZE)] = decodeByte(children.getValue(i));
+            loadedCount++;
+        }
+
+        if (last) {
+            requestPending = false;
+        }
+        if (loadedCount >= size) {
+            loadingFinished = true;
+        }
+        notifyLoaded();
+    }
+
+    private synchronized void nextChildrenAvailable(ChildrenCollector collector, Runnable addNextChildren) {
+        if (collector != activeCollector || loadedCount >= size) {
+            return;
+        }
+
+        nextChildren = addNextChildren;
+        requestPending = false;
+        loadingFinished = false;
+        if (loadedCount < requestedEnd) {
+            // Requested page is not complete yet
+            requestChildren();
+        }
+    }
+
+    private synchronized void loadingFailed(ChildrenCollector collector, String errorMessage) {
+        if (collector != activeCollector) {
+            return;
+        }
+
+        Logger.getLogger(PhpByteArrayPageProvider.class.getName()).log(Level.WARNING, "Unable to load PHP array children: {0}", errorMessage);
+        requestPending = false;
+        loadingFinished = true;
+        notifyLoaded();
+    }
+
+    private void notifyLoaded() {
+        Runnable listener = loadListener;
+        if (listener != null) {
+            SwingUtilities.invokeLater(listener);
+        }
+    }
+
+    private static byte decodeByte(XValue childValue) {
+        if (!(childValue instanceof PhpNavigatableValue)) {
+            return 0;
+        }
+
+        String valueText = ((PhpNavigatableValue) childValue).getPresentableValue();
+        try {
+            int intValue = Integer.parseInt(valueText);
+            return intValue > -128 && intValue < 256 ? (byte) intValue : 0;
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * Receiver for pages of children sent by Xdebug.
+     */
+    private class ChildrenCollector implements XCompositeNode {
+
+        @Override
+        public void addChildren(XValueChildrenList children, boolean last) {
+            childrenAdded(this, children, last);
+        }
+
+        @Override
+        public void tooManyChildren(int remaining) {
+        }
+
+        @Override
+        public void tooManyChildren(int remaining, Runnable addNextChildren) {
+            // Next children are requested only when needed for requested page
+            nextChildrenAvailable(this, addNextChildren);
+        }
+
+        @Override
+        public void setAlreadySorted(boolean alreadySorted) {
+        }
+
+        @Override
+        public void setErrorMessage(String errorMessage) {
+            loadingFailed(this, errorMessage);
+        }
+
+        @Override
+        public void setErrorMessage(String errorMessage, @Nullable XDebuggerTreeNodeHyperlink link) {
+            loadingFailed(this, errorMessage);
+        }
+
+        @Override
+        public void setMessage(String message, @Nullable Icon icon, SimpleTextAttributes attributes, @Nullable XDebuggerTreeNodeHyperlink link) {
+        }
+
+        @Override
+        public boolean isObsolete() {
+            return this != activeCollector || loadingFinished;
+        }
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.debug.python;
+
+import com.jetbrains.python.debugger.PyDebugValue;
+import com.jetbrains.python.debugger.PyDebuggerException;
+import com.jetbrains.python.debugger.PyFrameAccessor;
+import org.exbin.bined.intellij.debug.DebugPageCache;
+import org.exbin.bined.intellij.debug.RefreshablePageProvider;
+import org.exbin.bined.jaguif.objectdata.PageProviderBinaryData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Base64;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Python buffer protocol data source for debugger view.
+ * <p>
+ * Reads slices of memoryview of the value encoded as base64 using evaluation
+ * in debugged process instead of parsing whole value representation.
+ */
+@ParametersAreNonnullByDefault
+public class PythonBufferPageProvider implements RefreshablePageProvider {
+
+    private final PyFrameAccessor frameAccessor;
+    private final String bufferExpression;
+    private final long size;
+    private final DebugPageCache pageCache;
+
+    private PythonBufferPageProvider(PyFrameAccessor frameAccessor, String bufferExpression, long size) {
+        this.frameAccessor = frameAccessor;
+        this.bufferExpression = bufferExpression;
+        this.size = size;
+        pageCache = new DebugPageCache(size, this::readSlice);
+        pageCache.setPageHashReader(this::readPageHashes);
+    }
+
+    /**
+     * Creates provider for given value.
+     *
+     * @param value debug value supporting buffer protocol
+     * @return page provider
+     * @throws PyDebuggerException if value doesn't provide contiguous buffer
+     */
+    @Nonnull
+    public static PythonBufferPageProvider createProvider(PyDebugValue value) throws PyDebuggerException {
+        PyFrameAccessor frameAccessor = value.getFrameAccessor();
+        String bufferExpression = "memoryview(" + value.getEvaluationExpression() + ").cast('B')";
+        String sizeValue = evaluate(frameAccessor, "len(" + bufferExpression + ")");
+        long size;
+        try {
+            size = Long.parseLong(sizeValue.trim());
+        } catch (NumberFormatException ex) {
+            throw new PyDebuggerException("Unexpected buffer size: " + sizeValue, ex);
+        }
+        return new PythonBufferPageProvider(frameAccessor, bufferExpression, size);
+    }
+
+    @Nonnull
+    @Override
+    public byte[] getPage(long pageIndex) {
+        return pageCache.getPage(pageIndex);
+    }
+
+    @Override
+    public long getDocumentSize() {
+        return size;
+    }
+
+    @Nonnull
+    @Override
+    public Map<Long, byte[]> refresh() {
+        return pageCache.refresh();
+    }
+
+    private boolean readSlice(long position, byte[] target) {
+        String expression = "__import__('base64').b64encode(" + bufferExpression + "[" + position + ":" + (position + target.length) + "]).decode('ascii')";
+        try {
+            String encoded = evaluate(frameAccessor, expression);
+            // Value might be returned including quotes which are not part of base64 alphabet
+            byte[] data = Base64.getDecoder().decode(encoded.replace("'", "").replace("\"", "").trim());
+            System.arraycopy(data, 0, target, 0, Math.min(data.length, target.length));
+            return data.length >= target.length;
+        } catch (PyDebuggerException | IllegalArgumentException ex) {
+            Logger.getLogger(PythonBufferPageProvider.class.getName()).log(Level.SEVERE, "Unable to read buffer slice at " + position, ex);
+            return false;
+        }
+    }
+
+    @Nullable
+    private long[] readPageHashes(long startPage, int pagesCount) {
+        long startPosition = startPage * PageProviderBinaryData.PAGE_SIZE;
+        long endPosition = Math.min((startPage + pagesCount) * PageProviderBinaryData.PAGE_SIZE, size);
+        String expression = "' '.join(str(__import__('zlib').crc32(" + bufferExpression + "[i:min(i + " + PageProviderBinaryData.PAGE_SIZE + ", " + endPosition + ")])) for i in range(" + startPosition + ", " + endPosition + ", " + PageProviderBinaryData.PAGE_SIZE + "))";
+        try {
+            String[] values = evaluate(frameAccessor, expression).replace("'", "").replace("\"", "").trim().split(" ");
+            long[] hashes = new long[values.length];
+            for (int i = 0; i < values.length; i++) {
+                hashes[i] = Long.parseLong(values[i]) & 0xffffffffL;
+            }
+            return hashes;
+        } catch (PyDebuggerException | NumberFormatException ex) {
+            // Fallback to reading of whole pages
+            return null;
+        }
+    }
+
+    @Nonnull
+    private static String evaluate(PyFrameAccessor frameAccessor, String expression) throws PyDebuggerException {
+        PyDebugValue result = frameAccessor.evaluate(expression, false, false);
+        String resultValue = result.getValue();
+        if (result.isErrorOnEval() || resultValue == null) {
+            throw new PyDebuggerException("Evaluation failed: " + resultValue);
+        }
+        return resultValue;
+    }
+}
@@ -26,19 +26,26 @@ import javax.annotation.ParametersAreNonnullByDefault;
  * Python bytes/bytearray data source for debugger view.
  * <p>
  * It seems that binary value is currently available only in text encoded form.
+ * <p>
+ * Value is scanned once to build sparse index of string positions for every
+ * {@link #INDEX_STEP} bytes so that any page can be decoded without rescanning
+ * the string from the beginning.
  */
 @ParametersAreNonnullByDefault
 public class PythonByteArrayPageProvider implements PageProvider {
 
     private static final String BYTEARRAY_PREFIX = "bytearray(";
+    private static final int INDEX_STEP = 4096;
 
     private final String value;
-    private final long length;
+    private int dataEnd;
+    private long length;
+    private int[] index = new int[0];
 
     public PythonByteArrayPageProvider(String value) {
         this.value = value;
 
-        length = computeLength(value);
+        buildIndex();
     }
 
     @Nonnull
@@ -56,13 +63,16 @@ public class PythonByteArrayPageProvider implements PageProvider {
         }
         byte[] page = new byte[pageSize];
 
-        readByteData((int) (pageIndex * PageProviderBinaryData.PAGE_SIZE), page, pageSize);
+        readByteData(pageIndex * PageProviderBinaryData.PAGE_SIZE, page, pageSize);
 
         return page;
     }
 
-    private int hexCharToInt(char hexChar) {
-        return hexChar <= '9' ? hexChar - '0' : 10 + (hexChar - 'a');
+    private static int hexCharToInt(char hexChar) {
+        if (hexChar <= '9') {
+            return hexChar - '0';
+        }
+        return 10 + (Character.toLowerCase(hexChar) - 'a');
     }
 
     @Override
@@ -70,83 +80,137 @@ public class PythonByteArrayPageProvider implements PageProvider {
         return length;
     }
 
-    private static long computeLength(String value) {
+    private void buildIndex() {
         int skipEnd = 1;
-        long computedLength = 0;
         int position = 0;
         if (value.startsWith(BYTEARRAY_PREFIX)) {
             position += BYTEARRAY_PREFIX.length();
             skipEnd = 2;
         }
 
-        if (value.charAt(position) != 'b') {
-            return 0;
+        if (value.length() < position + 2 + skipEnd || value.charAt(position) != 'b') {
+            return;
         }
         position++;
-        if (value.charAt(position) != '\'') {
-            return 0;
+        char quote = value.charAt(position);
+        if (quote != '\'' && quote != '"') {
+            return;
         }
         position++;
 
-        while (position < value.length() - skipEnd) {
-            if (value.charAt(position) == '\\') {
-                if (value.charAt(position + 1) == 'x') {
-                    position += 4;
-                } else {
-                    return 0;
-                }
-            } else {
-                position++;
+        int end = value.length() - skipEnd;
+        int[] positions = new int[(end - position) / INDEX_STEP + 1];
+        int indexSize = 0;
+        long computedLength = 0;
+        while (position < end) {
+            if (computedLength % INDEX_STEP == 0) {
+                positions[indexSize] = position;
+                indexSize++;
             }
 
+            int charLength = getEncodedLength(position);
+            if (charLength == 0) {
+                // Unknown escape sequence
+                return;
+            }
+            position += charLength;
             computedLength++;
         }
 
-        return computedLength;
+        dataEnd = end;
+        index = positions;
+        length = computedLength;
     }
 
-    private void readByteData(long bytePosition, byte[] targetArray, int length) {
-        int skipEnd = 1;
-        int position = 0;
-        if (value.startsWith(BYTEARRAY_PREFIX)) {
-            position += BYTEARRAY_PREFIX.length();
-            skipEnd = 2;
+    /**
+     * Returns count of characters used to encode single byte at given position.
+     *
+     * @param position string position
+     * @return count of characters or 0 if invalid
+     */
+    private int getEncodedLength(int position) {
+        if (value.charAt(position) != '\\') {
+            return 1;
         }
 
-        if (value.charAt(position) != 'b') {
-            return;
+        if (position + 1 >= value.length()) {
+            return 0;
         }
-        position++;
-        if (value.charAt(position) != '\'') {
+
+        switch (value.charAt(position + 1)) {
+            case 'x':
+                return position + 3 < value.length() ? 4 : 0;
+            case '\\':
+            case '\'':
+            case '"':
+            case 'n':
+            case 'r':
+            case 't':
+            case 'a':
+            case 'b':
+            case 'f':
+            case 'v':
+            case '0':
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    private void readByteData(long bytePosition, byte[] targetArray, int length) {
+        if (length == 0) {
             return;
         }
-        position++;
+
+        int indexPosition = (int) (bytePosition / INDEX_STEP);
+        int position = index[indexPosition];
+        long skip = bytePosition - (long) indexPosition * INDEX_STEP;
+        while (skip > 0) {
+            position += getEncodedLength(position);
+            skip--;
+        }
 
         int offset = 0;
-        while (length > 0 && position < value.length() - skipEnd) {
-            if (value.charAt(position) == '\\') {
-                if (value.charAt(position + 1) == 'x') {
-                    if (bytePosition == 0) {
-                        byte byteValue = (byte) ((hexCharToInt(value.charAt(position + 2)) << 4) + hexCharToInt(value.charAt(position + 3)));
-                        targetArray[offset] = byteValue;
-                    }
+        while (offset < length && position < dataEnd) {
+            char character = value.charAt(position);
+            if (character == '\\') {
+                char escaped = value.charAt(position + 1);
+                if (escaped == 'x') {
+                    targetArray[offset] = (byte) ((hexCharToInt(value.charAt(position + 2)) << 4) + hexCharToInt(value.charAt(position + 3)));
                     position += 4;
                 } else {
-                    return;
+                    targetArray[offset] = decodeEscapedChar(escaped);
+                    position += 2;
                 }
             } else {
-                byte byteValue = (byte) value.charAt(position);
-                targetArray[offset] = byteValue;
-
+                targetArray[offset] = (byte) character;
                 position++;
             }
 
-            if (bytePosition > 0) {
-                bytePosition--;
-            } else {
-                length--;
-                offset++;
-            }
+            offset++;
+        }
+    }
+
+    private static byte decodeEscapedChar(char escaped) {
+        switch (escaped) {
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'a':
+                return 0x07;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'v':
+                return 0x0b;
+            case '0':
+                return 0;
+            default:
+                return (byte) escaped;
         }
     }
 }
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.PlatformDataKeys;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.fileChooser.FileChooser;
+import com.intellij.openapi.fileChooser.FileChooserDescriptor;
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.exbin.bined.intellij.BinEdFileEditor;
+import org.exbin.bined.intellij.BinEdIntelliJPlugin;
+import org.exbin.bined.intellij.BinEdVirtualFile;
+import org.exbin.bined.jaguif.document.BinaryFileDocument;
+import org.exbin.bined.jaguif.objectdata.PageProviderBinaryData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Apply VCDIFF patch to file opened in binary editor action.
+ * <p>
+ * Patched file is written to temporary file next to original file using
+ * streaming reads of original file and then its content is written to the
+ * original file in write action.
+ */
+@ParametersAreNonnullByDefault
+public class ApplyBinaryPatchAction extends AnAction implements DumbAware {
+
+    public ApplyBinaryPatchAction() {
+        super(BinEdIntelliJPlugin.getResourceBundle().getString("action.BinEdEditor.ApplyBinaryPatchAction.name"), BinEdIntelliJPlugin.getResourceBundle().getString("action.BinEdEditor.ApplyBinaryPatchAction.description"), null);
+    }
+
+    @Nonnull
+    @Override
+    public ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.EDT;
+    }
+
+    @Override
+    public void update(AnActionEvent event) {
+        BinEdFileEditor fileEditor = getBinaryFileEditor(event.getData(PlatformDataKeys.FILE_EDITOR));
+        event.getPresentation().setVisible(fileEditor != null);
+        event.getPresentation().setEnabled(fileEditor != null && !fileEditor.isModified() && isPatchable(fileEditor.getVirtualFile().getOriginalFile()));
+    }
+
+    @Override
+    public void actionPerformed(AnActionEvent event) {
+        Project project = event.getProject();
+        BinEdFileEditor fileEditor = getBinaryFileEditor(event.getData(PlatformDataKeys.FILE_EDITOR));
+        if (project == null || fileEditor == null) {
+            return;
+        }
+
+        BinEdVirtualFile virtualFile = fileEditor.getVirtualFile();
+        VirtualFile originalFile = virtualFile.getOriginalFile();
+        if (fileEditor.isModified() || !isPatchable(originalFile)) {
+            return;
+        }
+
+        FileChooserDescriptor chooserDescriptor = new FileChooserDescriptor(true, false, false, false, false, false);
+        VirtualFile patchFile = FileChooser.chooseFile(chooserDescriptor, project, null);
+        if (patchFile == null) {
+            return;
+        }
+
+        Path filePath = originalFile.toNioPath();
+        Path patchPath = patchFile.toNioPath();
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Applying patch", true) {
+            private Path patchedFile;
+            private IOException failure;
+
+            @Override
+            public void run(ProgressIndicator indicator) {
+                try {
+                    patchedFile = Files.createTempFile(filePath.toAbsolutePath().getParent(), filePath.getFileName().toString(), ".patched");
+                    try (FileChannelPageProvider sourceProvider = new FileChannelPageProvider(filePath);
+                         InputStream patchStream = new BufferedInputStream(Files.newInputStream(patchPath));
+                         OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(patchedFile))) {
+                        VcdiffPatch.apply(new PageProviderBinaryData(sourceProvider), patchStream, outputStream, indicator::checkCanceled);
+                    }
+                } catch (IOException ex) {
+                    failure = ex;
+                    deletePatchedFile();
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                if (failure != null) {
+                    Messages.showErrorDialog(project, failure.getMessage(), "Unable to Apply Patch");
+                    return;
+                }
+
+                BinaryFileDocument fileDocument = virtualFile.getEditorFile();
+                // Release original file before it is replaced
+                fileDocument.clearFile();
+                try {
+                    WriteAction.run(() -> {
+                        try (InputStream inputStream = Files.newInputStream(patchedFile);
+                             OutputStream outputStream = originalFile.getOutputStream(ApplyBinaryPatchAction.this)) {
+                            inputStream.transferTo(outputStream);
+                        }
+                    });
+                } catch (IOException ex) {
+                    Logger.getLogger(ApplyBinaryPatchAction.class.getName()).log(Level.SEVERE, null, ex);
+                    // Content of original file is not known anymore, so it's not reopened
+                    FileEditorManager.getInstance(project).closeFile(virtualFile);
+                    Messages.showErrorDialog(project, ex.getMessage(), "Unable to Apply Patch");
+                    return;
+                } finally {
+                    deletePatchedFile();
+                }
+                virtualFile.openFile(fileDocument);
+            }
+
+            @Override
+            public void onCancel() {
+                deletePatchedFile();
+            }
+
+            private void deletePatchedFile() {
+                if (patchedFile != null) {
+                    try {
+                        Files.deleteIfExists(patchedFile);
+                    } catch (IOException ex) {
+                        Logger.getLogger(ApplyBinaryPatchAction.class.getName()).log(Level.SEVERE, null, ex);
+                    }
+                }
+            }
+        });
+    }
+
+    @Nullable
+    private static BinEdFileEditor getBinaryFileEditor(@Nullable FileEditor fileEditor) {
+        return fileEditor instanceof BinEdFileEditor ? (BinEdFileEditor) fileEditor : null;
+    }
+
+    private static boolean isPatchable(VirtualFile file) {
+        return file.isValid() && !file.isDirectory() && file.isInLocalFileSystem() && file.isWritable();
+    }
+}
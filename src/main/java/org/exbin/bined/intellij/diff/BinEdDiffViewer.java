@@ -17,13 +17,45 @@ package org.exbin.bined.intellij.diff;
 
 import com.intellij.diff.DiffContext;
 import com.intellij.diff.requests.ContentDiffRequest;
+import com.intellij.diff.tools.util.DiffDataKeys;
+import com.intellij.diff.tools.util.PrevNextDifferenceIterable;
 import com.intellij.diff.tools.util.base.DiffViewerBase;
+import com.intellij.ide.DataManager;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.DumbAwareToggleAction;
 import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import org.exbin.auxiliary.binary_data.BinaryData;
 import org.exbin.bined.intellij.diff.gui.BinedDiffPanel;
+import org.exbin.bined.intellij.diff.gui.SectCodeAreaDiffPanel;
+import org.exbin.bined.intellij.performance.PerformanceTracker;
+import org.exbin.jaguif.App;
+import org.exbin.jaguif.options.api.OptionsModuleApi;
+import org.exbin.jaguif.options.api.OptionsStorage;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.swing.JComponent;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * BinEd diff support provider to compare binary files.
@@ -31,31 +63,239 @@ import javax.swing.JComponent;
 @ParametersAreNonnullByDefault
 public class BinEdDiffViewer extends DiffViewerBase {
 
+    private static final String PREFERENCES_ALIGNMENT_MODE = "diff.alignmentMode";
+    private static final long SUMMARY_UPDATE_INTERVAL_MS = 200;
+
     private final BinedDiffPanel diffPanel = new BinedDiffPanel();
+    private volatile boolean alignmentMode;
+    private BinaryData statisticsLeftData = null;
+    private BinaryData statisticsRightData = null;
+    private volatile ProgressIndicator statisticsIndicator = null;
 
     public BinEdDiffViewer(DiffContext context, ContentDiffRequest request) {
         super(context, request);
-
+        diffPanel.setDiffContent(request);
+        DataManager.registerDataProvider(diffPanel, this);
+        alignmentMode = getOptionsStorage().getBoolean(PREFERENCES_ALIGNMENT_MODE, false);
     }
 
     @Nonnull
     @Override
     protected Runnable performRediff(ProgressIndicator indicator) {
+        SectCodeAreaDiffPanel codeAreaDiffPanel = diffPanel.getDiffPanel();
+        BinaryData leftData = codeAreaDiffPanel.getLeftCodeArea().getContentData();
+        BinaryData rightData = codeAreaDiffPanel.getRightCodeArea().getContentData();
+        if (leftData == null || rightData == null) {
+            return () -> {
+                // no activity
+            };
+        }
+
+        // Statistics are computed after comparison finished so that both don't read data at the same time
+        if (alignmentMode) {
+            BinaryDiffAlignment alignment;
+            try (PerformanceTracker.Span span = PerformanceTracker.start(PerformanceTracker.CATEGORY_DIFF, "Alignment")) {
+                alignment = BinaryDiffEngine.computeAlignment(leftData, rightData, indicator::checkCanceled);
+            }
+            return () -> {
+                diffPanel.setAlignment(alignment);
+                computeStatistics(leftData, rightData);
+            };
+        }
+
+        // Summary of blocks is reported by the comparison pass itself
+        boolean sizeMismatch = leftData.getDataSize() != rightData.getDataSize();
+        AtomicLong lastSummaryTime = new AtomicLong();
+        BinaryDiffEngine.ProgressListener progressListener = (comparedChunks, differentChunks, chunksCount) -> {
+            long now = System.currentTimeMillis();
+            long lastTime = lastSummaryTime.get();
+            if (now - lastTime >= SUMMARY_UPDATE_INTERVAL_MS && lastSummaryTime.compareAndSet(lastTime, now)) {
+                ApplicationManager.getApplication().invokeLater(() -> diffPanel.setChunksSummary(differentChunks, chunksCount, sizeMismatch), ModalityState.any());
+            }
+        };
+        BinaryDiffIndex diffIndex;
+        try (PerformanceTracker.Span span = PerformanceTracker.start(PerformanceTracker.CATEGORY_DIFF, "Differences index")) {
+            diffIndex = BinaryDiffEngine.computeIndex(leftData, rightData, progressListener, indicator::checkCanceled);
+        }
         return () -> {
-            // no activity
+            diffPanel.setDiffIndex(diffIndex);
+            computeStatistics(leftData, rightData);
         };
     }
 
+    @Nonnull
+    @Override
+    protected List<AnAction> createToolbarActions() {
+        List<AnAction> actions = new ArrayList<>();
+        List<AnAction> parentActions = super.createToolbarActions();
+        if (parentActions != null) {
+            actions.addAll(parentActions);
+        }
+        actions.add(new DumbAwareToggleAction("Detect Insertions and Deletions") {
+            @Nonnull
+            @Override
+            public ActionUpdateThread getActionUpdateThread() {
+                return ActionUpdateThread.EDT;
+            }
+
+            @Override
+            public boolean isSelected(AnActionEvent e) {
+                return alignmentMode;
+            }
+
+            @Override
+            public void setSelected(AnActionEvent e, boolean state) {
+                alignmentMode = state;
+                getOptionsStorage().putBoolean(PREFERENCES_ALIGNMENT_MODE, state);
+                diffPanel.setDiffIndex(null);
+                scheduleRediff();
+            }
+        });
+        actions.add(new DumbAwareAction("Export Patch...", "Export differences as VCDIFF patch transforming left data to right data", null) {
+            @Nonnull
+            @Override
+            public ActionUpdateThread getActionUpdateThread() {
+                return ActionUpdateThread.EDT;
+            }
+
+            @Override
+            public void update(AnActionEvent e) {
+                e.getPresentation().setEnabled(diffPanel.getDiffPanel().getLeftDiffIndex() != null);
+            }
+
+            @Override
+            public void actionPerformed(AnActionEvent e) {
+                exportPatch();
+            }
+        });
+        return actions;
+    }
+
+    private void computeStatistics(BinaryData leftData, BinaryData rightData) {
+        // Statistics don't depend on comparison mode and are computed only once for given data
+        if (isDisposed() || (statisticsLeftData == leftData && statisticsRightData == rightData)) {
+            return;
+        }
+
+        statisticsLeftData = leftData;
+        statisticsRightData = rightData;
+        ProgressIndicator previousIndicator = statisticsIndicator;
+        if (previousIndicator != null) {
+            previousIndicator.cancel();
+        }
+        ProgressManager.getInstance().run(new Task.Backgroundable(getProject(), "Computing data statistics", true) {
+            private BinaryDataStatistics leftStatistics;
+            private BinaryDataStatistics rightStatistics;
+
+            @Override
+            public void run(ProgressIndicator indicator) {
+                statisticsIndicator = indicator;
+                try (PerformanceTracker.Span span = PerformanceTracker.start(PerformanceTracker.CATEGORY_DIFF, "Statistics")) {
+                    leftStatistics = BinaryDataStatistics.compute(leftData, indicator::checkCanceled);
+                    rightStatistics = BinaryDataStatistics.compute(rightData, indicator::checkCanceled);
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                if (!isDisposed() && statisticsLeftData == leftData && statisticsRightData == rightData) {
+                    diffPanel.getDiffPanel().setStatistics(leftStatistics, rightStatistics);
+                }
+            }
+
+            @Override
+            public void onCancel() {
+                if (statisticsLeftData == leftData && statisticsRightData == rightData) {
+                    statisticsLeftData = null;
+                    statisticsRightData = null;
+                }
+            }
+        });
+    }
+
+    private void exportPatch() {
+        SectCodeAreaDiffPanel codeAreaDiffPanel = diffPanel.getDiffPanel();
+        BinaryData leftData = codeAreaDiffPanel.getLeftCodeArea().getContentData();
+        BinaryData rightData = codeAreaDiffPanel.getRightCodeArea().getContentData();
+        BinaryDiffAlignment alignment = codeAreaDiffPanel.getAlignment();
+        BinaryDiffIndex diffIndex = codeAreaDiffPanel.getLeftDiffIndex();
+        if (leftData == null || rightData == null || (alignment == null && diffIndex == null)) {
+            return;
+        }
+
+        FileSaverDescriptor descriptor = new FileSaverDescriptor("Export Patch", "Save VCDIFF patch", VcdiffPatch.FILE_EXTENSION);
+        VirtualFileWrapper fileWrapper = FileChooserFactory.getInstance().createSaveFileDialog(descriptor, getProject()).save((Path) null, null);
+        if (fileWrapper == null) {
+            return;
+        }
+
+        File patchFile = fileWrapper.getFile();
+        BinaryDiffAlignment patchAlignment = alignment != null ? alignment : BinaryDiffAlignment.fromDiffIndex(diffIndex, leftData.getDataSize(), rightData.getDataSize());
+        ProgressManager.getInstance().run(new Task.Backgroundable(getProject(), "Exporting patch", true) {
+            @Override
+            public void run(ProgressIndicator indicator) {
+                try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(patchFile.toPath()))) {
+                    VcdiffPatch.encode(leftData, rightData, patchAlignment, outputStream, indicator::checkCanceled);
+                } catch (IOException ex) {
+                    ApplicationManager.getApplication().invokeLater(() -> Messages.showErrorDialog(getProject(), ex.getMessage(), "Unable to Export Patch"), ModalityState.any());
+                }
+            }
+        });
+    }
+
     @Nonnull
     @Override
     public JComponent getComponent() {
-        diffPanel.setDiffContent(myRequest);
         return diffPanel;
     }
 
+    @Nullable
+    @Override
+    public Object getData(String dataId) {
+        if (DiffDataKeys.PREV_NEXT_DIFFERENCE_ITERABLE.is(dataId)) {
+            return new PrevNextDifferenceIterable() {
+                @Override
+                public boolean canGoNext() {
+                    return diffPanel.canGoToNextDifference();
+                }
+
+                @Override
+                public boolean canGoPrev() {
+                    return diffPanel.canGoToPreviousDifference();
+                }
+
+                @Override
+                public void goNext() {
+                    diffPanel.goToNextDifference();
+                }
+
+                @Override
+                public void goPrev() {
+                    diffPanel.goToPreviousDifference();
+                }
+            };
+        }
+        return super.getData(dataId);
+    }
+
     @Nonnull
     @Override
     public JComponent getPreferredFocusedComponent() {
         return diffPanel;
     }
+
+    @Override
+    protected void onDispose() {
+        ProgressIndicator indicator = statisticsIndicator;
+        if (indicator != null) {
+            indicator.cancel();
+        }
+        diffPanel.dispose();
+        super.onDispose();
+    }
+
+    @Nonnull
+    private static OptionsStorage getOptionsStorage() {
+        return App.getModule(OptionsModuleApi.class).getAppOptions();
+    }
 }
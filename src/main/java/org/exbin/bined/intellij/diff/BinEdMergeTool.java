@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff;
+
+import com.intellij.diff.merge.BinaryMergeRequest;
+import com.intellij.diff.merge.MergeContext;
+import com.intellij.diff.merge.MergeRequest;
+import com.intellij.diff.merge.MergeTool;
+import org.exbin.bined.intellij.BinEdPluginStartupActivity;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * BinEd merge support provider for three-way merge of binary files.
+ */
+@ParametersAreNonnullByDefault
+public class BinEdMergeTool implements MergeTool {
+
+    private boolean actionVisible = true;
+
+    public BinEdMergeTool() {
+        BinEdPluginStartupActivity.addIntegrationOptionsListener(
+                integrationOptions -> actionVisible = integrationOptions.isRegisterByteToByteDiffTool()
+        );
+    }
+
+    @Override
+    public boolean canShow(MergeContext context, MergeRequest request) {
+        return actionVisible && request instanceof BinaryMergeRequest && ((BinaryMergeRequest) request).getContents().size() == 3;
+    }
+
+    @Nonnull
+    @Override
+    public MergeViewer createComponent(MergeContext context, MergeRequest request) {
+        return new BinEdMergeViewer(context, (BinaryMergeRequest) request);
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff;
+
+import com.intellij.diff.contents.DiffContent;
+import com.intellij.diff.contents.FileContent;
+import com.intellij.diff.merge.BinaryMergeRequest;
+import com.intellij.diff.merge.MergeContext;
+import com.intellij.diff.merge.MergeResult;
+import com.intellij.diff.merge.MergeTool;
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.auxiliary.binary_data.array.ByteArrayData;
+import org.exbin.bined.intellij.diff.gui.BinedMergePanel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.swing.AbstractAction;
+import javax.swing.Action;
+import javax.swing.Icon;
+import javax.swing.JComponent;
+import java.awt.event.ActionEvent;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * BinEd three-way merge viewer for binary files.
+ * <p>
+ * Merge ranges are computed in background, merged result is written to
+ * output file directly from source data.
+ */
+@ParametersAreNonnullByDefault
+public class BinEdMergeViewer implements MergeTool.MergeViewer {
+
+    private final MergeContext context;
+    private final BinaryMergeRequest request;
+    private final BinedMergePanel mergePanel = new BinedMergePanel();
+    private final List<Closeable> openedProviders = new ArrayList<>();
+    private final BinaryData baseData;
+    private final BinaryData leftData;
+    private final BinaryData rightData;
+    private final Action applyAction;
+    private volatile ProgressIndicator computeIndicator = null;
+    private volatile boolean disposed = false;
+
+    public BinEdMergeViewer(MergeContext context, BinaryMergeRequest request) {
+        this.context = context;
+        this.request = request;
+        leftData = getContentData(0);
+        baseData = getContentData(1);
+        rightData = getContentData(2);
+        mergePanel.setContentData(baseData, leftData, rightData);
+
+        applyAction = new AbstractAction("Apply") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (writeResult()) {
+                    request.applyResult(MergeResult.RESOLVED);
+                    context.finishMerge(MergeResult.RESOLVED);
+                }
+            }
+        };
+        applyAction.setEnabled(false);
+        mergePanel.setResolutionChangeListener(() -> {
+            BinaryMergeModel mergeModel = mergePanel.getMergeModel();
+            applyAction.setEnabled(mergeModel != null && mergeModel.getUnresolvedCount() == 0);
+        });
+    }
+
+    @Nonnull
+    @Override
+    public JComponent getComponent() {
+        return mergePanel;
+    }
+
+    @Nullable
+    @Override
+    public JComponent getPreferredFocusedComponent() {
+        return mergePanel.getResultCodeArea();
+    }
+
+    @Nonnull
+    @Override
+    public MergeTool.ToolbarComponents init() {
+        ProgressManager.getInstance().run(new Task.Backgroundable(context.getProject(), "Comparing merged contents", true) {
+            private BinaryMergeModel mergeModel;
+
+            @Override
+            public void run(ProgressIndicator indicator) {
+                computeIndicator = indicator;
+                mergeModel = BinaryDiffEngine.computeMerge(baseData, leftData, rightData, indicator::checkCanceled);
+            }
+
+            @Override
+            public void onSuccess() {
+                if (!disposed) {
+                    mergePanel.setMergeModel(mergeModel);
+                }
+            }
+        });
+
+        MergeTool.ToolbarComponents components = new MergeTool.ToolbarComponents();
+        components.toolbarActions = createToolbarActions();
+        return components;
+    }
+
+    @Nullable
+    @Override
+    public Action getResolveAction(MergeResult result) {
+        switch (result) {
+            case LEFT:
+                return createFinishAction("Accept Yours", result);
+            case RIGHT:
+                return createFinishAction("Accept Theirs", result);
+            case CANCEL:
+                return createFinishAction("Abort", result);
+            case RESOLVED:
+                return applyAction;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        ProgressIndicator indicator = computeIndicator;
+        if (indicator != null) {
+            indicator.cancel();
+        }
+        for (Closeable openedProvider : openedProviders) {
+            try {
+                openedProvider.close();
+            } catch (IOException ex) {
+                Logger.getLogger(BinEdMergeViewer.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+        openedProviders.clear();
+    }
+
+    @Nonnull
+    private List<AnAction> createToolbarActions() {
+        List<AnAction> actions = new ArrayList<>();
+        actions.add(new MergePanelAction("Previous Conflict", AllIcons.Actions.PreviousOccurence) {
+            @Override
+            public void update(AnActionEvent e) {
+                e.getPresentation().setEnabled(mergePanel.canGoToPreviousConflict());
+            }
+
+            @Override
+            public void actionPerformed(AnActionEvent e) {
+                mergePanel.goToPreviousConflict();
+            }
+        });
+        actions.add(new MergePanelAction("Next Conflict", AllIcons.Actions.NextOccurence) {
+            @Override
+            public void update(AnActionEvent e) {
+                e.getPresentation().setEnabled(mergePanel.canGoToNextConflict());
+            }
+
+            @Override
+            public void actionPerformed(AnActionEvent e) {
+                mergePanel.goToNextConflict();
+            }
+        });
+        actions.add(createAcceptAction("Accept Yours at Cursor", BinaryMergeModel.Side.LEFT));
+        actions.add(createAcceptAction("Accept Base at Cursor", BinaryMergeModel.Side.BASE));
+        actions.add(createAcceptAction("Accept Theirs at Cursor", BinaryMergeModel.Side.RIGHT));
+        return actions;
+    }
+
+    @Nonnull
+    private AnAction createAcceptAction(String text, BinaryMergeModel.Side side) {
+        return new MergePanelAction(text, null) {
+            @Override
+            public void update(AnActionEvent e) {
+                e.getPresentation().setEnabled(mergePanel.getCurrentRange() >= 0);
+            }
+
+            @Override
+            public void actionPerformed(AnActionEvent e) {
+                mergePanel.resolveCurrentRange(side);
+            }
+        };
+    }
+
+    @Nonnull
+    private Action createFinishAction(String text, MergeResult result) {
+        return new AbstractAction(text) {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                request.applyResult(result);
+                context.finishMerge(result);
+            }
+        };
+    }
+
+    /**
+     * Streams merged result to output file.
+     *
+     * @return true if result was written
+     */
+    private boolean writeResult() {
+        BinaryMergeModel mergeModel = mergePanel.getMergeModel();
+        if (mergeModel == null) {
+            return false;
+        }
+
+        VirtualFile outputFile = request.getOutputContent().getFile();
+        try {
+            WriteAction.run(() -> {
+                try (OutputStream outputStream = outputFile.getOutputStream(this)) {
+                    mergeModel.writeResult(outputStream);
+                }
+            });
+            return true;
+        } catch (IOException ex) {
+            Logger.getLogger(BinEdMergeViewer.class.getName()).log(Level.SEVERE, null, ex);
+            Messages.showErrorDialog(mergePanel, "Unable to write merged result: " + ex.getMessage(), "Merge Failed");
+            return false;
+        }
+    }
+
+    @Nonnull
+    private BinaryData getContentData(int index) {
+        DiffContent content = request.getContents().get(index);
+        if (content instanceof FileContent) {
+            VirtualFile file = ((FileContent) content).getFile();
+            // Output file is rewritten when merge is applied so it's never read on demand
+            if (file.isInLocalFileSystem() && !file.equals(request.getOutputContent().getFile())) {
+                BinaryData data = DiffContentBinaryData.createBinaryData(content, openedProviders);
+                if (data != null) {
+                    return data;
+                }
+            }
+        }
+
+        // Content already loaded by the request is used without copy
+        return new ByteArrayData(request.getByteContents().get(index));
+    }
+
+    /**
+     * Toolbar action operating on merge panel.
+     */
+    private abstract static class MergePanelAction extends DumbAwareAction {
+
+        public MergePanelAction(String text, @Nullable Icon icon) {
+            super(text, null, icon);
+        }
+
+        @Nonnull
+        @Override
+        public ActionUpdateThread getActionUpdateThread() {
+            return ActionUpdateThread.EDT;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff;
+
+import org.exbin.auxiliary.binary_data.BinaryData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * Statistics of data blocks: byte histogram and Shannon entropy.
+ * <p>
+ * Data are split to limited number of equal blocks so that statistics of
+ * any data size can be rendered in constant time.
+ */
+@ParametersAreNonnullByDefault
+public class BinaryDataStatistics {
+
+    public static final int MAX_BLOCKS_COUNT = 2048;
+    public static final int MIN_BLOCK_SIZE = 4096;
+    public static final double MAX_ENTROPY = 8;
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+
+    private final long dataSize;
+    private final long blockSize;
+    private final float[] entropies;
+    private final int[][] histograms;
+
+    private BinaryDataStatistics(long dataSize, long blockSize, float[] entropies, int[][] histograms) {
+        this.dataSize = dataSize;
+        this.blockSize = blockSize;
+        this.entropies = entropies;
+        this.histograms = histograms;
+    }
+
+    /**
+     * Computes statistics of all data blocks.
+     * <p>
+     * Data implementations are not required to be thread safe and reading
+     * dominates the computation, so data are read sequentially in one pass.
+     *
+     * @param data data
+     * @param cancelCheck check called periodically, can throw exception to cancel computation
+     * @return statistics
+     */
+    @Nonnull
+    public static BinaryDataStatistics compute(BinaryData data, Runnable cancelCheck) {
+        long dataSize = data.getDataSize();
+        long blockSize = Math.max(MIN_BLOCK_SIZE, (dataSize + MAX_BLOCKS_COUNT - 1) / MAX_BLOCKS_COUNT);
+        int blocksCount = (int) ((dataSize + blockSize - 1) / blockSize);
+        float[] entropies = new float[blocksCount];
+        int[][] histograms = new int[blocksCount][];
+        byte[] buffer = new byte[(int) Math.min(READ_BUFFER_SIZE, Math.max(blockSize, 1))];
+        for (int block = 0; block < blocksCount; block++) {
+            long blockStart = block * blockSize;
+            long blockEnd = Math.min(blockStart + blockSize, dataSize);
+            int[] histogram = new int[256];
+            for (long position = blockStart; position < blockEnd; position += buffer.length) {
+                cancelCheck.run();
+                int length = (int) Math.min(buffer.length, blockEnd - position);
+                // Data implementations are not required to be thread safe
+                synchronized (data) {
+                    data.copyToArray(position, buffer, 0, length);
+                }
+                for (int i = 0; i < length; i++) {
+                    histogram[buffer[i] & 0xff]++;
+                }
+            }
+            histograms[block] = histogram;
+            entropies[block] = (float) computeEntropy(histogram, blockEnd - blockStart);
+        }
+        return new BinaryDataStatistics(dataSize, blockSize, entropies, histograms);
+    }
+
+    /**
+     * Computes Shannon entropy of bytes in bits per byte.
+     *
+     * @param histogram occurrences count for each byte value
+     * @param length total count
+     * @return entropy in range 0 to 8
+     */
+    public static double computeEntropy(int[] histogram, long length) {
+        if (length == 0) {
+            return 0;
+        }
+
+        double entropy = 0;
+        for (int count : histogram) {
+            if (count > 0) {
+                double probability = (double) count / length;
+                entropy -= probability * Math.log(probability);
+            }
+        }
+        return entropy / Math.log(2);
+    }
+
+    public long getDataSize() {
+        return dataSize;
+    }
+
+    public long getBlockSize() {
+        return blockSize;
+    }
+
+    public int getBlocksCount() {
+        return entropies.length;
+    }
+
+    public long getBlockStart(int blockIndex) {
+        return blockIndex * blockSize;
+    }
+
+    public long getBlockEnd(int blockIndex) {
+        return Math.min((blockIndex + 1) * blockSize, dataSize);
+    }
+
+    public double getEntropy(int blockIndex) {
+        return entropies[blockIndex];
+    }
+
+    /**
+     * Returns histogram of block bytes.
+     *
+     * @param blockIndex block index
+     * @return occurrences count for each byte value, must not be modified
+     */
+    @Nonnull
+    public int[] getHistogram(int blockIndex) {
+        return histograms[blockIndex];
+    }
+
+    /**
+     * Returns index of block containing given position.
+     *
+     * @param position data position
+     * @return block index or -1 if position is out of data
+     */
+    public int findBlock(long position) {
+        if (position < 0 || position >= dataSize) {
+            return -1;
+        }
+        return (int) (position / blockSize);
+    }
+
+    /**
+     * Returns fraction of bytes of each block covered by difference ranges.
+     *
+     * @param diffIndex difference index
+     * @return array of fractions in range 0 to 1 for each block
+     */
+    @Nonnull
+    public float[] computeDifferentFractions(BinaryDiffIndex diffIndex) {
+        float[] fractions = new float[entropies.length];
+        long[] differentBytes = new long[entropies.length];
+        for (int i = 0; i < diffIndex.getRangesCount(); i++) {
+            long rangeStart = Math.min(diffIndex.getRangeStart(i), dataSize);
+            long rangeEnd = Math.min(diffIndex.getRangeEnd(i), dataSize);
+            while (rangeStart < rangeEnd) {
+                int block = (int) (rangeStart / blockSize);
+                long end = Math.min(rangeEnd, getBlockEnd(block));
+                differentBytes[block] += end - rangeStart;
+                rangeStart = end;
+            }
+        }
+        for (int block = 0; block < fractions.length; block++) {
+            fractions[block] = (float) differentBytes[block] / (getBlockEnd(block) - getBlockStart(block));
+        }
+        return fractions;
+    }
+}
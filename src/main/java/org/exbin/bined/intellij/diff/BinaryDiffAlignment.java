@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Arrays;
+
+/**
+ * Alignment of compared data as list of matching blocks.
+ * <p>
+ * Blocks are ordered ascending on both sides, bytes not covered by any block
+ * are deleted on left side or inserted on right side.
+ */
+@ParametersAreNonnullByDefault
+public class BinaryDiffAlignment {
+
+    private final long[] leftStarts;
+    private final long[] rightStarts;
+    private final long[] lengths;
+    private final BinaryDiffIndex leftIndex;
+    private final BinaryDiffIndex rightIndex;
+
+    private BinaryDiffAlignment(long[] leftStarts, long[] rightStarts, long[] lengths, long leftSize, long rightSize) {
+        this.leftStarts = leftStarts;
+        this.rightStarts = rightStarts;
+        this.lengths = lengths;
+        leftIndex = buildGapsIndex(leftStarts, lengths, leftSize);
+        rightIndex = buildGapsIndex(rightStarts, lengths, rightSize);
+    }
+
+    public int getBlocksCount() {
+        return lengths.length;
+    }
+
+    public long getBlockLeftStart(int blockIndex) {
+        return leftStarts[blockIndex];
+    }
+
+    public long getBlockRightStart(int blockIndex) {
+        return rightStarts[blockIndex];
+    }
+
+    public long getBlockLength(int blockIndex) {
+        return lengths[blockIndex];
+    }
+
+    /**
+     * Returns index of left data ranges without matching right data.
+     *
+     * @return index of deleted ranges
+     */
+    @Nonnull
+    public BinaryDiffIndex getLeftIndex() {
+        return leftIndex;
+    }
+
+    /**
+     * Returns index of right data ranges without matching left data.
+     *
+     * @return index of inserted ranges
+     */
+    @Nonnull
+    public BinaryDiffIndex getRightIndex() {
+        return rightIndex;
+    }
+
+    /**
+     * Maps left data position to aligned right data position.
+     *
+     * @param position left position
+     * @return right position
+     */
+    public long mapLeftToRight(long position) {
+        return mapPosition(leftStarts, rightStarts, position);
+    }
+
+    /**
+     * Maps right data position to aligned left data position.
+     *
+     * @param position right position
+     * @return left position
+     */
+    public long mapRightToLeft(long position) {
+        return mapPosition(rightStarts, leftStarts, position);
+    }
+
+    private long mapPosition(long[] sourceStarts, long[] targetStarts, long position) {
+        int index = Arrays.binarySearch(sourceStarts, position);
+        int block = index >= 0 ? index : -index - 2;
+        if (block < 0) {
+            // Before first block both sides start together
+            return lengths.length == 0 ? position : Math.min(position, targetStarts[0]);
+        }
+
+        long offset = position - sourceStarts[block];
+        if (offset < lengths[block]) {
+            return targetStarts[block] + offset;
+        }
+
+        // Gap after block is aligned to its start on the other side, clamped to the next block
+        long targetPosition = targetStarts[block] + offset;
+        return block + 1 < lengths.length ? Math.min(targetPosition, targetStarts[block + 1]) : targetPosition;
+    }
+
+    /**
+     * Creates alignment of byte to byte comparison where matching blocks are
+     * unchanged ranges on the same positions.
+     *
+     * @param diffIndex difference index
+     * @param leftSize left data size
+     * @param rightSize right data size
+     * @return alignment
+     */
+    @Nonnull
+    public static BinaryDiffAlignment fromDiffIndex(BinaryDiffIndex diffIndex, long leftSize, long rightSize) {
+        long commonSize = Math.min(leftSize, rightSize);
+        Builder builder = new Builder();
+        long position = 0;
+        for (int i = 0; i < diffIndex.getRangesCount() && position < commonSize; i++) {
+            long rangeStart = Math.min(diffIndex.getRangeStart(i), commonSize);
+            if (rangeStart > position) {
+                builder.addBlock(position, position, rangeStart - position);
+            }
+            position = diffIndex.getRangeEnd(i);
+        }
+        if (position < commonSize) {
+            builder.addBlock(position, position, commonSize - position);
+        }
+        return builder.build(leftSize, rightSize);
+    }
+
+    @Nonnull
+    private static BinaryDiffIndex buildGapsIndex(long[] starts, long[] lengths, long dataSize) {
+        BinaryDiffIndex.Builder builder = new BinaryDiffIndex.Builder();
+        long position = 0;
+        for (int i = 0; i < starts.length; i++) {
+            builder.addRange(position, starts[i]);
+            position = starts[i] + lengths[i];
+        }
+        builder.addRange(position, dataSize);
+        return builder.build(dataSize);
+    }
+
+    /**
+     * Builder for alignment collecting blocks in ascending order.
+     */
+    @ParametersAreNonnullByDefault
+    public static class Builder {
+
+        private long[] leftStarts = new long[16];
+        private long[] rightStarts = new long[16];
+        private long[] lengths = new long[16];
+        private int blocksCount = 0;
+
+        /**
+         * Adds matching block, blocks have to be added in ascending order on
+         * both sides.
+         *
+         * @param leftStart left start position
+         * @param rightStart right start position
+         * @param length block length
+         */
+        public void addBlock(long leftStart, long rightStart, long length) {
+            if (blocksCount > 0) {
+                int last = blocksCount - 1;
+                if (leftStarts[last] + lengths[last] == leftStart && rightStarts[last] + lengths[last] == rightStart) {
+                    lengths[last] += length;
+                    return;
+                }
+            }
+
+            if (blocksCount == lengths.length) {
+                leftStarts = Arrays.copyOf(leftStarts, blocksCount * 2);
+                rightStarts = Arrays.copyOf(rightStarts, blocksCount * 2);
+                lengths = Arrays.copyOf(lengths, blocksCount * 2);
+            }
+            leftStarts[blocksCount] = leftStart;
+            rightStarts[blocksCount] = rightStart;
+            lengths[blocksCount] = length;
+            blocksCount++;
+        }
+
+        @Nonnull
+        public BinaryDiffAlignment build(long leftSize, long rightSize) {
+            return new BinaryDiffAlignment(Arrays.copyOf(leftStarts, blocksCount), Arrays.copyOf(rightStarts, blocksCount), Arrays.copyOf(lengths, blocksCount), leftSize, rightSize);
+        }
+    }
+}
@@ -0,0 +1,517 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff;
+
+import org.exbin.auxiliary.binary_data.BinaryData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Comparison of two binary data producing index of different ranges.
+ * <p>
+ * Data are compared in chunks processed in parallel, chunk bytes are
+ * compared using {@link Arrays#mismatch(byte[], int, int, byte[], int, int)}
+ * which is vectorized by JVM.
+ * <p>
+ * Alternatively data can be aligned to detect inserted and deleted bytes
+ * using rolling hash lookup of right data blocks similar to rsync.
+ * <p>
+ * Three-way comparison with base data is used for merging.
+ */
+@ParametersAreNonnullByDefault
+public class BinaryDiffEngine {
+
+    public static final int CHUNK_SIZE = 1024 * 1024;
+    public static final int MIN_ALIGNMENT_BLOCK_SIZE = 32;
+    private static final int MAX_INDEXED_BLOCKS = 1024 * 1024;
+    private static final long HASH_BASE = 0x100000001b3L;
+    private static final int WINDOW_SIZE = 64 * 1024;
+
+    private BinaryDiffEngine() {
+    }
+
+    /**
+     * Computes index of different ranges.
+     *
+     * @param leftData left data
+     * @param rightData right data
+     * @param cancelCheck check called periodically, can throw exception to cancel computation
+     * @return difference index
+     */
+    @Nonnull
+    public static BinaryDiffIndex computeIndex(BinaryData leftData, BinaryData rightData, Runnable cancelCheck) {
+        return computeIndex(leftData, rightData, (ChunkListener) null, cancelCheck);
+    }
+
+    /**
+     * Computes index of different ranges reporting summary of compared chunks.
+     * <p>
+     * Summary is produced by the same pass which compares bytes, so data are
+     * read only once.
+     *
+     * @param leftData left data
+     * @param rightData right data
+     * @param progressListener listener called from worker threads after each compared chunk
+     * @param cancelCheck check called periodically, can throw exception to cancel computation
+     * @return difference index
+     */
+    @Nonnull
+    public static BinaryDiffIndex computeIndex(BinaryData leftData, BinaryData rightData, ProgressListener progressListener, Runnable cancelCheck) {
+        long commonSize = Math.min(leftData.getDataSize(), rightData.getDataSize());
+        int chunksCount = (int) ((commonSize + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        AtomicInteger comparedChunks = new AtomicInteger();
+        AtomicInteger differentChunks = new AtomicInteger();
+        return computeIndex(leftData, rightData, (chunk, ranges) -> {
+            int different = ranges.length > 0 ? differentChunks.incrementAndGet() : differentChunks.get();
+            progressListener.chunkCompared(comparedChunks.incrementAndGet(), different, chunksCount);
+        }, cancelCheck);
+    }
+
+    @Nonnull
+    private static BinaryDiffIndex computeIndex(BinaryData leftData, BinaryData rightData, @Nullable ChunkListener chunkListener, Runnable cancelCheck) {
+        long leftSize = leftData.getDataSize();
+        long rightSize = rightData.getDataSize();
+        long commonSize = Math.min(leftSize, rightSize);
+        int chunksCount = (int) ((commonSize + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        List<long[]> chunkRanges = IntStream.range(0, chunksCount).parallel().mapToObj(chunk -> {
+            cancelCheck.run();
+            long position = (long) chunk * CHUNK_SIZE;
+            int length = (int) Math.min(CHUNK_SIZE, commonSize - position);
+            byte[] leftChunk = new byte[length];
+            byte[] rightChunk = new byte[length];
+            // Data implementations are not required to be thread safe
+            synchronized (leftData) {
+                leftData.copyToArray(position, leftChunk, 0, length);
+            }
+            synchronized (rightData) {
+                rightData.copyToArray(position, rightChunk, 0, length);
+            }
+            long[] ranges = compareChunk(position, leftChunk, rightChunk, length);
+            if (chunkListener != null) {
+                chunkListener.chunkCompared(chunk, ranges);
+            }
+            return ranges;
+        }).collect(Collectors.toList());
+
+        BinaryDiffIndex.Builder builder = new BinaryDiffIndex.Builder();
+        for (long[] ranges : chunkRanges) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                builder.addRange(ranges[i], ranges[i + 1]);
+            }
+        }
+        if (leftSize != rightSize) {
+            builder.addRange(commonSize, Math.max(leftSize, rightSize));
+        }
+        return builder.build(Math.max(leftSize, rightSize));
+    }
+
+    /**
+     * Computes alignment of data detecting inserted and deleted bytes.
+     * <p>
+     * Right data are split to fixed size blocks indexed by hash, left data
+     * are scanned using rolling hash and each found block is extended to
+     * maximum matching length. Only blocks ascending on both sides are used.
+     *
+     * @param leftData left data
+     * @param rightData right data
+     * @param cancelCheck check called periodically, can throw exception to cancel computation
+     * @return alignment
+     */
+    @Nonnull
+    public static BinaryDiffAlignment computeAlignment(BinaryData leftData, BinaryData rightData, Runnable cancelCheck) {
+        long leftSize = leftData.getDataSize();
+        long rightSize = rightData.getDataSize();
+        int blockSize = (int) Math.max(MIN_ALIGNMENT_BLOCK_SIZE, (rightSize + MAX_INDEXED_BLOCKS - 1) / MAX_INDEXED_BLOCKS);
+        BinaryDiffAlignment.Builder builder = new BinaryDiffAlignment.Builder();
+        if (leftSize < blockSize || rightSize < blockSize) {
+            return builder.build(leftSize, rightSize);
+        }
+
+        DataWindow leftWindow = new DataWindow(leftData, blockSize);
+        DataWindow rightWindow = new DataWindow(rightData, blockSize);
+        long blocksCount = rightSize / blockSize;
+        BlockHashTable hashTable = new BlockHashTable((int) blocksCount);
+        for (int block = 0; block < blocksCount; block++) {
+            if ((block & 0xfff) == 0) {
+                cancelCheck.run();
+            }
+            hashTable.putIfAbsent(computeHash(rightWindow, (long) block * blockSize, blockSize), block);
+        }
+
+        long outFactor = 1;
+        for (int i = 1; i < blockSize; i++) {
+            outFactor *= HASH_BASE;
+        }
+
+        long lastLeftEnd = 0;
+        long lastRightEnd = 0;
+        long position = 0;
+        long hash = computeHash(leftWindow, position, blockSize);
+        while (true) {
+            if ((position & 0xffff) == 0) {
+                cancelCheck.run();
+            }
+
+            long matchRight = -1;
+            int block = hashTable.get(hash);
+            if (block >= 0) {
+                long candidate = (long) block * blockSize;
+                if (candidate >= lastRightEnd && matchLength(leftWindow, position, rightWindow, candidate, blockSize) == blockSize) {
+                    matchRight = candidate;
+                } else {
+                    // Repeated blocks are indexed only once, try position continuing previous alignment
+                    long diagonal = lastRightEnd + (position - lastLeftEnd);
+                    if (diagonal + blockSize <= rightSize && matchLength(leftWindow, position, rightWindow, diagonal, blockSize) == blockSize) {
+                        matchRight = diagonal;
+                    }
+                }
+            }
+
+            if (matchRight >= 0) {
+                long leftStart = position;
+                long rightStart = matchRight;
+                while (leftStart > lastLeftEnd && rightStart > lastRightEnd && leftWindow.get(leftStart - 1) == rightWindow.get(rightStart - 1)) {
+                    leftStart--;
+                    rightStart--;
+                }
+                long length = (position - leftStart) + blockSize;
+                length += matchLength(leftWindow, leftStart + length, rightWindow, rightStart + length, Math.min(leftSize - leftStart, rightSize - rightStart) - length);
+                builder.addBlock(leftStart, rightStart, length);
+                lastLeftEnd = leftStart + length;
+                lastRightEnd = rightStart + length;
+                position = lastLeftEnd;
+                if (position + blockSize > leftSize) {
+                    break;
+                }
+                hash = computeHash(leftWindow, position, blockSize);
+                continue;
+            }
+
+            if (position + blockSize >= leftSize) {
+                break;
+            }
+            hash = (hash - (leftWindow.get(position) & 0xff) * outFactor) * HASH_BASE + (leftWindow.get(position + blockSize) & 0xff);
+            position++;
+        }
+
+        return builder.build(leftSize, rightSize);
+    }
+
+    /**
+     * Computes three-way merge model of left and right data changed from
+     * base data.
+     * <p>
+     * Chunks of all three sides are compared in parallel, bytes where both
+     * sides differ from base and from each other are reported as conflicts.
+     *
+     * @param baseData base data
+     * @param leftData left data
+     * @param rightData right data
+     * @param cancelCheck check called periodically, can throw exception to cancel computation
+     * @return merge model
+     */
+    @Nonnull
+    public static BinaryMergeModel computeMerge(BinaryData baseData, BinaryData leftData, BinaryData rightData, Runnable cancelCheck) {
+        long baseSize = baseData.getDataSize();
+        long leftSize = leftData.getDataSize();
+        long rightSize = rightData.getDataSize();
+        long commonSize = Math.min(baseSize, Math.min(leftSize, rightSize));
+        int chunksCount = (int) ((commonSize + CHUNK_SIZE - 1) / CHUNK_SIZE);
+
+        List<long[]> chunkRanges = IntStream.range(0, chunksCount).parallel().mapToObj(chunk -> {
+            cancelCheck.run();
+            long position = (long) chunk * CHUNK_SIZE;
+            int length = (int) Math.min(CHUNK_SIZE, commonSize - position);
+            byte[] baseChunk = new byte[length];
+            byte[] leftChunk = new byte[length];
+            byte[] rightChunk = new byte[length];
+            synchronized (baseData) {
+                baseData.copyToArray(position, baseChunk, 0, length);
+            }
+            synchronized (leftData) {
+                leftData.copyToArray(position, leftChunk, 0, length);
+            }
+            synchronized (rightData) {
+                rightData.copyToArray(position, rightChunk, 0, length);
+            }
+            return compareMergeChunk(position, baseChunk, leftChunk, rightChunk, length);
+        }).collect(Collectors.toList());
+
+        BinaryMergeModel.ChangeType[] changeTypes = BinaryMergeModel.ChangeType.values();
+        BinaryMergeModel.Builder builder = new BinaryMergeModel.Builder();
+        for (long[] ranges : chunkRanges) {
+            for (int i = 0; i < ranges.length; i += 3) {
+                builder.addRange(ranges[i], ranges[i + 1], changeTypes[(int) ranges[i + 2]]);
+            }
+        }
+
+        long maxSize = Math.max(baseSize, Math.max(leftSize, rightSize));
+        if (commonSize < maxSize) {
+            // Trailing bytes are resolved as single range
+            cancelCheck.run();
+            DataWindow baseWindow = new DataWindow(baseData, MIN_ALIGNMENT_BLOCK_SIZE);
+            DataWindow leftWindow = new DataWindow(leftData, MIN_ALIGNMENT_BLOCK_SIZE);
+            DataWindow rightWindow = new DataWindow(rightData, MIN_ALIGNMENT_BLOCK_SIZE);
+            boolean leftChanged = leftSize != baseSize || matchLength(leftWindow, commonSize, baseWindow, commonSize, leftSize - commonSize) != leftSize - commonSize;
+            boolean rightChanged = rightSize != baseSize || matchLength(rightWindow, commonSize, baseWindow, commonSize, rightSize - commonSize) != rightSize - commonSize;
+            BinaryMergeModel.ChangeType tailType;
+            if (leftChanged && rightChanged) {
+                boolean sameChange = leftSize == rightSize && matchLength(leftWindow, commonSize, rightWindow, commonSize, leftSize - commonSize) == leftSize - commonSize;
+                tailType = sameChange ? BinaryMergeModel.ChangeType.BOTH : BinaryMergeModel.ChangeType.CONFLICT;
+            } else {
+                tailType = leftChanged ? BinaryMergeModel.ChangeType.LEFT : BinaryMergeModel.ChangeType.RIGHT;
+            }
+            builder.addRange(commonSize, maxSize, tailType);
+        }
+
+        return builder.build(baseData, leftData, rightData);
+    }
+
+    private static long computeHash(DataWindow window, long position, int length) {
+        long hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = hash * HASH_BASE + (window.get(position + i) & 0xff);
+        }
+        return hash;
+    }
+
+    /**
+     * Returns length of matching data up to given maximum length.
+     */
+    private static long matchLength(DataWindow leftWindow, long leftPosition, DataWindow rightWindow, long rightPosition, long maxLength) {
+        long length = 0;
+        while (length < maxLength) {
+            int leftOffset = leftWindow.load(leftPosition + length);
+            int rightOffset = rightWindow.load(rightPosition + length);
+            int compareLength = (int) Math.min(maxLength - length, Math.min(leftWindow.length - leftOffset, rightWindow.length - rightOffset));
+            int mismatch = Arrays.mismatch(leftWindow.buffer, leftOffset, leftOffset + compareLength, rightWindow.buffer, rightOffset, rightOffset + compareLength);
+            if (mismatch >= 0) {
+                return length + mismatch;
+            }
+            length += compareLength;
+        }
+        return length;
+    }
+
+    /**
+     * Returns pairs of start and end positions of different ranges in chunk.
+     */
+    @Nonnull
+    private static long[] compareChunk(long position, byte[] leftChunk, byte[] rightChunk, int length) {
+        long[] ranges = new long[0];
+        int rangesLength = 0;
+        int offset = 0;
+        while (offset < length) {
+            int mismatch = Arrays.mismatch(leftChunk, offset, length, rightChunk, offset, length);
+            if (mismatch < 0) {
+                break;
+            }
+
+            int start = offset + mismatch;
+            int end = start + 1;
+            while (end < length && leftChunk[end] != rightChunk[end]) {
+                end++;
+            }
+
+            if (rangesLength == ranges.length) {
+                ranges = Arrays.copyOf(ranges, Math.max(rangesLength * 2, 16));
+            }
+            ranges[rangesLength++] = position + start;
+            ranges[rangesLength++] = position + end;
+            offset = end;
+        }
+
+        return Arrays.copyOf(ranges, rangesLength);
+    }
+
+    /**
+     * Returns triples of start position, end position and change type
+     * ordinal of changed ranges in chunk.
+     */
+    @Nonnull
+    private static long[] compareMergeChunk(long position, byte[] baseChunk, byte[] leftChunk, byte[] rightChunk, int length) {
+        long[] ranges = new long[0];
+        int rangesLength = 0;
+        int leftMismatch = -1;
+        int rightMismatch = -1;
+        int offset = 0;
+        while (offset < length) {
+            // Next mismatch of each side is searched again only when it was passed
+            if (leftMismatch < offset) {
+                int mismatch = Arrays.mismatch(leftChunk, offset, length, baseChunk, offset, length);
+                leftMismatch = mismatch < 0 ? length : offset + mismatch;
+            }
+            if (rightMismatch < offset) {
+                int mismatch = Arrays.mismatch(rightChunk, offset, length, baseChunk, offset, length);
+                rightMismatch = mismatch < 0 ? length : offset + mismatch;
+            }
+
+            int start = Math.min(leftMismatch, rightMismatch);
+            if (start >= length) {
+                break;
+            }
+
+            int changeType = getMergeChangeType(baseChunk[start], leftChunk[start], rightChunk[start]);
+            int end = start + 1;
+            while (end < length && getMergeChangeType(baseChunk[end], leftChunk[end], rightChunk[end]) == changeType) {
+                end++;
+            }
+
+            if (rangesLength == ranges.length) {
+                ranges = Arrays.copyOf(ranges, Math.max(rangesLength * 2, 24));
+            }
+            ranges[rangesLength++] = position + start;
+            ranges[rangesLength++] = position + end;
+            ranges[rangesLength++] = changeType;
+            offset = end;
+        }
+
+        return Arrays.copyOf(ranges, rangesLength);
+    }
+
+    /**
+     * Returns change type ordinal of single byte or -1 if not changed.
+     */
+    private static int getMergeChangeType(byte baseValue, byte leftValue, byte rightValue) {
+        boolean leftChanged = leftValue != baseValue;
+        boolean rightChanged = rightValue != baseValue;
+        if (leftChanged && rightChanged) {
+            return leftValue == rightValue ? BinaryMergeModel.ChangeType.BOTH.ordinal() : BinaryMergeModel.ChangeType.CONFLICT.ordinal();
+        }
+        if (leftChanged) {
+            return BinaryMergeModel.ChangeType.LEFT.ordinal();
+        }
+        return rightChanged ? BinaryMergeModel.ChangeType.RIGHT.ordinal() : -1;
+    }
+
+    /**
+     * Listener for progress of comparison.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Reports chunk comparison finished.
+         *
+         * @param comparedChunks number of already compared chunks
+         * @param differentChunks number of compared chunks with differences
+         * @param chunksCount total number of chunks of common data size
+         */
+        void chunkCompared(int comparedChunks, int differentChunks, int chunksCount);
+    }
+
+    private interface ChunkListener {
+
+        void chunkCompared(int chunk, long[] ranges);
+    }
+
+    /**
+     * Buffered window for sequential access to data.
+     */
+    @ParametersAreNonnullByDefault
+    private static class DataWindow {
+
+        private final BinaryData data;
+        private final long dataSize;
+        private final byte[] buffer;
+        private final int backMargin;
+        private long windowStart = 0;
+        private int length = 0;
+
+        public DataWindow(BinaryData data, int blockSize) {
+            this.data = data;
+            dataSize = data.getDataSize();
+            buffer = new byte[Math.max(WINDOW_SIZE, blockSize * 4)];
+            backMargin = blockSize + 256;
+        }
+
+        public byte get(long position) {
+            return buffer[load(position)];
+        }
+
+        /**
+         * Makes sure position is in the window.
+         *
+         * @return offset of position in buffer
+         */
+        public int load(long position) {
+            if (position < windowStart || position >= windowStart + length) {
+                // Preceding block is kept in window for rolling hash and backward match extension
+                windowStart = Math.max(0, position - backMargin);
+                length = (int) Math.min(buffer.length, dataSize - windowStart);
+                synchronized (data) {
+                    data.copyToArray(windowStart, buffer, 0, length);
+                }
+            }
+            return (int) (position - windowStart);
+        }
+    }
+
+    /**
+     * Open addressing hash table mapping block hashes to block indexes.
+     */
+    private static class BlockHashTable {
+
+        private final int[] keys;
+        private final int[] values;
+        private final int mask;
+
+        public BlockHashTable(int blocksCount) {
+            int capacity = Integer.highestOneBit(Math.max(blocksCount, 1)) * 4;
+            keys = new int[capacity];
+            values = new int[capacity];
+            Arrays.fill(values, -1);
+            mask = capacity - 1;
+        }
+
+        public void putIfAbsent(long hash, int block) {
+            int key = (int) (hash ^ (hash >>> 32));
+            int slot = key & mask;
+            while (values[slot] >= 0) {
+                if (keys[slot] == key) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = block;
+        }
+
+        /**
+         * Returns block index for hash, block has to be verified as the key
+         * is only part of the hash.
+         *
+         * @return block index or -1
+         */
+        public int get(long hash) {
+            int key = (int) (hash ^ (hash >>> 32));
+            int slot = key & mask;
+            while (values[slot] >= 0) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+    }
+}
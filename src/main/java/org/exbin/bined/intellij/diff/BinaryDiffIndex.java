@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Arrays;
+
+/**
+ * Sorted list of ranges where compared data differs.
+ */
+@ParametersAreNonnullByDefault
+public class BinaryDiffIndex {
+
+    private final long[] rangeStarts;
+    private final long[] rangeEnds;
+    private final long differentBytesCount;
+    private final long comparedSize;
+
+    private BinaryDiffIndex(long[] rangeStarts, long[] rangeEnds, long comparedSize) {
+        this.rangeStarts = rangeStarts;
+        this.rangeEnds = rangeEnds;
+        this.comparedSize = comparedSize;
+        long count = 0;
+        for (int i = 0; i < rangeStarts.length; i++) {
+            count += rangeEnds[i] - rangeStarts[i];
+        }
+        differentBytesCount = count;
+    }
+
+    public int getRangesCount() {
+        return rangeStarts.length;
+    }
+
+    public long getRangeStart(int rangeIndex) {
+        return rangeStarts[rangeIndex];
+    }
+
+    /**
+     * Returns end of the range.
+     *
+     * @param rangeIndex range index
+     * @return position after last different byte
+     */
+    public long getRangeEnd(int rangeIndex) {
+        return rangeEnds[rangeIndex];
+    }
+
+    public long getDifferentBytesCount() {
+        return differentBytesCount;
+    }
+
+    /**
+     * Returns size of compared data, which is size of the longer data.
+     *
+     * @return size in bytes
+     */
+    public long getComparedSize() {
+        return comparedSize;
+    }
+
+    public boolean isEmpty() {
+        return rangeStarts.length == 0;
+    }
+
+    public boolean isDifferent(long position) {
+        return findRange(position) >= 0;
+    }
+
+    /**
+     * Returns index of range containing given position.
+     *
+     * @param position position
+     * @return range index or -1 if position is not in any range
+     */
+    public int findRange(long position) {
+        int index = Arrays.binarySearch(rangeStarts, position);
+        if (index >= 0) {
+            return index;
+        }
+
+        int previous = -index - 2;
+        return previous >= 0 && position < rangeEnds[previous] ? previous : -1;
+    }
+
+    /**
+     * Returns index of first range starting after given position.
+     *
+     * @param position position
+     * @return range index or -1 if there is no such range
+     */
+    public int findNextRange(long position) {
+        int index = Arrays.binarySearch(rangeStarts, position);
+        int next = index >= 0 ? index + 1 : -index - 1;
+        return next < rangeStarts.length ? next : -1;
+    }
+
+    /**
+     * Returns index of last range starting before given position.
+     *
+     * @param position position
+     * @return range index or -1 if there is no such range
+     */
+    public int findPreviousRange(long position) {
+        int index = Arrays.binarySearch(rangeStarts, position);
+        return index >= 0 ? index - 1 : -index - 2;
+    }
+
+    /**
+     * Builder for index collecting ranges in ascending order.
+     */
+    @ParametersAreNonnullByDefault
+    public static class Builder {
+
+        private long[] rangeStarts = new long[16];
+        private long[] rangeEnds = new long[16];
+        private int rangesCount = 0;
+
+        /**
+         * Adds range, ranges have to be added in ascending order.
+         * <p>
+         * Range adjacent to previous range is merged with it.
+         *
+         * @param start start position
+         * @param end position after last different byte
+         */
+        public void addRange(long start, long end) {
+            if (end <= start) {
+                return;
+            }
+
+            if (rangesCount > 0 && rangeEnds[rangesCount - 1] >= start) {
+                rangeEnds[rangesCount - 1] = Math.max(rangeEnds[rangesCount - 1], end);
+                return;
+            }
+
+            if (rangesCount == rangeStarts.length) {
+                rangeStarts = Arrays.copyOf(rangeStarts, rangesCount * 2);
+                rangeEnds = Arrays.copyOf(rangeEnds, rangesCount * 2);
+            }
+            rangeStarts[rangesCount] = start;
+            rangeEnds[rangesCount] = end;
+            rangesCount++;
+        }
+
+        @Nonnull
+        public BinaryDiffIndex build(long comparedSize) {
+            return new BinaryDiffIndex(Arrays.copyOf(rangeStarts, rangesCount), Arrays.copyOf(rangeEnds, rangesCount), comparedSize);
+        }
+    }
+}
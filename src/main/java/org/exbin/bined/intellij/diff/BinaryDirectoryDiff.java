@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff;
+
+import org.exbin.bined.jaguif.objectdata.PageProviderBinaryData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Comparison of all files of two directories.
+ * <p>
+ * Files are compared in parallel. Files of different size are considered
+ * changed without reading them, other files are read once as streams until
+ * the first difference is found. Difference index of changed file is computed
+ * separately.
+ */
+@ParametersAreNonnullByDefault
+public class BinaryDirectoryDiff {
+
+    private static final int COMPARE_BUFFER_SIZE = 256 * 1024;
+
+    private final Path leftDirectory;
+    private final Path rightDirectory;
+    private final List<Entry> entries;
+
+    private BinaryDirectoryDiff(Path leftDirectory, Path rightDirectory, List<Entry> entries) {
+        this.leftDirectory = leftDirectory;
+        this.rightDirectory = rightDirectory;
+        this.entries = entries;
+    }
+
+    @Nonnull
+    public Path getLeftDirectory() {
+        return leftDirectory;
+    }
+
+    @Nonnull
+    public Path getRightDirectory() {
+        return rightDirectory;
+    }
+
+    /**
+     * Returns compared files sorted by relative path.
+     *
+     * @return list of entries
+     */
+    @Nonnull
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public long getEntriesCount(Status status) {
+        return entries.stream().filter(entry -> entry.getStatus() == status).count();
+    }
+
+    /**
+     * Compares all files of two directories including subdirectories.
+     *
+     * @param leftDirectory left directory
+     * @param rightDirectory right directory
+     * @param cancelCheck check called periodically, can throw exception to cancel computation
+     * @param progressListener listener for number of processed files or null
+     * @return directory comparison
+     * @throws IOException if directory cannot be listed
+     */
+    @Nonnull
+    public static BinaryDirectoryDiff compare(Path leftDirectory, Path rightDirectory, Runnable cancelCheck, @Nullable ProgressListener progressListener) throws IOException {
+        Map<String, Path> leftFiles = listFiles(leftDirectory);
+        Map<String, Path> rightFiles = listFiles(rightDirectory);
+        TreeSet<String> relativePaths = new TreeSet<>(leftFiles.keySet());
+        relativePaths.addAll(rightFiles.keySet());
+
+        int filesCount = relativePaths.size();
+        AtomicInteger processedCount = new AtomicInteger();
+        List<Entry> entries = new ArrayList<>(relativePaths).parallelStream().map(relativePath -> {
+            cancelCheck.run();
+            Entry entry = compareFiles(relativePath, leftFiles.get(relativePath), rightFiles.get(relativePath), cancelCheck);
+            if (progressListener != null) {
+                progressListener.progress(processedCount.incrementAndGet(), filesCount);
+            }
+            return entry;
+        }).collect(Collectors.toList());
+
+        return new BinaryDirectoryDiff(leftDirectory, rightDirectory, Collections.unmodifiableList(entries));
+    }
+
+    /**
+     * Returns difference index of entry, computes it if it's not available
+     * yet.
+     *
+     * @param entry compared file entry
+     * @param cancelCheck check called periodically, can throw exception to cancel computation
+     * @return difference index
+     * @throws IOException if files cannot be read
+     */
+    @Nonnull
+    public BinaryDiffIndex computeDiffIndex(Entry entry, Runnable cancelCheck) throws IOException {
+        BinaryDiffIndex diffIndex = entry.getDiffIndex();
+        if (diffIndex != null) {
+            return diffIndex;
+        }
+        if (entry.getStatus() == Status.FAILED) {
+            throw new IOException("Unable to compare file " + entry.getRelativePath());
+        }
+
+        try (FileChannelPageProvider leftProvider = new FileChannelPageProvider(leftDirectory.resolve(entry.getRelativePath()));
+             FileChannelPageProvider rightProvider = new FileChannelPageProvider(rightDirectory.resolve(entry.getRelativePath()))) {
+            diffIndex = BinaryDiffEngine.computeIndex(new PageProviderBinaryData(leftProvider), new PageProviderBinaryData(rightProvider), cancelCheck);
+        }
+        entry.setDiffIndex(diffIndex);
+        return diffIndex;
+    }
+
+    @Nonnull
+    private static Map<String, Path> listFiles(Path directory) throws IOException {
+        Map<String, Path> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.filter(Files::isRegularFile).forEach(path -> {
+                String relativePath = directory.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+                files.put(relativePath, path);
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        return files;
+    }
+
+    @Nonnull
+    private static Entry compareFiles(String relativePath, @Nullable Path leftFile, @Nullable Path rightFile, Runnable cancelCheck) {
+        try {
+            if (leftFile == null || rightFile == null) {
+                long size = Files.size(leftFile != null ? leftFile : rightFile);
+                BinaryDiffIndex.Builder builder = new BinaryDiffIndex.Builder();
+                builder.addRange(0, size);
+                return new Entry(relativePath, leftFile == null ? Status.RIGHT_ONLY : Status.LEFT_ONLY, leftFile == null ? -1 : size, rightFile == null ? -1 : size, builder.build(size));
+            }
+
+            long leftSize = Files.size(leftFile);
+            long rightSize = Files.size(rightFile);
+            if (leftSize != rightSize || !contentEquals(leftFile, rightFile, cancelCheck)) {
+                return new Entry(relativePath, Status.CHANGED, leftSize, rightSize, null);
+            }
+            return new Entry(relativePath, Status.IDENTICAL, leftSize, rightSize, new BinaryDiffIndex.Builder().build(leftSize));
+        } catch (IOException ex) {
+            return new Entry(relativePath, Status.FAILED, -1, -1, null);
+        }
+    }
+
+    /**
+     * Compares content of two files of the same size stopping at the first
+     * difference.
+     */
+    private static boolean contentEquals(Path leftFile, Path rightFile, Runnable cancelCheck) throws IOException {
+        try (FileChannel leftChannel = FileChannel.open(leftFile, StandardOpenOption.READ);
+             FileChannel rightChannel = FileChannel.open(rightFile, StandardOpenOption.READ)) {
+            ByteBuffer leftBuffer = ByteBuffer.allocate(COMPARE_BUFFER_SIZE);
+            ByteBuffer rightBuffer = ByteBuffer.allocate(COMPARE_BUFFER_SIZE);
+            while (true) {
+                cancelCheck.run();
+                int leftLength = readFully(leftChannel, leftBuffer);
+                int rightLength = readFully(rightChannel, rightBuffer);
+                if (leftLength != rightLength || Arrays.mismatch(leftBuffer.array(), 0, leftLength, rightBuffer.array(), 0, rightLength) >= 0) {
+                    return false;
+                }
+                if (leftLength < COMPARE_BUFFER_SIZE) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        return buffer.position();
+    }
+
+    /**
+     * Status of compared file.
+     */
+    public enum Status {
+        IDENTICAL, CHANGED, LEFT_ONLY, RIGHT_ONLY, FAILED
+    }
+
+    /**
+     * Comparison result of single file.
+     */
+    @ParametersAreNonnullByDefault
+    public static class Entry {
+
+        private final String relativePath;
+        private final Status status;
+        private final long leftSize;
+        private final long rightSize;
+        private volatile BinaryDiffIndex diffIndex;
+
+        public Entry(String relativePath, Status status, long leftSize, long rightSize, @Nullable BinaryDiffIndex diffIndex) {
+            this.relativePath = relativePath;
+            this.status = status;
+            this.leftSize = leftSize;
+            this.rightSize = rightSize;
+            this.diffIndex = diffIndex;
+        }
+
+        @Nonnull
+        public String getRelativePath() {
+            return relativePath;
+        }
+
+        @Nonnull
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * Returns size of left file.
+         *
+         * @return size in bytes or -1 if file is missing
+         */
+        public long getLeftSize() {
+            return leftSize;
+        }
+
+        /**
+         * Returns size of right file.
+         *
+         * @return size in bytes or -1 if file is missing
+         */
+        public long getRightSize() {
+            return rightSize;
+        }
+
+        /**
+         * Returns number of different bytes including bytes missing on
+         * one side.
+         *
+         * @return number of bytes or -1 if not computed yet
+         */
+        public long getChangedBytesCount() {
+            return diffIndex == null ? -1 : diffIndex.getDifferentBytesCount();
+        }
+
+        /**
+         * Returns index of differences.
+         *
+         * @return difference index or null if not computed yet or comparison failed
+         */
+        @Nullable
+        public BinaryDiffIndex getDiffIndex() {
+            return diffIndex;
+        }
+
+        private void setDiffIndex(BinaryDiffIndex diffIndex) {
+            this.diffIndex = diffIndex;
+        }
+    }
+
+    /**
+     * Listener for comparison progress.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Reports number of processed files, can be called from any thread.
+         *
+         * @param processedCount number of processed files
+         * @param filesCount total number of files
+         */
+        void progress(int processedCount, int filesCount);
+    }
+}
@@ -0,0 +1,441 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff;
+
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.auxiliary.binary_data.OutOfBoundsException;
+import org.exbin.bined.jaguif.objectdata.PageProvider;
+import org.exbin.bined.jaguif.objectdata.PageProviderBinaryData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Model of three-way binary merge.
+ * <p>
+ * Contains ranges where left or right data differs from base data with
+ * chosen resolution of each range. Data are merged byte to byte, all ranges
+ * are positions shared by all three sides with exception of the last range
+ * which can cover trailing bytes of longer data.
+ * <p>
+ * Merged result is produced on demand from source data and it's never held
+ * in memory as whole.
+ */
+@ParametersAreNonnullByDefault
+public class BinaryMergeModel {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final BinaryData baseData;
+    private final BinaryData leftData;
+    private final BinaryData rightData;
+    private final long commonSize;
+    private final long[] rangeStarts;
+    private final long[] rangeEnds;
+    private final ChangeType[] changeTypes;
+    private final Side[] resolutions;
+    private int unresolvedCount = 0;
+
+    private BinaryMergeModel(BinaryData baseData, BinaryData leftData, BinaryData rightData, long[] rangeStarts, long[] rangeEnds, ChangeType[] changeTypes) {
+        this.baseData = baseData;
+        this.leftData = leftData;
+        this.rightData = rightData;
+        this.rangeStarts = rangeStarts;
+        this.rangeEnds = rangeEnds;
+        this.changeTypes = changeTypes;
+        commonSize = Math.min(baseData.getDataSize(), Math.min(leftData.getDataSize(), rightData.getDataSize()));
+        resolutions = new Side[changeTypes.length];
+        for (int i = 0; i < changeTypes.length; i++) {
+            resolutions[i] = getDefaultResolution(changeTypes[i]);
+            if (resolutions[i] == null) {
+                unresolvedCount++;
+            }
+        }
+    }
+
+    public int getRangesCount() {
+        return rangeStarts.length;
+    }
+
+    public long getRangeStart(int rangeIndex) {
+        return rangeStarts[rangeIndex];
+    }
+
+    public long getRangeEnd(int rangeIndex) {
+        return rangeEnds[rangeIndex];
+    }
+
+    @Nonnull
+    public ChangeType getChangeType(int rangeIndex) {
+        return changeTypes[rangeIndex];
+    }
+
+    /**
+     * Returns side used for merged result of given range.
+     *
+     * @param rangeIndex range index
+     * @return chosen side or null for unresolved conflict
+     */
+    @Nullable
+    public synchronized Side getResolution(int rangeIndex) {
+        return resolutions[rangeIndex];
+    }
+
+    /**
+     * Chooses side used for merged result of given range.
+     *
+     * @param rangeIndex range index
+     * @param side chosen side or null to mark conflict unresolved
+     */
+    public synchronized void setResolution(int rangeIndex, @Nullable Side side) {
+        if (side == null && changeTypes[rangeIndex] != ChangeType.CONFLICT) {
+            side = getDefaultResolution(changeTypes[rangeIndex]);
+        }
+        if (resolutions[rangeIndex] == null && side != null) {
+            unresolvedCount--;
+        } else if (resolutions[rangeIndex] != null && side == null) {
+            unresolvedCount++;
+        }
+        resolutions[rangeIndex] = side;
+    }
+
+    public long getConflictsCount() {
+        return Arrays.stream(changeTypes).filter(changeType -> changeType == ChangeType.CONFLICT).count();
+    }
+
+    public synchronized int getUnresolvedCount() {
+        return unresolvedCount;
+    }
+
+    public long getBaseDataSize() {
+        return baseData.getDataSize();
+    }
+
+    public long getLeftDataSize() {
+        return leftData.getDataSize();
+    }
+
+    public long getRightDataSize() {
+        return rightData.getDataSize();
+    }
+
+    /**
+     * Returns index of range containing given position.
+     *
+     * @param position data position
+     * @return range index or -1 if position is not changed
+     */
+    public int findRange(long position) {
+        int index = Arrays.binarySearch(rangeStarts, position);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index >= 0 && position < rangeEnds[index] ? index : -1;
+    }
+
+    /**
+     * Returns index of first conflict starting after given position.
+     *
+     * @param position data position
+     * @return range index or -1 if there is no such conflict
+     */
+    public int findNextConflict(long position) {
+        int index = Arrays.binarySearch(rangeStarts, position + 1);
+        for (index = index < 0 ? -index - 1 : index; index < rangeStarts.length; index++) {
+            if (changeTypes[index] == ChangeType.CONFLICT) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns index of last conflict starting before given position.
+     *
+     * @param position data position
+     * @return range index or -1 if there is no such conflict
+     */
+    public int findPreviousConflict(long position) {
+        int index = Arrays.binarySearch(rangeStarts, position);
+        for (index = index < 0 ? -index - 2 : index - 1; index >= 0; index--) {
+            if (changeTypes[index] == ChangeType.CONFLICT) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Creates index of ranges changed on given side.
+     *
+     * @param side left or right side
+     * @return changes index
+     */
+    @Nonnull
+    public BinaryDiffIndex createChangesIndex(Side side) {
+        BinaryDiffIndex.Builder builder = new BinaryDiffIndex.Builder();
+        for (int i = 0; i < rangeStarts.length; i++) {
+            ChangeType changeType = changeTypes[i];
+            if (changeType != ChangeType.CONFLICT && changeType != ChangeType.BOTH && changeType.getSide() != side) {
+                continue;
+            }
+            long sideSize = side == Side.LEFT ? leftData.getDataSize() : rightData.getDataSize();
+            builder.addRange(rangeStarts[i], Math.min(rangeEnds[i], sideSize));
+        }
+        return builder.build(side == Side.LEFT ? leftData.getDataSize() : rightData.getDataSize());
+    }
+
+    /**
+     * Creates index of ranges of merged result.
+     *
+     * @param unresolved true for unresolved conflicts, false for resolved
+     * ranges
+     * @return ranges index
+     */
+    @Nonnull
+    public synchronized BinaryDiffIndex createResultIndex(boolean unresolved) {
+        long resultSize = getResultSize();
+        BinaryDiffIndex.Builder builder = new BinaryDiffIndex.Builder();
+        for (int i = 0; i < rangeStarts.length; i++) {
+            if ((resolutions[i] == null) == unresolved) {
+                builder.addRange(rangeStarts[i], Math.min(rangeEnds[i], resultSize));
+            }
+        }
+        return builder.build(resultSize);
+    }
+
+    /**
+     * Returns size of merged result.
+     * <p>
+     * Unresolved trailing range is taken from base data.
+     *
+     * @return size in bytes
+     */
+    public synchronized long getResultSize() {
+        int lastRange = rangeStarts.length - 1;
+        if (lastRange >= 0 && rangeEnds[lastRange] > commonSize) {
+            return getSideData(resolutions[lastRange]).getDataSize();
+        }
+        return commonSize;
+    }
+
+    /**
+     * Copies bytes of merged result to array.
+     * <p>
+     * Unresolved conflicts are filled with base data.
+     *
+     * @param position result position
+     * @param target target array
+     * @param offset target offset
+     * @param length number of bytes
+     */
+    public synchronized void copyResultToArray(long position, byte[] target, int offset, int length) {
+        if (position < 0 || length < 0 || position + length > getResultSize()) {
+            throw new OutOfBoundsException();
+        }
+
+        int rangeIndex = Arrays.binarySearch(rangeEnds, position);
+        rangeIndex = rangeIndex < 0 ? -rangeIndex - 1 : rangeIndex + 1;
+        while (length > 0) {
+            BinaryData sourceData;
+            long segmentEnd;
+            if (rangeIndex < rangeStarts.length && position >= rangeStarts[rangeIndex]) {
+                sourceData = getSideData(resolutions[rangeIndex]);
+                segmentEnd = rangeEnds[rangeIndex];
+                rangeIndex++;
+            } else {
+                // Unchanged bytes are the same on all sides
+                sourceData = baseData;
+                segmentEnd = rangeIndex < rangeStarts.length ? rangeStarts[rangeIndex] : commonSize;
+            }
+
+            int segmentLength = (int) Math.min(segmentEnd - position, length);
+            synchronized (sourceData) {
+                sourceData.copyToArray(position, target, offset, segmentLength);
+            }
+            position += segmentLength;
+            offset += segmentLength;
+            length -= segmentLength;
+        }
+    }
+
+    /**
+     * Writes merged result to output stream using fixed size buffer.
+     *
+     * @param outputStream output stream
+     * @throws IOException if writing fails
+     */
+    public void writeResult(OutputStream outputStream) throws IOException {
+        long resultSize = getResultSize();
+        byte[] buffer = new byte[(int) Math.min(WRITE_BUFFER_SIZE, Math.max(resultSize, 1))];
+        long position = 0;
+        while (position < resultSize) {
+            int length = (int) Math.min(buffer.length, resultSize - position);
+            copyResultToArray(position, buffer, 0, length);
+            outputStream.write(buffer, 0, length);
+            position += length;
+        }
+    }
+
+    /**
+     * Creates view of merged result reflecting current resolutions.
+     *
+     * @return merged data
+     */
+    @Nonnull
+    public BinaryData createResultData() {
+        long resultSize = getResultSize();
+        return new PageProviderBinaryData(new PageProvider() {
+            @Nonnull
+            @Override
+            public byte[] getPage(long pageIndex) {
+                if (pageIndex < 0 || pageIndex > resultSize / PageProviderBinaryData.PAGE_SIZE) {
+                    throw new OutOfBoundsException();
+                }
+
+                long position = pageIndex * PageProviderBinaryData.PAGE_SIZE;
+                byte[] page = new byte[(int) Math.min(PageProviderBinaryData.PAGE_SIZE, resultSize - position)];
+                copyResultToArray(position, page, 0, page.length);
+                return page;
+            }
+
+            @Override
+            public long getDocumentSize() {
+                return resultSize;
+            }
+        });
+    }
+
+    @Nonnull
+    private BinaryData getSideData(@Nullable Side side) {
+        if (side == null) {
+            return baseData;
+        }
+
+        switch (side) {
+            case LEFT:
+                return leftData;
+            case RIGHT:
+                return rightData;
+            default:
+                return baseData;
+        }
+    }
+
+    @Nullable
+    private static Side getDefaultResolution(ChangeType changeType) {
+        switch (changeType) {
+            case LEFT:
+            case BOTH:
+                return Side.LEFT;
+            case RIGHT:
+                return Side.RIGHT;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Side of the merge.
+     */
+    public enum Side {
+        LEFT, BASE, RIGHT
+    }
+
+    /**
+     * Type of change of base data.
+     */
+    public enum ChangeType {
+        /**
+         * Changed only on the left side.
+         */
+        LEFT(Side.LEFT),
+        /**
+         * Changed only on the right side.
+         */
+        RIGHT(Side.RIGHT),
+        /**
+         * Changed equally on both sides.
+         */
+        BOTH(null),
+        /**
+         * Changed differently on both sides.
+         */
+        CONFLICT(null);
+
+        private final Side side;
+
+        ChangeType(@Nullable Side side) {
+            this.side = side;
+        }
+
+        @Nullable
+        public Side getSide() {
+            return side;
+        }
+    }
+
+    /**
+     * Builder for merge model collecting ranges in ascending order.
+     */
+    @ParametersAreNonnullByDefault
+    public static class Builder {
+
+        private long[] rangeStarts = new long[16];
+        private long[] rangeEnds = new long[16];
+        private ChangeType[] changeTypes = new ChangeType[16];
+        private int rangesCount = 0;
+
+        /**
+         * Adds range, ranges have to be added in ascending order.
+         * <p>
+         * Range adjacent to previous range of the same type is merged with it.
+         *
+         * @param start start position
+         * @param end position after last changed byte
+         * @param changeType change type
+         */
+        public void addRange(long start, long end, ChangeType changeType) {
+            if (end <= start) {
+                return;
+            }
+
+            if (rangesCount > 0 && rangeEnds[rangesCount - 1] == start && changeTypes[rangesCount - 1] == changeType) {
+                rangeEnds[rangesCount - 1] = end;
+                return;
+            }
+
+            if (rangesCount == rangeStarts.length) {
+                rangeStarts = Arrays.copyOf(rangeStarts, rangesCount * 2);
+                rangeEnds = Arrays.copyOf(rangeEnds, rangesCount * 2);
+                changeTypes = Arrays.copyOf(changeTypes, rangesCount * 2);
+            }
+            rangeStarts[rangesCount] = start;
+            rangeEnds[rangesCount] = end;
+            changeTypes[rangesCount] = changeType;
+            rangesCount++;
+        }
+
+        @Nonnull
+        public BinaryMergeModel build(BinaryData baseData, BinaryData leftData, BinaryData rightData) {
+            return new BinaryMergeModel(baseData, leftData, rightData, Arrays.copyOf(rangeStarts, rangesCount), Arrays.copyOf(rangeEnds, rangesCount), Arrays.copyOf(changeTypes, rangesCount));
+        }
+    }
+}
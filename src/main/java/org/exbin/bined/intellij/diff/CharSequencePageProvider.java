@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff;
+
+import org.exbin.auxiliary.binary_data.OutOfBoundsException;
+import org.exbin.bined.jaguif.objectdata.PageProvider;
+import org.exbin.bined.jaguif.objectdata.PageProviderBinaryData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * Text data source encoding characters to bytes on demand.
+ * <p>
+ * Text is split to blocks of characters with known byte offsets, so that
+ * each page is encoded only from the block where it starts.
+ */
+@ParametersAreNonnullByDefault
+public class CharSequencePageProvider implements PageProvider {
+
+    private static final int CHARS_BLOCK_SIZE = 4096;
+
+    private final CharSequence chars;
+    private final Charset charset;
+    private int[] blockCharStarts;
+    private long[] blockByteStarts;
+    private final long size;
+    private int cachedBlockIndex = -1;
+    private byte[] cachedBlock = null;
+
+    public CharSequencePageProvider(CharSequence chars, Charset charset) {
+        this.chars = chars;
+        this.charset = charset;
+        size = buildIndex();
+    }
+
+    /**
+     * Returns true if charset encodes text blocks independently, which is
+     * not the case for encodings with byte order mark or shift states.
+     *
+     * @param charset charset
+     * @return true if charset is supported
+     */
+    public static boolean isSupportedCharset(Charset charset) {
+        if (!charset.canEncode()) {
+            return false;
+        }
+
+        byte[] single = "a".getBytes(charset);
+        byte[] twice = "aa".getBytes(charset);
+        return twice.length == single.length * 2
+                && Arrays.equals(Arrays.copyOfRange(twice, 0, single.length), single)
+                && Arrays.equals(Arrays.copyOfRange(twice, single.length, twice.length), single);
+    }
+
+    @Nonnull
+    @Override
+    public synchronized byte[] getPage(long pageIndex) {
+        if (pageIndex < 0 || pageIndex > size / PageProviderBinaryData.PAGE_SIZE) {
+            throw new OutOfBoundsException();
+        }
+
+        long pageStart = pageIndex * PageProviderBinaryData.PAGE_SIZE;
+        byte[] page = new byte[(int) Math.min(PageProviderBinaryData.PAGE_SIZE, size - pageStart)];
+        int blockIndex = Arrays.binarySearch(blockByteStarts, pageStart);
+        if (blockIndex < 0) {
+            blockIndex = -blockIndex - 2;
+        }
+
+        int pageOffset = 0;
+        while (pageOffset < page.length && blockIndex < blockCharStarts.length - 1) {
+            byte[] block = getEncodedBlock(blockIndex);
+            int skip = (int) Math.max(pageStart - blockByteStarts[blockIndex], 0);
+            int length = Math.min(block.length - skip, page.length - pageOffset);
+            System.arraycopy(block, skip, page, pageOffset, length);
+            pageOffset += length;
+            blockIndex++;
+        }
+
+        return page;
+    }
+
+    @Override
+    public long getDocumentSize() {
+        return size;
+    }
+
+    private long buildIndex() {
+        int length = chars.length();
+        int blocksCount = length / CHARS_BLOCK_SIZE + 1;
+        blockCharStarts = new int[blocksCount + 1];
+        blockByteStarts = new long[blocksCount + 1];
+        CharsetEncoder encoder = createEncoder();
+        int block = 0;
+        int charPosition = 0;
+        long bytePosition = 0;
+        while (charPosition < length) {
+            int blockEnd = Math.min(charPosition + CHARS_BLOCK_SIZE, length);
+            if (blockEnd < length && Character.isHighSurrogate(chars.charAt(blockEnd - 1))) {
+                // Keep surrogate pair in the same block
+                blockEnd++;
+            }
+            blockCharStarts[block] = charPosition;
+            blockByteStarts[block] = bytePosition;
+            charPosition = blockEnd;
+            block++;
+            if (block == blockCharStarts.length) {
+                blockCharStarts = Arrays.copyOf(blockCharStarts, block * 2);
+                blockByteStarts = Arrays.copyOf(blockByteStarts, block * 2);
+            }
+            blockCharStarts[block] = charPosition;
+            bytePosition += encodeBlock(encoder, block - 1).remaining();
+        }
+        blockCharStarts = Arrays.copyOf(blockCharStarts, block + 1);
+        blockByteStarts = Arrays.copyOf(blockByteStarts, block + 1);
+        blockByteStarts[block] = bytePosition;
+        return bytePosition;
+    }
+
+    @Nonnull
+    private byte[] getEncodedBlock(int blockIndex) {
+        // Page usually spans two blocks, so last block is reused by following page
+        if (cachedBlockIndex != blockIndex) {
+            ByteBuffer encoded = encodeBlock(createEncoder(), blockIndex);
+            cachedBlock = new byte[encoded.remaining()];
+            encoded.get(cachedBlock);
+            cachedBlockIndex = blockIndex;
+        }
+        return cachedBlock;
+    }
+
+    @Nonnull
+    private ByteBuffer encodeBlock(CharsetEncoder encoder, int blockIndex) {
+        try {
+            encoder.reset();
+            return encoder.encode(CharBuffer.wrap(chars, blockCharStarts[blockIndex], blockCharStarts[blockIndex + 1]));
+        } catch (CharacterCodingException ex) {
+            // Errors are replaced by encoder
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Nonnull
+    private CharsetEncoder createEncoder() {
+        return charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.exbin.bined.intellij.BinEdIntelliJPlugin;
+import org.exbin.bined.intellij.BinEdPluginStartupActivity;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * Compare two selected directories as binary action.
+ */
+@ParametersAreNonnullByDefault
+public class CompareDirectoriesAsBinaryAction extends AnAction implements DumbAware {
+
+    private boolean actionVisible = true;
+
+    public CompareDirectoriesAsBinaryAction() {
+        super(BinEdIntelliJPlugin.getResourceBundle().getString("action.BinEdEditor.CompareDirectoriesAsBinaryAction.name"), BinEdIntelliJPlugin.getResourceBundle().getString("action.BinEdEditor.CompareDirectoriesAsBinaryAction.description"), null);
+        BinEdPluginStartupActivity.addIntegrationOptionsListener(integrationOptions -> actionVisible = integrationOptions.isRegisterByteToByteDiffTool());
+    }
+
+    @Nonnull
+    @Override
+    public ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void update(AnActionEvent event) {
+        event.getPresentation().setEnabledAndVisible(actionVisible && isLocalDirectoriesPair(event.getData(CommonDataKeys.VIRTUAL_FILE_ARRAY)));
+    }
+
+    @Override
+    public void actionPerformed(AnActionEvent event) {
+        Project project = event.getProject();
+        VirtualFile[] files = event.getData(CommonDataKeys.VIRTUAL_FILE_ARRAY);
+        if (project == null || !isLocalDirectoriesPair(files)) {
+            return;
+        }
+
+        DirectoryDiffDialog dialog = new DirectoryDiffDialog(project, files[0].toNioPath(), files[1].toNioPath());
+        dialog.show();
+    }
+
+    private static boolean isLocalDirectoriesPair(@Nullable VirtualFile[] files) {
+        if (files == null || files.length != 2) {
+            return false;
+        }
+
+        for (VirtualFile file : files) {
+            if (!file.isValid() || !file.isDirectory() || !file.isInLocalFileSystem()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff;
+
+import com.intellij.diff.contents.DiffContent;
+import com.intellij.diff.contents.DocumentContent;
+import com.intellij.diff.contents.FileContent;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.auxiliary.binary_data.array.ByteArrayData;
+import org.exbin.auxiliary.binary_data.array.paged.ByteArrayPagedData;
+import org.exbin.auxiliary.binary_data.paged.PagedData;
+import org.exbin.bined.jaguif.objectdata.PageProviderBinaryData;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Binary data access to diff content.
+ */
+@ParametersAreNonnullByDefault
+public class DiffContentBinaryData {
+
+    private DiffContentBinaryData() {
+    }
+
+    /**
+     * Returns binary data for given diff content.
+     * <p>
+     * Local files are read on demand and text documents are encoded on demand
+     * when possible, opened providers are added to given list to be closed
+     * later.
+     *
+     * @param diffContent diff content
+     * @param openedProviders list of opened providers
+     * @return binary data or null if content type is not supported
+     */
+    @Nullable
+    public static BinaryData createBinaryData(DiffContent diffContent, List<Closeable> openedProviders) {
+        if (diffContent instanceof FileContent) {
+            VirtualFile file = ((FileContent) diffContent).getFile();
+            if (file.isInLocalFileSystem()) {
+                // Local file is read on demand instead of loading whole content to memory
+                try {
+                    FileChannelPageProvider pageProvider = new FileChannelPageProvider(file.toNioPath());
+                    openedProviders.add(pageProvider);
+                    return new PageProviderBinaryData(pageProvider);
+                } catch (IOException | UnsupportedOperationException ex) {
+                    Logger.getLogger(DiffContentBinaryData.class.getName()).log(Level.WARNING, "Unable to open file " + file.getPath(), ex);
+                }
+            }
+
+            PagedData pageData = new ByteArrayPagedData();
+            try {
+                byte[] fileContent = file.contentsToByteArray();
+                pageData.insert(0, fileContent);
+                return pageData;
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read file content", e);
+            }
+        }
+        if (diffContent instanceof DocumentContent) {
+            DocumentContent documentContent = (DocumentContent) diffContent;
+            Document document = documentContent.getDocument();
+            Charset charset = documentContent.getCharset();
+            if (charset == null) {
+                charset = StandardCharsets.UTF_8;
+            }
+            if (CharSequencePageProvider.isSupportedCharset(charset)) {
+                // Text is encoded on demand without copy of whole document
+                return new PageProviderBinaryData(new CharSequencePageProvider(document.getImmutableCharSequence(), charset));
+            }
+            return new ByteArrayData(document.getText().getBytes(charset));
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.util.ui.JBUI;
+import com.intellij.util.ui.components.BorderLayoutPanel;
+import org.exbin.bined.intellij.diff.gui.BinedDirectoryDiffPanel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.swing.Action;
+import javax.swing.JComponent;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Dialog for binary comparison of two directories.
+ */
+@ParametersAreNonnullByDefault
+public class DirectoryDiffDialog extends DialogWrapper {
+
+    private static final int PROGRESS_UPDATE_FILES = 50;
+
+    private final BinedDirectoryDiffPanel diffPanel = new BinedDirectoryDiffPanel();
+    private volatile ProgressIndicator compareIndicator = null;
+
+    public DirectoryDiffDialog(Project project, Path leftDirectory, Path rightDirectory) {
+        super(project, false);
+        setModal(false);
+        setTitle(leftDirectory + " vs " + rightDirectory);
+        setCrossClosesWindow(true);
+        init();
+
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Comparing directories", true) {
+            private BinaryDirectoryDiff directoryDiff;
+
+            @Override
+            public void run(ProgressIndicator indicator) {
+                compareIndicator = indicator;
+                indicator.setIndeterminate(false);
+                try {
+                    directoryDiff = BinaryDirectoryDiff.compare(leftDirectory, rightDirectory, indicator::checkCanceled, (processedCount, filesCount) -> {
+                        indicator.setFraction((double) processedCount / filesCount);
+                        if (processedCount % PROGRESS_UPDATE_FILES != 0 && processedCount != filesCount) {
+                            return;
+                        }
+                        ApplicationManager.getApplication().invokeLater(() -> diffPanel.setProgress(processedCount, filesCount), ModalityState.any());
+                    });
+                } catch (IOException ex) {
+                    ApplicationManager.getApplication().invokeLater(() -> Messages.showErrorDialog(project, ex.getMessage(), "Unable to Compare Directories"), ModalityState.any());
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                if (directoryDiff != null && !isDisposed()) {
+                    diffPanel.setDirectoryDiff(directoryDiff);
+                }
+            }
+        });
+    }
+
+    @Nonnull
+    @Override
+    protected Action[] createActions() {
+        return new Action[]{getCancelAction()};
+    }
+
+    @Nullable
+    @Override
+    public JComponent getPreferredFocusedComponent() {
+        return diffPanel;
+    }
+
+    @Nonnull
+    @Override
+    protected String getDimensionServiceKey() {
+        return "#org.exbin.bined.intellij.diff.DirectoryDiffDialog";
+    }
+
+    @Nonnull
+    @Override
+    protected JComponent createCenterPanel() {
+        BorderLayoutPanel panel = JBUI.Panels.simplePanel(diffPanel);
+        panel.setPreferredSize(JBUI.size(900, 700));
+        return panel;
+    }
+
+    @Override
+    protected void dispose() {
+        ProgressIndicator indicator = compareIndicator;
+        if (indicator != null) {
+            indicator.cancel();
+        }
+        diffPanel.dispose();
+        super.dispose();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff;
+
+import org.exbin.auxiliary.binary_data.OutOfBoundsException;
+import org.exbin.bined.jaguif.objectdata.PageProvider;
+import org.exbin.bined.jaguif.objectdata.PageProviderBinaryData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Read-only file data source reading pages on demand.
+ */
+@ParametersAreNonnullByDefault
+public class FileChannelPageProvider implements PageProvider, Closeable {
+
+    private final FileChannel fileChannel;
+    private final long size;
+
+    public FileChannelPageProvider(Path path) throws IOException {
+        fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+        size = fileChannel.size();
+    }
+
+    @Nonnull
+    @Override
+    public byte[] getPage(long pageIndex) {
+        if (pageIndex < 0 || pageIndex > size / PageProviderBinaryData.PAGE_SIZE) {
+            throw new OutOfBoundsException();
+        }
+
+        long position = pageIndex * PageProviderBinaryData.PAGE_SIZE;
+        byte[] page = new byte[(int) Math.min(PageProviderBinaryData.PAGE_SIZE, size - position)];
+        ByteBuffer buffer = ByteBuffer.wrap(page);
+        try {
+            while (buffer.hasRemaining()) {
+                // Positional read doesn't modify channel position and is safe to use concurrently
+                int read = fileChannel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    break;
+                }
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(FileChannelPageProvider.class.getName()).log(Level.SEVERE, "Unable to read file page " + pageIndex, ex);
+        }
+        return page;
+    }
+
+    @Override
+    public long getDocumentSize() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileChannel.close();
+    }
+}
@@ -0,0 +1,614 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff;
+
+import org.exbin.auxiliary.binary_data.BinaryData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+
+/**
+ * Binary patch in VCDIFF format (RFC 3284).
+ * <p>
+ * Patch is encoded from alignment of source and target data using default
+ * instruction code table, target is processed in windows of fixed size so
+ * encoding and applying of patch requires memory only for single window.
+ * <p>
+ * Applying supports patches produced by other encoders without secondary
+ * compression and custom code tables, including Adler-32 window checksums
+ * used by xdelta3.
+ */
+@ParametersAreNonnullByDefault
+public class VcdiffPatch {
+
+    public static final String FILE_EXTENSION = "vcdiff";
+    public static final int TARGET_WINDOW_SIZE = 1024 * 1024;
+    private static final int MAX_TARGET_WINDOW_SIZE = 256 * 1024 * 1024;
+    private static final int MIN_COPY_SIZE = 4;
+    private static final byte[] HEADER_MAGIC = {(byte) 0xd6, (byte) 0xc3, (byte) 0xc4, 0x00};
+
+    private static final int VCD_DECOMPRESS = 0x01;
+    private static final int VCD_CODETABLE = 0x02;
+    private static final int VCD_APPHEADER = 0x04;
+    private static final int VCD_SOURCE = 0x01;
+    private static final int VCD_TARGET = 0x02;
+    private static final int VCD_ADLER32 = 0x04;
+
+    private static final int NOOP = 0;
+    private static final int RUN = 1;
+    private static final int ADD = 2;
+    private static final int COPY = 3;
+    private static final int NEAR_CACHE_SIZE = 4;
+    private static final int SAME_CACHE_SIZE = 3;
+    private static final int MODE_SELF = 0;
+    private static final int MODE_HERE = 1;
+    private static final int MODES_COUNT = 2 + NEAR_CACHE_SIZE + SAME_CACHE_SIZE;
+
+    private static final CodeTable CODE_TABLE = new CodeTable();
+
+    private VcdiffPatch() {
+    }
+
+    /**
+     * Encodes patch transforming source data to target data.
+     *
+     * @param sourceData source data
+     * @param targetData target data
+     * @param alignment alignment of source data as left side and target data as right side
+     * @param outputStream output stream for patch
+     * @param cancelCheck check called periodically, can throw exception to cancel computation
+     * @throws IOException if writing fails
+     */
+    public static void encode(BinaryData sourceData, BinaryData targetData, BinaryDiffAlignment alignment, OutputStream outputStream, Runnable cancelCheck) throws IOException {
+        outputStream.write(HEADER_MAGIC);
+        outputStream.write(0);
+
+        long targetSize = targetData.getDataSize();
+        byte[] targetWindow = new byte[(int) Math.min(TARGET_WINDOW_SIZE, targetSize)];
+        WindowEncoder windowEncoder = new WindowEncoder();
+        int blockIndex = 0;
+        for (long windowStart = 0; windowStart < targetSize; windowStart += TARGET_WINDOW_SIZE) {
+            cancelCheck.run();
+            int windowLength = (int) Math.min(TARGET_WINDOW_SIZE, targetSize - windowStart);
+            long windowEnd = windowStart + windowLength;
+            targetData.copyToArray(windowStart, targetWindow, 0, windowLength);
+            while (blockIndex < alignment.getBlocksCount() && alignment.getBlockRightStart(blockIndex) + alignment.getBlockLength(blockIndex) <= windowStart) {
+                blockIndex++;
+            }
+
+            // Source segment covers all copied source ranges of the window
+            long segmentStart = Long.MAX_VALUE;
+            long segmentEnd = 0;
+            for (int block = blockIndex; block < alignment.getBlocksCount() && alignment.getBlockRightStart(block) < windowEnd; block++) {
+                long rightStart = alignment.getBlockRightStart(block);
+                long copyStart = Math.max(rightStart, windowStart);
+                long copyEnd = Math.min(rightStart + alignment.getBlockLength(block), windowEnd);
+                if (copyEnd - copyStart >= MIN_COPY_SIZE) {
+                    long sourceStart = alignment.getBlockLeftStart(block) + (copyStart - rightStart);
+                    segmentStart = Math.min(segmentStart, sourceStart);
+                    segmentEnd = Math.max(segmentEnd, sourceStart + (copyEnd - copyStart));
+                }
+            }
+            long segmentLength = segmentEnd > segmentStart ? segmentEnd - segmentStart : 0;
+
+            windowEncoder.reset(segmentLength);
+            long position = windowStart;
+            for (int block = blockIndex; block < alignment.getBlocksCount() && alignment.getBlockRightStart(block) < windowEnd; block++) {
+                long rightStart = alignment.getBlockRightStart(block);
+                long copyStart = Math.max(rightStart, windowStart);
+                long copyEnd = Math.min(rightStart + alignment.getBlockLength(block), windowEnd);
+                if (copyEnd - copyStart < MIN_COPY_SIZE) {
+                    // Short match is cheaper to add as data
+                    continue;
+                }
+
+                if (copyStart > position) {
+                    windowEncoder.add(targetWindow, (int) (position - windowStart), (int) (copyStart - position));
+                }
+                long sourceStart = alignment.getBlockLeftStart(block) + (copyStart - rightStart);
+                windowEncoder.copy(sourceStart - segmentStart, (int) (copyEnd - copyStart));
+                position = copyEnd;
+            }
+            if (position < windowEnd) {
+                windowEncoder.add(targetWindow, (int) (position - windowStart), (int) (windowEnd - position));
+            }
+
+            windowEncoder.write(outputStream, segmentStart, segmentLength, windowLength);
+        }
+    }
+
+    /**
+     * Applies patch to source data and writes target data.
+     *
+     * @param sourceData source data
+     * @param patchStream patch input stream
+     * @param outputStream output stream for target data
+     * @param cancelCheck check called periodically, can throw exception to cancel computation
+     * @throws IOException if patch is invalid or not supported, or writing fails
+     */
+    public static void apply(BinaryData sourceData, InputStream patchStream, OutputStream outputStream, Runnable cancelCheck) throws IOException {
+        for (byte magicByte : HEADER_MAGIC) {
+            if (readByte(patchStream) != (magicByte & 0xff)) {
+                throw new IOException("Not a VCDIFF patch");
+            }
+        }
+        int headerIndicator = readByte(patchStream);
+        if ((headerIndicator & (VCD_DECOMPRESS | VCD_CODETABLE)) != 0) {
+            throw new IOException("Secondary compression and custom code tables are not supported");
+        }
+        if ((headerIndicator & VCD_APPHEADER) != 0) {
+            skipFully(patchStream, readInteger(patchStream));
+        }
+
+        AddressCache addressCache = new AddressCache();
+        while (true) {
+            int windowIndicator = patchStream.read();
+            if (windowIndicator < 0) {
+                break;
+            }
+            cancelCheck.run();
+            if ((windowIndicator & VCD_TARGET) != 0) {
+                throw new IOException("Target window references are not supported");
+            }
+
+            long segmentLength = 0;
+            long segmentStart = 0;
+            if ((windowIndicator & VCD_SOURCE) != 0) {
+                segmentLength = readInteger(patchStream);
+                segmentStart = readInteger(patchStream);
+                if (segmentStart + segmentLength > sourceData.getDataSize()) {
+                    throw new IOException("Source segment out of source data");
+                }
+            }
+
+            readInteger(patchStream);
+            long targetWindowLength = readInteger(patchStream);
+            if (targetWindowLength > MAX_TARGET_WINDOW_SIZE) {
+                throw new IOException("Target window too large: " + targetWindowLength);
+            }
+            if (readByte(patchStream) != 0) {
+                throw new IOException("Compressed sections are not supported");
+            }
+            byte[] data = new byte[checkSectionLength(readInteger(patchStream))];
+            byte[] instructions = new byte[checkSectionLength(readInteger(patchStream))];
+            byte[] addresses = new byte[checkSectionLength(readInteger(patchStream))];
+            long checksum = -1;
+            if ((windowIndicator & VCD_ADLER32) != 0) {
+                checksum = ((long) readByte(patchStream) << 24) | (readByte(patchStream) << 16) | (readByte(patchStream) << 8) | readByte(patchStream);
+            }
+            readFully(patchStream, data);
+            readFully(patchStream, instructions);
+            readFully(patchStream, addresses);
+
+            byte[] target = new byte[(int) targetWindowLength];
+            decodeWindow(sourceData, segmentStart, segmentLength, target, new Section(data), new Section(instructions), new Section(addresses), addressCache);
+            if (checksum >= 0) {
+                Adler32 adler32 = new Adler32();
+                adler32.update(target, 0, target.length);
+                if (adler32.getValue() != checksum) {
+                    throw new IOException("Target window checksum mismatch");
+                }
+            }
+            outputStream.write(target);
+        }
+    }
+
+    private static void decodeWindow(BinaryData sourceData, long segmentStart, long segmentLength, byte[] target, Section data, Section instructions, Section addresses, AddressCache addressCache) throws IOException {
+        addressCache.reset();
+        int targetPosition = 0;
+        while (instructions.hasRemaining()) {
+            int opcode = instructions.readByte();
+            for (int part = 0; part < 2; part++) {
+                int type = part == 0 ? CODE_TABLE.types1[opcode] : CODE_TABLE.types2[opcode];
+                if (type == NOOP) {
+                    continue;
+                }
+                int size = part == 0 ? CODE_TABLE.sizes1[opcode] : CODE_TABLE.sizes2[opcode];
+                if (size == 0) {
+                    size = checkSectionLength(instructions.readInteger());
+                }
+                if (targetPosition + size > target.length) {
+                    throw new IOException("Instruction exceeds target window");
+                }
+
+                switch (type) {
+                    case ADD: {
+                        data.read(target, targetPosition, size);
+                        break;
+                    }
+                    case RUN: {
+                        byte value = (byte) data.readByte();
+                        for (int i = 0; i < size; i++) {
+                            target[targetPosition + i] = value;
+                        }
+                        break;
+                    }
+                    case COPY: {
+                        int mode = part == 0 ? CODE_TABLE.modes1[opcode] : CODE_TABLE.modes2[opcode];
+                        long here = segmentLength + targetPosition;
+                        long address = addressCache.decode(addresses, here, mode);
+                        if (address < 0 || address >= here) {
+                            throw new IOException("Invalid copy address " + address);
+                        }
+                        int copied = 0;
+                        if (address < segmentLength) {
+                            int sourceLength = (int) Math.min(size, segmentLength - address);
+                            sourceData.copyToArray(segmentStart + address, target, targetPosition, sourceLength);
+                            copied = sourceLength;
+                        }
+                        // Copy from target window can overlap with copied bytes
+                        int targetAddress = (int) (address + copied - segmentLength);
+                        for (int i = copied; i < size; i++) {
+                            target[targetPosition + i] = target[targetAddress++];
+                        }
+                        break;
+                    }
+                    default:
+                        throw new IllegalStateException();
+                }
+                targetPosition += size;
+            }
+        }
+
+        if (targetPosition != target.length) {
+            throw new IOException("Target window is incomplete");
+        }
+    }
+
+    private static int checkSectionLength(long length) throws IOException {
+        if (length > MAX_TARGET_WINDOW_SIZE) {
+            throw new IOException("Section too large: " + length);
+        }
+        return (int) length;
+    }
+
+    private static int readByte(InputStream stream) throws IOException {
+        int value = stream.read();
+        if (value < 0) {
+            throw new EOFException("Unexpected end of patch");
+        }
+        return value;
+    }
+
+    private static long readInteger(InputStream stream) throws IOException {
+        long value = 0;
+        for (int i = 0; i < 10; i++) {
+            int part = readByte(stream);
+            value = (value << 7) | (part & 0x7f);
+            if ((part & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid integer");
+    }
+
+    private static void readFully(InputStream stream, byte[] target) throws IOException {
+        int offset = 0;
+        while (offset < target.length) {
+            int read = stream.read(target, offset, target.length - offset);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of patch");
+            }
+            offset += read;
+        }
+    }
+
+    private static void skipFully(InputStream stream, long length) throws IOException {
+        for (long i = 0; i < length; i++) {
+            readByte(stream);
+        }
+    }
+
+    private static void writeInteger(OutputStream stream, long value) throws IOException {
+        int bytesCount = getIntegerLength(value);
+        for (int i = bytesCount - 1; i >= 0; i--) {
+            int part = (int) ((value >>> (7 * i)) & 0x7f);
+            stream.write(i > 0 ? part | 0x80 : part);
+        }
+    }
+
+    private static int getIntegerLength(long value) {
+        int bytesCount = 1;
+        while ((value >>> (7 * bytesCount)) != 0) {
+            bytesCount++;
+        }
+        return bytesCount;
+    }
+
+    /**
+     * Encoder of single window instructions.
+     */
+    @ParametersAreNonnullByDefault
+    private static class WindowEncoder {
+
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream instructions = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream addresses = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream window = new ByteArrayOutputStream();
+        private final AddressCache addressCache = new AddressCache();
+        private long segmentLength;
+        private long targetPosition;
+        private int pendingAddSize = 0;
+
+        public void reset(long segmentLength) {
+            this.segmentLength = segmentLength;
+            data.reset();
+            instructions.reset();
+            addresses.reset();
+            addressCache.reset();
+            targetPosition = 0;
+            pendingAddSize = 0;
+        }
+
+        public void add(byte[] targetWindow, int offset, int length) throws IOException {
+            flushPendingAdd();
+            data.write(targetWindow, offset, length);
+            targetPosition += length;
+            if (length <= CodeTable.MAX_COMBINED_ADD_SIZE) {
+                // Short add can be combined with following copy
+                pendingAddSize = length;
+            } else {
+                instructions.write(CODE_TABLE.getAddOpcode(length));
+                if (CODE_TABLE.sizes1[CODE_TABLE.getAddOpcode(length)] == 0) {
+                    writeInteger(instructions, length);
+                }
+            }
+        }
+
+        public void copy(long address, int length) throws IOException {
+            long here = segmentLength + targetPosition;
+            int mode = addressCache.encode(addresses, address, here);
+            int combinedOpcode = pendingAddSize > 0 ? CODE_TABLE.getAddCopyOpcode(pendingAddSize, length, mode) : -1;
+            if (combinedOpcode >= 0) {
+                instructions.write(combinedOpcode);
+                pendingAddSize = 0;
+            } else {
+                flushPendingAdd();
+                int opcode = CODE_TABLE.getCopyOpcode(length, mode);
+                instructions.write(opcode);
+                if (CODE_TABLE.sizes1[opcode] == 0) {
+                    writeInteger(instructions, length);
+                }
+            }
+            targetPosition += length;
+        }
+
+        public void write(OutputStream outputStream, long segmentStart, long segmentLength, int targetLength) throws IOException {
+            flushPendingAdd();
+            window.reset();
+            writeInteger(window, targetLength);
+            window.write(0);
+            writeInteger(window, data.size());
+            writeInteger(window, instructions.size());
+            writeInteger(window, addresses.size());
+            data.writeTo(window);
+            instructions.writeTo(window);
+            addresses.writeTo(window);
+
+            if (segmentLength > 0) {
+                outputStream.write(VCD_SOURCE);
+                writeInteger(outputStream, segmentLength);
+                writeInteger(outputStream, segmentStart);
+            } else {
+                outputStream.write(0);
+            }
+            writeInteger(outputStream, window.size());
+            window.writeTo(outputStream);
+        }
+
+        private void flushPendingAdd() {
+            if (pendingAddSize > 0) {
+                instructions.write(CODE_TABLE.getAddOpcode(pendingAddSize));
+                pendingAddSize = 0;
+            }
+        }
+    }
+
+    /**
+     * Cache of recent copy addresses for compact address encoding.
+     */
+    @ParametersAreNonnullByDefault
+    private static class AddressCache {
+
+        private final long[] near = new long[NEAR_CACHE_SIZE];
+        private final long[] same = new long[SAME_CACHE_SIZE * 256];
+        private int nextSlot = 0;
+
+        public void reset() {
+            nextSlot = 0;
+            Arrays.fill(near, 0);
+            Arrays.fill(same, 0);
+        }
+
+        public long decode(Section addresses, long here, int mode) throws IOException {
+            long address;
+            if (mode == MODE_SELF) {
+                address = addresses.readInteger();
+            } else if (mode == MODE_HERE) {
+                address = here - addresses.readInteger();
+            } else if (mode < 2 + NEAR_CACHE_SIZE) {
+                address = near[mode - 2] + addresses.readInteger();
+            } else {
+                address = same[(mode - 2 - NEAR_CACHE_SIZE) * 256 + addresses.readByte()];
+            }
+            update(address);
+            return address;
+        }
+
+        /**
+         * Writes address using mode with the shortest encoding.
+         *
+         * @return used mode
+         */
+        public int encode(ByteArrayOutputStream addresses, long address, long here) throws IOException {
+            int sameIndex = (int) (address % same.length);
+            if (same[sameIndex] == address) {
+                addresses.write(sameIndex % 256);
+                update(address);
+                return 2 + NEAR_CACHE_SIZE + sameIndex / 256;
+            }
+
+            int bestMode = MODE_SELF;
+            long bestValue = address;
+            if (here - address < bestValue) {
+                bestMode = MODE_HERE;
+                bestValue = here - address;
+            }
+            for (int i = 0; i < NEAR_CACHE_SIZE; i++) {
+                long offset = address - near[i];
+                if (offset >= 0 && offset < bestValue) {
+                    bestMode = 2 + i;
+                    bestValue = offset;
+                }
+            }
+            writeInteger(addresses, bestValue);
+            update(address);
+            return bestMode;
+        }
+
+        private void update(long address) {
+            near[nextSlot] = address;
+            nextSlot = (nextSlot + 1) % NEAR_CACHE_SIZE;
+            same[(int) (address % same.length)] = address;
+        }
+    }
+
+    /**
+     * Default instruction code table.
+     */
+    private static class CodeTable {
+
+        private static final int MAX_COMBINED_ADD_SIZE = 4;
+
+        private final int[] types1 = new int[256];
+        private final int[] sizes1 = new int[256];
+        private final int[] modes1 = new int[256];
+        private final int[] types2 = new int[256];
+        private final int[] sizes2 = new int[256];
+        private final int[] modes2 = new int[256];
+        private final int[][][] addCopyOpcodes = new int[MAX_COMBINED_ADD_SIZE + 1][7][MODES_COUNT];
+
+        public CodeTable() {
+            int index = 0;
+            set(index++, RUN, 0, 0, NOOP, 0, 0);
+            for (int size = 0; size <= 17; size++) {
+                set(index++, ADD, size, 0, NOOP, 0, 0);
+            }
+            for (int mode = 0; mode < MODES_COUNT; mode++) {
+                set(index++, COPY, 0, mode, NOOP, 0, 0);
+                for (int size = 4; size <= 18; size++) {
+                    set(index++, COPY, size, mode, NOOP, 0, 0);
+                }
+            }
+            for (int[][] copyOpcodes : addCopyOpcodes) {
+                for (int[] modeOpcodes : copyOpcodes) {
+                    Arrays.fill(modeOpcodes, -1);
+                }
+            }
+            for (int mode = 0; mode < 6; mode++) {
+                for (int addSize = 1; addSize <= 4; addSize++) {
+                    for (int copySize = 4; copySize <= 6; copySize++) {
+                        addCopyOpcodes[addSize][copySize][mode] = index;
+                        set(index++, ADD, addSize, 0, COPY, copySize, mode);
+                    }
+                }
+            }
+            for (int mode = 6; mode < MODES_COUNT; mode++) {
+                for (int addSize = 1; addSize <= 4; addSize++) {
+                    addCopyOpcodes[addSize][4][mode] = index;
+                    set(index++, ADD, addSize, 0, COPY, 4, mode);
+                }
+            }
+            for (int mode = 0; mode < MODES_COUNT; mode++) {
+                set(index++, COPY, 4, mode, ADD, 1, 0);
+            }
+        }
+
+        private void set(int index, int type1, int size1, int mode1, int type2, int size2, int mode2) {
+            types1[index] = type1;
+            sizes1[index] = size1;
+            modes1[index] = mode1;
+            types2[index] = type2;
+            sizes2[index] = size2;
+            modes2[index] = mode2;
+        }
+
+        public int getAddOpcode(int size) {
+            return size <= 17 ? 1 + size : 1;
+        }
+
+        public int getCopyOpcode(int size, int mode) {
+            int baseOpcode = 19 + mode * 16;
+            return size >= 4 && size <= 18 ? baseOpcode + size - 3 : baseOpcode;
+        }
+
+        public int getAddCopyOpcode(int addSize, int copySize, int mode) {
+            return copySize <= 6 ? addCopyOpcodes[addSize][copySize][mode] : -1;
+        }
+    }
+
+    /**
+     * Reader of window section.
+     */
+    @ParametersAreNonnullByDefault
+    private static class Section {
+
+        private final byte[] bytes;
+        private int position = 0;
+
+        public Section(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        public boolean hasRemaining() {
+            return position < bytes.length;
+        }
+
+        public int readByte() throws IOException {
+            if (position >= bytes.length) {
+                throw new EOFException("Unexpected end of section");
+            }
+            return bytes[position++] & 0xff;
+        }
+
+        public long readInteger() throws IOException {
+            long value = 0;
+            for (int i = 0; i < 10; i++) {
+                int part = readByte();
+                value = (value << 7) | (part & 0x7f);
+                if ((part & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Invalid integer");
+        }
+
+        public void read(byte[] target, int offset, int length) throws IOException {
+            if (position + length > bytes.length) {
+                throw new EOFException("Unexpected end of section");
+            }
+            System.arraycopy(bytes, position, target, offset, length);
+            position += length;
+        }
+    }
+}
@@ -16,15 +16,12 @@
 package org.exbin.bined.intellij.diff.gui;
 
 import com.intellij.diff.contents.DiffContent;
-import com.intellij.diff.contents.DocumentContent;
-import com.intellij.diff.contents.FileContent;
 import com.intellij.diff.requests.ContentDiffRequest;
-import com.intellij.openapi.editor.Document;
+import com.intellij.ui.components.JBLabel;
 import com.intellij.ui.components.JBPanel;
+import com.intellij.util.ui.JBUI;
 import org.exbin.auxiliary.binary_data.BinaryData;
 import org.exbin.auxiliary.binary_data.array.ByteArrayData;
-import org.exbin.auxiliary.binary_data.array.paged.ByteArrayPagedData;
-import org.exbin.auxiliary.binary_data.paged.PagedData;
 import org.exbin.bined.CodeAreaCaretPosition;
 import org.exbin.bined.CodeAreaUtils;
 import org.exbin.bined.CodeCharactersCase;
@@ -37,6 +34,10 @@ import org.exbin.bined.capability.CharsetCapable;
 import org.exbin.bined.capability.EditModeCapable;
 import org.exbin.bined.capability.SelectionCapable;
 import org.exbin.bined.highlight.swing.NonprintablesCodeAreaAssessor;
+import org.exbin.bined.intellij.diff.BinaryDiffAlignment;
+import org.exbin.bined.intellij.diff.BinaryDiffIndex;
+import org.exbin.bined.intellij.diff.DiffContentBinaryData;
+import org.exbin.bined.intellij.diff.FileChannelPageProvider;
 import org.exbin.bined.intellij.gui.BinEdToolbarPanel;
 import org.exbin.bined.jaguif.component.BinEdCodeAreaAssessor;
 import org.exbin.bined.jaguif.component.BinEdComponentExtension;
@@ -45,6 +46,7 @@ import org.exbin.bined.jaguif.component.BinaryDataComponent;
 import org.exbin.bined.jaguif.component.BinedComponentModule;
 import org.exbin.bined.jaguif.component.action.GoToPositionAction;
 import org.exbin.bined.jaguif.editor.settings.BinaryEditorOptions;
+import org.exbin.bined.jaguif.objectdata.PageProviderBinaryData;
 import org.exbin.bined.jaguif.theme.settings.CodeAreaColorOptions;
 import org.exbin.bined.jaguif.theme.settings.CodeAreaLayoutOptions;
 import org.exbin.bined.jaguif.theme.settings.CodeAreaThemeOptions;
@@ -90,17 +92,23 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.swing.AbstractAction;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.ResourceBundle;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * BinEd diff support provider to compare binary files.
@@ -125,6 +133,9 @@ public class BinedDiffPanel extends JBPanel {
     protected final StatusBar rightStatusBar;
     protected EncodingsManager encodingsManager;
     protected GoToPositionAction goToPositionAction = new GoToPositionAction();
+    protected final List<Closeable> openedProviders = new ArrayList<>();
+    protected final ResourceBundle resourceBundle = App.getModule(LanguageModuleApi.class).getBundle(BinedDiffPanel.class);
+    protected final JLabel summaryLabel = new JBLabel();
 
     public BinedDiffPanel() {
         setLayout(new java.awt.BorderLayout());
@@ -319,7 +330,12 @@ public class BinedDiffPanel extends JBPanel {
     }
 
     private void init() {
-        this.add(toolbarPanel, BorderLayout.NORTH);
+        JPanel headerPanel = new JPanel(new BorderLayout());
+        headerPanel.add(toolbarPanel, BorderLayout.CENTER);
+        summaryLabel.setBorder(JBUI.Borders.empty(0, 5));
+        summaryLabel.setText(resourceBundle.getString("summary.computing"));
+        headerPanel.add(summaryLabel, BorderLayout.EAST);
+        this.add(headerPanel, BorderLayout.NORTH);
         encodingsManager = new EncodingsManager();
         encodingsManager.init();
         goToPositionAction.init(App.getModule(LanguageModuleApi.class).getBundle(BinedComponentModule.class));
@@ -340,6 +356,7 @@ public class BinedDiffPanel extends JBPanel {
     }
 
     public void setDiffContent(ContentDiffRequest request) {
+        dispose();
         List<DiffContent> contents = request.getContents();
         if (!contents.isEmpty()) {
             BinaryData leftData = getDiffBinaryData(request, 0);
@@ -440,30 +457,143 @@ public class BinedDiffPanel extends JBPanel {
         }
     }
 
+    /**
+     * Sets local files to compare, files are read on demand.
+     *
+     * @param leftFile left file or null if missing
+     * @param rightFile right file or null if missing
+     */
+    public void setDiffFiles(@Nullable Path leftFile, @Nullable Path rightFile) {
+        dispose();
+        diffPanel.setLeftContentData(openFileData(leftFile));
+        diffPanel.setRightContentData(openFileData(rightFile));
+    }
+
+    @Nonnull
+    public SectCodeAreaDiffPanel getDiffPanel() {
+        return diffPanel;
+    }
+
+    public void setDiffIndex(@Nullable BinaryDiffIndex diffIndex) {
+        diffPanel.setDiffIndex(diffIndex);
+        if (diffIndex == null) {
+            summaryLabel.setText(resourceBundle.getString("summary.computing"));
+        } else if (diffIndex.isEmpty()) {
+            summaryLabel.setText(resourceBundle.getString("summary.identical"));
+        } else {
+            double percentage = diffIndex.getComparedSize() == 0 ? 0 : diffIndex.getDifferentBytesCount() * 100.0 / diffIndex.getComparedSize();
+            summaryLabel.setText(String.format(resourceBundle.getString("summary.differences"), diffIndex.getRangesCount(), diffIndex.getDifferentBytesCount(), percentage));
+        }
+    }
+
+    /**
+     * Shows summary of chunks comparison while full comparison is running.
+     *
+     * @param differentChunks number of different chunks
+     * @param chunksCount total number of chunks
+     * @param sizeMismatch true if data sizes differ
+     */
+    public void setChunksSummary(int differentChunks, int chunksCount, boolean sizeMismatch) {
+        String summary = String.format(resourceBundle.getString("summary.chunks"), differentChunks, chunksCount);
+        summaryLabel.setText(sizeMismatch ? resourceBundle.getString("summary.sizeMismatch") + ", " + summary : summary);
+    }
+
+    public void setAlignment(BinaryDiffAlignment alignment) {
+        diffPanel.setAlignment(alignment);
+        BinaryDiffIndex leftIndex = alignment.getLeftIndex();
+        BinaryDiffIndex rightIndex = alignment.getRightIndex();
+        if (leftIndex.isEmpty() && rightIndex.isEmpty()) {
+            summaryLabel.setText(resourceBundle.getString("summary.identical"));
+        } else {
+            summaryLabel.setText(String.format(resourceBundle.getString("summary.alignment"), leftIndex.getDifferentBytesCount(), rightIndex.getDifferentBytesCount(), alignment.getBlocksCount()));
+        }
+    }
+
+    public boolean canGoToNextDifference() {
+        BinaryDiffIndex diffIndex = getCurrentDiffIndex();
+        return diffIndex != null && diffIndex.findNextRange(getCurrentPosition()) >= 0;
+    }
+
+    public boolean canGoToPreviousDifference() {
+        BinaryDiffIndex diffIndex = getCurrentDiffIndex();
+        return diffIndex != null && diffIndex.findPreviousRange(getCurrentPosition()) >= 0;
+    }
+
+    public void goToNextDifference() {
+        BinaryDiffIndex diffIndex = getCurrentDiffIndex();
+        int rangeIndex = diffIndex == null ? -1 : diffIndex.findNextRange(getCurrentPosition());
+        if (rangeIndex >= 0) {
+            showCurrentPosition(diffIndex.getRangeStart(rangeIndex));
+        }
+    }
+
+    public void goToPreviousDifference() {
+        BinaryDiffIndex diffIndex = getCurrentDiffIndex();
+        int rangeIndex = diffIndex == null ? -1 : diffIndex.findPreviousRange(getCurrentPosition());
+        if (rangeIndex >= 0) {
+            showCurrentPosition(diffIndex.getRangeStart(rangeIndex));
+        }
+    }
+
+    private boolean isRightSideActive() {
+        return diffPanel.getRightCodeArea().hasFocus();
+    }
+
+    @Nullable
+    private BinaryDiffIndex getCurrentDiffIndex() {
+        return isRightSideActive() ? diffPanel.getRightDiffIndex() : diffPanel.getLeftDiffIndex();
+    }
+
+    private long getCurrentPosition() {
+        return isRightSideActive() ? diffPanel.getRightCodeArea().getDataPosition() : diffPanel.getLeftCodeArea().getDataPosition();
+    }
+
+    private void showCurrentPosition(long position) {
+        if (isRightSideActive()) {
+            diffPanel.showRightPosition(position);
+        } else {
+            diffPanel.showLeftPosition(position);
+        }
+    }
+
+    /**
+     * Releases resources used by compared content.
+     */
+    public void dispose() {
+        for (Closeable openedProvider : openedProviders) {
+            try {
+                openedProvider.close();
+            } catch (IOException ex) {
+                Logger.getLogger(BinedDiffPanel.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+        openedProviders.clear();
+    }
+
     @Nullable
-    private static BinaryData getDiffBinaryData(ContentDiffRequest request, int index) {
+    private BinaryData getDiffBinaryData(ContentDiffRequest request, int index) {
         List<DiffContent> contents = request.getContents();
         if (contents.size() > index) {
-            DiffContent diffContent = contents.get(index);
-            if (diffContent instanceof FileContent) {
-                PagedData pageData = new ByteArrayPagedData();
-                try {
-                    byte[] fileContent = ((FileContent) diffContent).getFile().contentsToByteArray();
-                    pageData.insert(0, fileContent);
-                    return pageData;
-                } catch (IOException e) {
-                    throw new IllegalStateException("Unable to read file content", e);
-                }
-            }
-            if (diffContent instanceof DocumentContent) {
-                Document document = ((DocumentContent) diffContent).getDocument();
-                return new ByteArrayData(document.getText().getBytes(StandardCharsets.UTF_8));
-            }
+            return DiffContentBinaryData.createBinaryData(contents.get(index), openedProviders);
         }
 
         return null;
     }
 
+    @Nonnull
+    private BinaryData openFileData(@Nullable Path file) {
+        if (file != null) {
+            try {
+                FileChannelPageProvider pageProvider = new FileChannelPageProvider(file);
+                openedProviders.add(pageProvider);
+                return new PageProviderBinaryData(pageProvider);
+            } catch (IOException ex) {
+                Logger.getLogger(BinedDiffPanel.class.getName()).log(Level.WARNING, "Unable to open file " + file, ex);
+            }
+        }
+        return new ByteArrayData(new byte[0]);
+    }
+
     private static void attachContext(SectCodeArea codeArea, ContextComponent contextComponent, ActiveContextManagement contextManagement) {
         contextManagement.changeActiveState(ContextComponent.class, contextComponent);
         codeArea.addDataChangedListener(() -> {
@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff.gui;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.ui.JBSplitter;
+import com.intellij.ui.components.JBCheckBox;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.ui.JBUI;
+import org.exbin.bined.intellij.diff.BinaryDiffIndex;
+import org.exbin.bined.intellij.diff.BinaryDirectoryDiff;
+import org.exbin.jaguif.App;
+import org.exbin.jaguif.language.api.LanguageModuleApi;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.ListSelectionModel;
+import javax.swing.table.AbstractTableModel;
+import java.awt.BorderLayout;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Panel for binary comparison of two directories.
+ * <p>
+ * Lists compared files and shows binary diff of selected file pair.
+ * Difference indexes of changed files are computed in background one by one,
+ * selected file is computed first.
+ */
+@ParametersAreNonnullByDefault
+public class BinedDirectoryDiffPanel extends JPanel {
+
+    protected final ResourceBundle resourceBundle = App.getModule(LanguageModuleApi.class).getBundle(BinedDirectoryDiffPanel.class);
+    protected final BinedDiffPanel diffPanel = new BinedDiffPanel();
+    protected final EntriesTableModel tableModel = new EntriesTableModel();
+    protected final JBTable entriesTable = new JBTable(tableModel);
+    protected final JBCheckBox showIdenticalCheckBox = new JBCheckBox();
+    protected final JLabel summaryLabel = new JBLabel();
+    protected BinaryDirectoryDiff directoryDiff = null;
+    private final Deque<BinaryDirectoryDiff.Entry> pendingEntries = new ConcurrentLinkedDeque<>();
+    private volatile ProgressIndicator indexIndicator = null;
+    private boolean indexing = false;
+
+    public BinedDirectoryDiffPanel() {
+        super(new BorderLayout());
+        init();
+    }
+
+    private void init() {
+        entriesTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        entriesTable.setAutoCreateRowSorter(true);
+        entriesTable.getSelectionModel().addListSelectionListener(event -> {
+            if (!event.getValueIsAdjusting()) {
+                showSelectedEntry();
+            }
+        });
+
+        showIdenticalCheckBox.setText(resourceBundle.getString("showIdentical.text"));
+        showIdenticalCheckBox.addActionListener(event -> updateEntries());
+        summaryLabel.setBorder(JBUI.Borders.empty(0, 5));
+        summaryLabel.setText(resourceBundle.getString("summary.computing"));
+        JPanel headerPanel = new JPanel(new BorderLayout());
+        headerPanel.add(summaryLabel, BorderLayout.CENTER);
+        headerPanel.add(showIdenticalCheckBox, BorderLayout.EAST);
+
+        JPanel entriesPanel = new JPanel(new BorderLayout());
+        entriesPanel.add(headerPanel, BorderLayout.NORTH);
+        entriesPanel.add(new JBScrollPane(entriesTable), BorderLayout.CENTER);
+
+        JBSplitter splitter = new JBSplitter(true, 0.35f);
+        splitter.setFirstComponent(entriesPanel);
+        splitter.setSecondComponent(diffPanel);
+        add(splitter, BorderLayout.CENTER);
+    }
+
+    @Nullable
+    public BinaryDirectoryDiff getDirectoryDiff() {
+        return directoryDiff;
+    }
+
+    public void setDirectoryDiff(BinaryDirectoryDiff directoryDiff) {
+        this.directoryDiff = directoryDiff;
+        summaryLabel.setText(String.format(resourceBundle.getString("summary.files"),
+                directoryDiff.getEntriesCount(BinaryDirectoryDiff.Status.IDENTICAL),
+                directoryDiff.getEntriesCount(BinaryDirectoryDiff.Status.CHANGED),
+                directoryDiff.getEntriesCount(BinaryDirectoryDiff.Status.LEFT_ONLY),
+                directoryDiff.getEntriesCount(BinaryDirectoryDiff.Status.RIGHT_ONLY),
+                directoryDiff.getEntriesCount(BinaryDirectoryDiff.Status.FAILED)));
+        updateEntries();
+
+        for (BinaryDirectoryDiff.Entry entry : directoryDiff.getEntries()) {
+            if (entry.getStatus() == BinaryDirectoryDiff.Status.CHANGED && entry.getDiffIndex() == null) {
+                pendingEntries.add(entry);
+            }
+        }
+        computeDiffIndexes();
+    }
+
+    /**
+     * Shows progress of directory comparison.
+     *
+     * @param processedCount number of processed files
+     * @param filesCount total number of files
+     */
+    public void setProgress(int processedCount, int filesCount) {
+        summaryLabel.setText(String.format(resourceBundle.getString("summary.progress"), processedCount, filesCount));
+    }
+
+    /**
+     * Releases resources used by compared files.
+     */
+    public void dispose() {
+        pendingEntries.clear();
+        ProgressIndicator indicator = indexIndicator;
+        if (indicator != null) {
+            indicator.cancel();
+        }
+        diffPanel.dispose();
+    }
+
+    private void updateEntries() {
+        List<BinaryDirectoryDiff.Entry> entries = new ArrayList<>();
+        if (directoryDiff != null) {
+            boolean showIdentical = showIdenticalCheckBox.isSelected();
+            for (BinaryDirectoryDiff.Entry entry : directoryDiff.getEntries()) {
+                if (showIdentical || entry.getStatus() != BinaryDirectoryDiff.Status.IDENTICAL) {
+                    entries.add(entry);
+                }
+            }
+        }
+        tableModel.setEntries(entries);
+    }
+
+    private void showSelectedEntry() {
+        int selectedRow = entriesTable.getSelectedRow();
+        if (selectedRow < 0 || directoryDiff == null) {
+            return;
+        }
+
+        BinaryDirectoryDiff.Entry entry = tableModel.getEntry(entriesTable.convertRowIndexToModel(selectedRow));
+        if (entry.getStatus() == BinaryDirectoryDiff.Status.FAILED) {
+            diffPanel.setDiffFiles(null, null);
+            return;
+        }
+
+        Path leftFile = entry.getStatus() == BinaryDirectoryDiff.Status.RIGHT_ONLY ? null : directoryDiff.getLeftDirectory().resolve(entry.getRelativePath());
+        Path rightFile = entry.getStatus() == BinaryDirectoryDiff.Status.LEFT_ONLY ? null : directoryDiff.getRightDirectory().resolve(entry.getRelativePath());
+        diffPanel.setDiffFiles(leftFile, rightFile);
+        BinaryDiffIndex diffIndex = entry.getDiffIndex();
+        diffPanel.setDiffIndex(diffIndex);
+        if (diffIndex != null) {
+            return;
+        }
+
+        // Move selected file to the front of the queue
+        pendingEntries.remove(entry);
+        pendingEntries.addFirst(entry);
+        computeDiffIndexes();
+    }
+
+    private void computeDiffIndexes() {
+        if (indexing || pendingEntries.isEmpty()) {
+            return;
+        }
+
+        indexing = true;
+        BinaryDirectoryDiff computedDiff = directoryDiff;
+        ProgressManager.getInstance().run(new Task.Backgroundable(null, "Comparing files", true) {
+            @Override
+            public void run(ProgressIndicator indicator) {
+                indexIndicator = indicator;
+                indicator.setIndeterminate(false);
+                int processedCount = 0;
+                BinaryDirectoryDiff.Entry entry;
+                while ((entry = pendingEntries.poll()) != null) {
+                    indicator.checkCanceled();
+                    indicator.setFraction((double) processedCount / (processedCount + pendingEntries.size() + 1));
+                    indicator.setText2(entry.getRelativePath());
+                    if (entry.getDiffIndex() == null) {
+                        try {
+                            BinaryDiffIndex diffIndex = computedDiff.computeDiffIndex(entry, indicator::checkCanceled);
+                            BinaryDirectoryDiff.Entry computedEntry = entry;
+                            ApplicationManager.getApplication().invokeLater(() -> diffIndexComputed(computedEntry, diffIndex), ModalityState.any());
+                        } catch (IOException ex) {
+                            Logger.getLogger(BinedDirectoryDiffPanel.class.getName()).log(Level.SEVERE, null, ex);
+                        }
+                    }
+                    processedCount++;
+                }
+            }
+
+            @Override
+            public void onCancel() {
+                pendingEntries.clear();
+            }
+
+            @Override
+            public void onFinished() {
+                indexIndicator = null;
+                indexing = false;
+                // Entry might be selected after the queue was drained
+                computeDiffIndexes();
+            }
+        });
+    }
+
+    private void diffIndexComputed(BinaryDirectoryDiff.Entry entry, BinaryDiffIndex diffIndex) {
+        tableModel.entryUpdated(entry);
+        int row = entriesTable.getSelectedRow();
+        if (row >= 0 && tableModel.getEntry(entriesTable.convertRowIndexToModel(row)) == entry) {
+            diffPanel.setDiffIndex(diffIndex);
+        }
+    }
+
+    @Nonnull
+    private String getStatusText(BinaryDirectoryDiff.Status status) {
+        return resourceBundle.getString("status." + status.name().toLowerCase());
+    }
+
+    /**
+     * Table model of compared files.
+     */
+    private class EntriesTableModel extends AbstractTableModel {
+
+        private final String[] columnKeys = {"column.file", "column.status", "column.leftSize", "column.rightSize", "column.changedBytes"};
+        private List<BinaryDirectoryDiff.Entry> entries = new ArrayList<>();
+
+        public void setEntries(List<BinaryDirectoryDiff.Entry> entries) {
+            this.entries = entries;
+            fireTableDataChanged();
+        }
+
+        @Nonnull
+        public BinaryDirectoryDiff.Entry getEntry(int rowIndex) {
+            return entries.get(rowIndex);
+        }
+
+        public void entryUpdated(BinaryDirectoryDiff.Entry entry) {
+            int rowIndex = entries.indexOf(entry);
+            if (rowIndex >= 0) {
+                fireTableRowsUpdated(rowIndex, rowIndex);
+            }
+        }
+
+        @Override
+        public int getRowCount() {
+            return entries.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnKeys.length;
+        }
+
+        @Nonnull
+        @Override
+        public String getColumnName(int column) {
+            return resourceBundle.getString(columnKeys[column]);
+        }
+
+        @Nonnull
+        @Override
+        public Class<?> getColumnClass(int columnIndex) {
+            return columnIndex < 2 ? String.class : Long.class;
+        }
+
+        @Nullable
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            BinaryDirectoryDiff.Entry entry = entries.get(rowIndex);
+            switch (columnIndex) {
+                case 0:
+                    return entry.getRelativePath();
+                case 1:
+                    return getStatusText(entry.getStatus());
+                case 2:
+                    return entry.getLeftSize() < 0 ? null : entry.getLeftSize();
+                case 3:
+                    return entry.getRightSize() < 0 ? null : entry.getRightSize();
+                case 4:
+                    return entry.getChangedBytesCount() < 0 ? null : entry.getChangedBytesCount();
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff.gui;
+
+import com.intellij.diff.util.TextDiffType;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.util.ui.JBUI;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.bined.EditMode;
+import org.exbin.bined.basic.CodeAreaScrollPosition;
+import org.exbin.bined.capability.CharsetCapable;
+import org.exbin.bined.intellij.diff.BinaryDiffIndex;
+import org.exbin.bined.intellij.diff.BinaryMergeModel;
+import org.exbin.bined.intellij.gui.EditorBackgroundCodeArea;
+import org.exbin.bined.jaguif.viewer.settings.CodeAreaOptions;
+import org.exbin.bined.jaguif.viewer.settings.CodeAreaViewerSettingsApplier;
+import org.exbin.bined.swing.capability.FontCapable;
+import org.exbin.bined.swing.section.SectCodeArea;
+import org.exbin.bined.swing.section.SectionCodeAreaPainter;
+import org.exbin.jaguif.App;
+import org.exbin.jaguif.language.api.LanguageModuleApi;
+import org.exbin.jaguif.options.api.OptionsModuleApi;
+import org.exbin.jaguif.options.api.OptionsStorage;
+import org.exbin.jaguif.text.encoding.settings.TextEncodingOptions;
+import org.exbin.jaguif.text.font.settings.TextFontOptions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.GridLayout;
+import java.nio.charset.Charset;
+import java.util.ResourceBundle;
+
+/**
+ * Panel for three-way binary merge.
+ * <p>
+ * Shows left data, merged result and right data, all sides share the same
+ * positions so scrolling is synchronized directly.
+ */
+@ParametersAreNonnullByDefault
+public class BinedMergePanel extends JPanel {
+
+    protected final ResourceBundle resourceBundle = App.getModule(LanguageModuleApi.class).getBundle(BinedMergePanel.class);
+    protected final SectCodeArea leftCodeArea = new EditorBackgroundCodeArea();
+    protected final SectCodeArea resultCodeArea = new EditorBackgroundCodeArea();
+    protected final SectCodeArea rightCodeArea = new EditorBackgroundCodeArea();
+    protected final DiffIndexCodeAreaColorAssessor leftChangesAssessor;
+    protected final DiffIndexCodeAreaColorAssessor leftConflictsAssessor;
+    protected final DiffIndexCodeAreaColorAssessor resultChangesAssessor;
+    protected final DiffIndexCodeAreaColorAssessor resultConflictsAssessor;
+    protected final DiffIndexCodeAreaColorAssessor rightChangesAssessor;
+    protected final DiffIndexCodeAreaColorAssessor rightConflictsAssessor;
+    protected final JLabel summaryLabel = new JBLabel();
+    protected BinaryMergeModel mergeModel = null;
+    protected Runnable resolutionChangeListener = null;
+    protected CodeAreaScrollCoordinator scrollCoordinator;
+
+    public BinedMergePanel() {
+        super(new BorderLayout());
+
+        leftChangesAssessor = new DiffIndexCodeAreaColorAssessor(((SectionCodeAreaPainter) leftCodeArea.getPainter()).getColorAssessor());
+        leftConflictsAssessor = installAssessor(leftCodeArea, leftChangesAssessor);
+        resultChangesAssessor = new DiffIndexCodeAreaColorAssessor(((SectionCodeAreaPainter) resultCodeArea.getPainter()).getColorAssessor());
+        resultConflictsAssessor = installAssessor(resultCodeArea, resultChangesAssessor);
+        rightChangesAssessor = new DiffIndexCodeAreaColorAssessor(((SectionCodeAreaPainter) rightCodeArea.getPainter()).getColorAssessor());
+        rightConflictsAssessor = installAssessor(rightCodeArea, rightChangesAssessor);
+        init();
+    }
+
+    private void init() {
+        OptionsStorage preferences = App.getModule(OptionsModuleApi.class).getAppOptions();
+        JPanel sidesPanel = new JPanel(new GridLayout(1, 3, JBUI.scale(5), 0));
+        sidesPanel.add(createSidePanel(leftCodeArea, resourceBundle.getString("side.left"), preferences));
+        sidesPanel.add(createSidePanel(resultCodeArea, resourceBundle.getString("side.result"), preferences));
+        sidesPanel.add(createSidePanel(rightCodeArea, resourceBundle.getString("side.right"), preferences));
+        add(sidesPanel, BorderLayout.CENTER);
+
+        summaryLabel.setBorder(JBUI.Borders.empty(2, 5));
+        summaryLabel.setText(resourceBundle.getString("summary.computing"));
+        add(summaryLabel, BorderLayout.NORTH);
+
+        scrollCoordinator = new CodeAreaScrollCoordinator(leftCodeArea, resultCodeArea, rightCodeArea);
+    }
+
+    @Nonnull
+    public SectCodeArea getResultCodeArea() {
+        return resultCodeArea;
+    }
+
+    /**
+     * Sets data of all three sides before merge model is available.
+     *
+     * @param baseData base data shown as result
+     * @param leftData left data
+     * @param rightData right data
+     */
+    public void setContentData(BinaryData baseData, BinaryData leftData, BinaryData rightData) {
+        leftCodeArea.setContentData(leftData);
+        resultCodeArea.setContentData(baseData);
+        rightCodeArea.setContentData(rightData);
+    }
+
+    @Nullable
+    public BinaryMergeModel getMergeModel() {
+        return mergeModel;
+    }
+
+    public void setMergeModel(BinaryMergeModel mergeModel) {
+        this.mergeModel = mergeModel;
+        leftChangesAssessor.setDiffIndex(mergeModel.createChangesIndex(BinaryMergeModel.Side.LEFT), TextDiffType.MODIFIED);
+        rightChangesAssessor.setDiffIndex(mergeModel.createChangesIndex(BinaryMergeModel.Side.RIGHT), TextDiffType.MODIFIED);
+        updateResult();
+    }
+
+    public void setResolutionChangeListener(@Nullable Runnable resolutionChangeListener) {
+        this.resolutionChangeListener = resolutionChangeListener;
+    }
+
+    /**
+     * Returns index of merge range at cursor of active side.
+     *
+     * @return range index or -1
+     */
+    public int getCurrentRange() {
+        return mergeModel == null ? -1 : mergeModel.findRange(getActiveCodeArea().getDataPosition());
+    }
+
+    /**
+     * Resolves range at cursor using given side.
+     *
+     * @param side chosen side
+     */
+    public void resolveCurrentRange(BinaryMergeModel.Side side) {
+        int rangeIndex = getCurrentRange();
+        if (rangeIndex >= 0) {
+            mergeModel.setResolution(rangeIndex, side);
+            updateResult();
+        }
+    }
+
+    public boolean canGoToNextConflict() {
+        return mergeModel != null && mergeModel.findNextConflict(getActiveCodeArea().getDataPosition()) >= 0;
+    }
+
+    public boolean canGoToPreviousConflict() {
+        return mergeModel != null && mergeModel.findPreviousConflict(getActiveCodeArea().getDataPosition()) >= 0;
+    }
+
+    public void goToNextConflict() {
+        int rangeIndex = mergeModel == null ? -1 : mergeModel.findNextConflict(getActiveCodeArea().getDataPosition());
+        if (rangeIndex >= 0) {
+            showPosition(mergeModel.getRangeStart(rangeIndex));
+        }
+    }
+
+    public void goToPreviousConflict() {
+        int rangeIndex = mergeModel == null ? -1 : mergeModel.findPreviousConflict(getActiveCodeArea().getDataPosition());
+        if (rangeIndex >= 0) {
+            showPosition(mergeModel.getRangeStart(rangeIndex));
+        }
+    }
+
+    private void updateResult() {
+        CodeAreaScrollPosition scrollPosition = resultCodeArea.getScrollPosition();
+        long dataPosition = resultCodeArea.getDataPosition();
+        // Result is generated on demand from source data for current resolutions
+        BinaryData resultData = mergeModel.createResultData();
+        resultCodeArea.setContentData(resultData);
+        resultCodeArea.setActiveCaretPosition(Math.min(dataPosition, resultData.getDataSize()));
+        resultCodeArea.setScrollPosition(scrollPosition);
+        resultChangesAssessor.setDiffIndex(mergeModel.createResultIndex(false), TextDiffType.MODIFIED);
+        BinaryDiffIndex unresolvedIndex = mergeModel.createResultIndex(true);
+        leftConflictsAssessor.setDiffIndex(unresolvedIndex, TextDiffType.CONFLICT);
+        resultConflictsAssessor.setDiffIndex(unresolvedIndex, TextDiffType.CONFLICT);
+        rightConflictsAssessor.setDiffIndex(unresolvedIndex, TextDiffType.CONFLICT);
+
+        int unresolvedCount = mergeModel.getUnresolvedCount();
+        summaryLabel.setText(String.format(resourceBundle.getString("summary.conflicts"), mergeModel.getRangesCount(), mergeModel.getConflictsCount(), unresolvedCount));
+        leftCodeArea.repaint();
+        resultCodeArea.repaint();
+        rightCodeArea.repaint();
+        if (resolutionChangeListener != null) {
+            resolutionChangeListener.run();
+        }
+    }
+
+    @Nonnull
+    private SectCodeArea getActiveCodeArea() {
+        if (leftCodeArea.hasFocus()) {
+            return leftCodeArea;
+        }
+        return rightCodeArea.hasFocus() ? rightCodeArea : resultCodeArea;
+    }
+
+    private void showPosition(long position) {
+        SectCodeArea codeArea = getActiveCodeArea();
+        codeArea.setActiveCaretPosition(Math.min(position, codeArea.getDataSize()));
+        codeArea.centerOnCursor();
+    }
+
+    @Nonnull
+    private static JPanel createSidePanel(SectCodeArea codeArea, String title, OptionsStorage preferences) {
+        codeArea.setEditMode(EditMode.READ_ONLY);
+        codeArea.setPreferredSize(new Dimension(0, 150));
+        CodeAreaViewerSettingsApplier.applyToCodeArea(new CodeAreaOptions(preferences), codeArea);
+        TextEncodingOptions encodingOptions = new TextEncodingOptions(preferences);
+        ((CharsetCapable) codeArea).setCharset(Charset.forName(encodingOptions.getSelectedEncoding()));
+        TextFontOptions fontOptions = new TextFontOptions(preferences);
+        Font defaultFont = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+        ((FontCapable) codeArea).setCodeFont(fontOptions.isUseDefaultFont() ? defaultFont : fontOptions.getFont(defaultFont));
+
+        JPanel sidePanel = new JPanel(new BorderLayout());
+        JLabel titleLabel = new JBLabel(title);
+        titleLabel.setBorder(JBUI.Borders.empty(2, 5));
+        sidePanel.add(titleLabel, BorderLayout.NORTH);
+        sidePanel.add(codeArea, BorderLayout.CENTER);
+        return sidePanel;
+    }
+
+    @Nonnull
+    private static DiffIndexCodeAreaColorAssessor installAssessor(SectCodeArea codeArea, DiffIndexCodeAreaColorAssessor changesAssessor) {
+        // Conflicts are highlighted on top of changes
+        DiffIndexCodeAreaColorAssessor conflictsAssessor = new DiffIndexCodeAreaColorAssessor(changesAssessor);
+        ((SectionCodeAreaPainter) codeArea.getPainter()).setColorAssessor(conflictsAssessor);
+        return conflictsAssessor;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff.gui;
+
+import org.exbin.bined.basic.CodeAreaScrollPosition;
+import org.exbin.bined.swing.section.SectCodeArea;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.swing.Timer;
+
+/**
+ * Coordinator of synchronized scrolling of multiple code areas.
+ * <p>
+ * Scroll events are coalesced on the EDT and other code areas are updated
+ * at most once per frame from the last scrolled code area. Positions can be
+ * mapped between code areas, code area is not updated if its scroll
+ * position doesn't change so that each code area is repainted only once.
+ */
+@ParametersAreNonnullByDefault
+public class CodeAreaScrollCoordinator {
+
+    private static final int FRAME_DELAY_MS = 16;
+
+    private final SectCodeArea[] codeAreas;
+    private final Timer frameTimer;
+    private PositionMapper positionMapper = null;
+    private SectCodeArea pendingSource = null;
+    private boolean synchronizing = false;
+
+    public CodeAreaScrollCoordinator(SectCodeArea... codeAreas) {
+        this.codeAreas = codeAreas;
+        frameTimer = new Timer(FRAME_DELAY_MS, event -> synchronizeScrolling());
+        frameTimer.setRepeats(false);
+        for (SectCodeArea codeArea : codeAreas) {
+            codeArea.addScrollingListener(() -> scrolled(codeArea));
+        }
+    }
+
+    /**
+     * Sets mapping of data positions between code areas.
+     *
+     * @param positionMapper position mapper or null for the same positions
+     */
+    public void setPositionMapper(@Nullable PositionMapper positionMapper) {
+        this.positionMapper = positionMapper;
+    }
+
+    private void scrolled(SectCodeArea codeArea) {
+        if (synchronizing) {
+            // Change caused by synchronization itself
+            return;
+        }
+
+        pendingSource = codeArea;
+        if (!frameTimer.isRunning()) {
+            frameTimer.start();
+        }
+    }
+
+    private void synchronizeScrolling() {
+        SectCodeArea sourceCodeArea = pendingSource;
+        pendingSource = null;
+        if (sourceCodeArea == null) {
+            return;
+        }
+
+        CodeAreaScrollPosition sourcePosition = sourceCodeArea.getScrollPosition();
+        long topPosition = sourcePosition.getRowPosition() * sourceCodeArea.getMaxBytesPerRow();
+        synchronizing = true;
+        try {
+            for (SectCodeArea codeArea : codeAreas) {
+                if (codeArea == sourceCodeArea) {
+                    continue;
+                }
+
+                int bytesPerRow = codeArea.getMaxBytesPerRow();
+                long mappedPosition = positionMapper == null ? topPosition : positionMapper.mapPosition(sourceCodeArea, codeArea, topPosition);
+                CodeAreaScrollPosition currentPosition = codeArea.getScrollPosition();
+                CodeAreaScrollPosition scrollPosition = sourceCodeArea.getScrollPosition();
+                scrollPosition.setRowPosition(mappedPosition / bytesPerRow);
+                long maxRowPosition = codeArea.getDataSize() / bytesPerRow;
+                if (scrollPosition.getRowPosition() > maxRowPosition) {
+                    if (currentPosition.getRowPosition() >= maxRowPosition) {
+                        continue;
+                    }
+                    scrollPosition.setRowPosition(maxRowPosition);
+                }
+
+                if (!isSamePosition(currentPosition, scrollPosition)) {
+                    codeArea.setScrollPosition(scrollPosition);
+                }
+            }
+        } finally {
+            synchronizing = false;
+        }
+    }
+
+    private static boolean isSamePosition(CodeAreaScrollPosition position, CodeAreaScrollPosition otherPosition) {
+        return position.getRowPosition() == otherPosition.getRowPosition()
+                && position.getRowOffset() == otherPosition.getRowOffset()
+                && position.getCharPosition() == otherPosition.getCharPosition()
+                && position.getCharOffset() == otherPosition.getCharOffset();
+    }
+
+    /**
+     * Mapping of data positions between code areas.
+     */
+    @ParametersAreNonnullByDefault
+    public interface PositionMapper {
+
+        /**
+         * Maps data position of source code area to target code area.
+         *
+         * @param sourceCodeArea source code area
+         * @param targetCodeArea target code area
+         * @param position data position in source code area
+         * @return data position in target code area
+         */
+        long mapPosition(SectCodeArea sourceCodeArea, SectCodeArea targetCodeArea, long position);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff.gui;
+
+import com.intellij.diff.util.TextDiffType;
+import org.exbin.bined.CodeAreaSection;
+import org.exbin.bined.intellij.diff.BinaryDiffIndex;
+import org.exbin.bined.swing.CodeAreaColorAssessor;
+import org.exbin.bined.swing.CodeAreaPaintState;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.awt.Color;
+import java.util.Optional;
+
+/**
+ * Color assessor highlighting differences using precomputed difference index.
+ */
+@ParametersAreNonnullByDefault
+public class DiffIndexCodeAreaColorAssessor implements CodeAreaColorAssessor {
+
+    private final CodeAreaColorAssessor parentColorAssessor;
+    private BinaryDiffIndex diffIndex = null;
+    private long comparedDataSize = 0;
+    private TextDiffType diffType = null;
+    private Color changedBackgroundColor;
+    private Color addedBackgroundColor;
+    private Color diffTypeBackgroundColor;
+
+    public DiffIndexCodeAreaColorAssessor(@Nullable CodeAreaColorAssessor parentColorAssessor) {
+        this.parentColorAssessor = parentColorAssessor;
+    }
+
+    /**
+     * Sets index of byte to byte differences.
+     *
+     * @param diffIndex difference index or null to disable highlighting
+     * @param comparedDataSize size of data on the other side
+     */
+    public void setDiffIndex(@Nullable BinaryDiffIndex diffIndex, long comparedDataSize) {
+        this.diffIndex = diffIndex;
+        this.comparedDataSize = comparedDataSize;
+        diffType = null;
+    }
+
+    /**
+     * Sets index of differences of single type.
+     *
+     * @param diffIndex difference index or null to disable highlighting
+     * @param diffType type of all differences
+     */
+    public void setDiffIndex(@Nullable BinaryDiffIndex diffIndex, TextDiffType diffType) {
+        this.diffIndex = diffIndex;
+        this.diffType = diffType;
+    }
+
+    @Override
+    public void startPaint(CodeAreaPaintState codeAreaPaintState) {
+        changedBackgroundColor = TextDiffType.MODIFIED.getColor(null);
+        addedBackgroundColor = TextDiffType.INSERTED.getColor(null);
+        diffTypeBackgroundColor = diffType != null ? diffType.getColor(null) : null;
+        if (parentColorAssessor != null) {
+            parentColorAssessor.startPaint(codeAreaPaintState);
+        }
+    }
+
+    @Nullable
+    @Override
+    public Color getPositionBackgroundColor(long rowDataPosition, int byteOnRow, int charOnRow, CodeAreaSection section, boolean inSelection) {
+        if (diffIndex != null && !inSelection) {
+            long position = rowDataPosition + byteOnRow;
+            if (diffIndex.isDifferent(position)) {
+                if (diffTypeBackgroundColor != null) {
+                    return diffTypeBackgroundColor;
+                }
+                return position < comparedDataSize ? changedBackgroundColor : addedBackgroundColor;
+            }
+        }
+
+        return parentColorAssessor != null ? parentColorAssessor.getPositionBackgroundColor(rowDataPosition, byteOnRow, charOnRow, section, inSelection) : null;
+    }
+
+    @Nullable
+    @Override
+    public Color getPositionTextColor(long rowDataPosition, int byteOnRow, int charOnRow, CodeAreaSection section, boolean inSelection) {
+        return parentColorAssessor != null ? parentColorAssessor.getPositionTextColor(rowDataPosition, byteOnRow, charOnRow, section, inSelection) : null;
+    }
+
+    @Nonnull
+    @Override
+    public Optional<CodeAreaColorAssessor> getParentColorAssessor() {
+        return Optional.ofNullable(parentColorAssessor);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff.gui;
+
+import com.intellij.diff.util.TextDiffType;
+import com.intellij.util.ui.JBUI;
+import org.exbin.bined.intellij.diff.BinaryDiffIndex;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.swing.JComponent;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+/**
+ * Overview strip showing positions of differences in whole data.
+ * <p>
+ * Left half of the strip shows left data differences, right half shows right
+ * data differences.
+ */
+@ParametersAreNonnullByDefault
+public class DiffOverviewPanel extends JComponent {
+
+    private BinaryDiffIndex leftDiffIndex = null;
+    private BinaryDiffIndex rightDiffIndex = null;
+    private PositionListener positionListener = null;
+    private boolean[] leftMarkedRows = new boolean[0];
+    private boolean[] rightMarkedRows = new boolean[0];
+
+    public DiffOverviewPanel() {
+        setPreferredSize(new Dimension(JBUI.scale(12), 0));
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                boolean rightSide = e.getX() >= getWidth() / 2;
+                BinaryDiffIndex diffIndex = rightSide ? rightDiffIndex : leftDiffIndex;
+                if (diffIndex == null || positionListener == null || getHeight() == 0) {
+                    return;
+                }
+
+                long position = (long) ((double) e.getY() / getHeight() * diffIndex.getComparedSize());
+                int rangeIndex = diffIndex.findRange(position);
+                if (rangeIndex < 0) {
+                    rangeIndex = diffIndex.findNextRange(position);
+                }
+                if (rangeIndex >= 0) {
+                    positionListener.positionSelected(rightSide, diffIndex.getRangeStart(rangeIndex));
+                }
+            }
+        });
+    }
+
+    public void setDiffIndexes(@Nullable BinaryDiffIndex leftDiffIndex, @Nullable BinaryDiffIndex rightDiffIndex) {
+        this.leftDiffIndex = leftDiffIndex;
+        this.rightDiffIndex = rightDiffIndex;
+        leftMarkedRows = new boolean[0];
+        rightMarkedRows = new boolean[0];
+        repaint();
+    }
+
+    public void setPositionListener(@Nullable PositionListener positionListener) {
+        this.positionListener = positionListener;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        int height = getHeight();
+        if (height == 0) {
+            return;
+        }
+
+        g.setColor(TextDiffType.MODIFIED.getColor(null));
+        int halfWidth = getWidth() / 2;
+        if (leftMarkedRows.length != height) {
+            leftMarkedRows = computeMarkedRows(leftDiffIndex, height);
+        }
+        paintMarkedRows(g, leftMarkedRows, 0, halfWidth);
+        if (rightMarkedRows.length != height) {
+            rightMarkedRows = computeMarkedRows(rightDiffIndex, height);
+        }
+        paintMarkedRows(g, rightMarkedRows, halfWidth, getWidth() - halfWidth);
+    }
+
+    private static void paintMarkedRows(Graphics g, boolean[] markedRows, int x, int width) {
+        int height = markedRows.length;
+        int row = 0;
+        while (row < height) {
+            if (!markedRows[row]) {
+                row++;
+                continue;
+            }
+            int startRow = row;
+            while (row < height && markedRows[row]) {
+                row++;
+            }
+            g.fillRect(x, startRow, width, row - startRow);
+        }
+    }
+
+    @Nonnull
+    private static boolean[] computeMarkedRows(@Nullable BinaryDiffIndex diffIndex, int height) {
+        // Ranges are aggregated to pixel rows so painting doesn't depend on number of differences
+        boolean[] rows = new boolean[height];
+        if (diffIndex == null || diffIndex.getComparedSize() == 0) {
+            return rows;
+        }
+
+        double comparedSize = diffIndex.getComparedSize();
+        for (int i = 0; i < diffIndex.getRangesCount(); i++) {
+            int startRow = (int) (diffIndex.getRangeStart(i) / comparedSize * height);
+            int endRow = (int) ((diffIndex.getRangeEnd(i) - 1) / comparedSize * height);
+            for (int row = Math.max(startRow, 0); row <= Math.min(endRow, height - 1); row++) {
+                rows[row] = true;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Listener for selection of position in overview.
+     */
+    public interface PositionListener {
+
+        void positionSelected(boolean rightSide, long position);
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.diff.gui;
+
+import com.intellij.diff.util.TextDiffType;
+import com.intellij.util.ui.JBUI;
+import org.exbin.bined.intellij.diff.BinaryDataStatistics;
+import org.exbin.bined.intellij.diff.BinaryDiffIndex;
+import org.exbin.jaguif.App;
+import org.exbin.jaguif.language.api.LanguageModuleApi;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.swing.JComponent;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+import java.util.ResourceBundle;
+
+/**
+ * Strip showing entropy and differences of data blocks.
+ * <p>
+ * Each side has column of block entropy colored from blue for uniform data
+ * to red for compressed or encrypted data and column of different blocks.
+ * Blocks are aggregated to pixel rows only when size or data change.
+ */
+@ParametersAreNonnullByDefault
+public class DiffStatisticsPanel extends JComponent {
+
+    private static final int MOST_FREQUENT_BYTES = 3;
+
+    protected final ResourceBundle resourceBundle = App.getModule(LanguageModuleApi.class).getBundle(DiffStatisticsPanel.class);
+    private final SideStatistics leftSide = new SideStatistics();
+    private final SideStatistics rightSide = new SideStatistics();
+    private DiffOverviewPanel.PositionListener positionListener = null;
+
+    public DiffStatisticsPanel() {
+        setPreferredSize(new Dimension(JBUI.scale(20), 0));
+        setToolTipText(resourceBundle.getString("statistics.computing"));
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                boolean rightSide = isRightSide(e.getX());
+                BinaryDataStatistics statistics = getSide(rightSide).statistics;
+                if (statistics == null || positionListener == null || getHeight() == 0) {
+                    return;
+                }
+
+                long position = (long) ((double) e.getY() / getHeight() * statistics.getDataSize());
+                int block = statistics.findBlock(position);
+                if (block >= 0) {
+                    positionListener.positionSelected(rightSide, statistics.getBlockStart(block));
+                }
+            }
+        });
+    }
+
+    public void setStatistics(@Nullable BinaryDataStatistics leftStatistics, @Nullable BinaryDataStatistics rightStatistics) {
+        leftSide.setStatistics(leftStatistics);
+        rightSide.setStatistics(rightStatistics);
+        repaint();
+    }
+
+    public void setDiffIndexes(@Nullable BinaryDiffIndex leftDiffIndex, @Nullable BinaryDiffIndex rightDiffIndex) {
+        leftSide.setDiffIndex(leftDiffIndex);
+        rightSide.setDiffIndex(rightDiffIndex);
+        repaint();
+    }
+
+    public void setPositionListener(@Nullable DiffOverviewPanel.PositionListener positionListener) {
+        this.positionListener = positionListener;
+    }
+
+    @Nullable
+    @Override
+    public String getToolTipText(MouseEvent event) {
+        SideStatistics side = getSide(isRightSide(event.getX()));
+        BinaryDataStatistics statistics = side.statistics;
+        if (statistics == null || getHeight() == 0) {
+            return resourceBundle.getString("statistics.computing");
+        }
+
+        long position = (long) ((double) event.getY() / getHeight() * statistics.getDataSize());
+        int block = statistics.findBlock(position);
+        if (block < 0) {
+            return null;
+        }
+
+        long blockStart = statistics.getBlockStart(block);
+        long blockLength = statistics.getBlockEnd(block) - blockStart;
+        float[] differentFractions = side.getDifferentFractions();
+        double differentPercentage = differentFractions == null ? 0 : differentFractions[block] * 100.0;
+        StringBuilder mostFrequent = new StringBuilder();
+        for (int value : findMostFrequentBytes(statistics.getHistogram(block))) {
+            if (mostFrequent.length() > 0) {
+                mostFrequent.append(", ");
+            }
+            mostFrequent.append(String.format(resourceBundle.getString("statistics.byte"), value, statistics.getHistogram(block)[value] * 100.0 / blockLength));
+        }
+        return String.format(resourceBundle.getString("statistics.block"), blockStart, blockStart + blockLength - 1, statistics.getEntropy(block), differentPercentage, mostFrequent);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        int height = getHeight();
+        if (height == 0) {
+            return;
+        }
+
+        int halfWidth = getWidth() / 2;
+        paintSide(g, leftSide, 0, halfWidth, height);
+        paintSide(g, rightSide, halfWidth, getWidth() - halfWidth, height);
+    }
+
+    private static void paintSide(Graphics g, SideStatistics side, int x, int width, int height) {
+        SideRows rows = side.getRows(height);
+        if (rows == null) {
+            return;
+        }
+
+        int entropyWidth = width / 2;
+        paintRuns(g, rows.entropyColors, x, entropyWidth);
+        g.setColor(TextDiffType.MODIFIED.getColor(null));
+        int row = 0;
+        while (row < height) {
+            if (!rows.differentRows[row]) {
+                row++;
+                continue;
+            }
+            int startRow = row;
+            while (row < height && rows.differentRows[row]) {
+                row++;
+            }
+            g.fillRect(x + entropyWidth, startRow, width - entropyWidth, row - startRow);
+        }
+    }
+
+    private static void paintRuns(Graphics g, Color[] colors, int x, int width) {
+        int row = 0;
+        while (row < colors.length) {
+            Color color = colors[row];
+            int startRow = row;
+            while (row < colors.length && colors[row] == color) {
+                row++;
+            }
+            if (color != null) {
+                g.setColor(color);
+                g.fillRect(x, startRow, width, row - startRow);
+            }
+        }
+    }
+
+    private boolean isRightSide(int x) {
+        return x >= getWidth() / 2;
+    }
+
+    @Nonnull
+    private SideStatistics getSide(boolean rightSide) {
+        return rightSide ? this.rightSide : leftSide;
+    }
+
+    @Nonnull
+    private static int[] findMostFrequentBytes(int[] histogram) {
+        int[] values = new int[MOST_FREQUENT_BYTES];
+        int found = 0;
+        boolean[] used = new boolean[histogram.length];
+        for (; found < MOST_FREQUENT_BYTES; found++) {
+            int bestValue = -1;
+            for (int value = 0; value < histogram.length; value++) {
+                if (!used[value] && histogram[value] > 0 && (bestValue < 0 || histogram[value] > histogram[bestValue])) {
+                    bestValue = value;
+                }
+            }
+            if (bestValue < 0) {
+                break;
+            }
+            used[bestValue] = true;
+            values[found] = bestValue;
+        }
+        return Arrays.copyOf(values, found);
+    }
+
+    /**
+     * Statistics and differences of one side with rows cached for painting.
+     */
+    @ParametersAreNonnullByDefault
+    private static class SideStatistics {
+
+        private static final int ENTROPY_LEVELS = 64;
+        private static final Color[] ENTROPY_COLORS = new Color[ENTROPY_LEVELS];
+
+        static {
+            for (int level = 0; level < ENTROPY_LEVELS; level++) {
+                float ratio = (float) level / (ENTROPY_LEVELS - 1);
+                ENTROPY_COLORS[level] = Color.getHSBColor(0.66f * (1 - ratio), 0.8f, 0.5f + 0.4f * ratio);
+            }
+        }
+
+        private BinaryDataStatistics statistics = null;
+        private BinaryDiffIndex diffIndex = null;
+        private float[] differentFractions = null;
+        private SideRows rows = null;
+
+        public void setStatistics(@Nullable BinaryDataStatistics statistics) {
+            this.statistics = statistics;
+            differentFractions = null;
+            rows = null;
+        }
+
+        public void setDiffIndex(@Nullable BinaryDiffIndex diffIndex) {
+            this.diffIndex = diffIndex;
+            differentFractions = null;
+            rows = null;
+        }
+
+        @Nullable
+        public float[] getDifferentFractions() {
+            if (differentFractions == null && statistics != null && diffIndex != null) {
+                differentFractions = statistics.computeDifferentFractions(diffIndex);
+            }
+            return differentFractions;
+        }
+
+        @Nullable
+        public SideRows getRows(int height) {
+            if (statistics == null) {
+                return null;
+            }
+            if (rows == null || rows.entropyColors.length != height) {
+                rows = computeRows(height);
+            }
+            return rows;
+        }
+
+        @Nonnull
+        private SideRows computeRows(int height) {
+            // Blocks are aggregated to pixel rows so painting doesn't depend on data size
+            SideRows sideRows = new SideRows(height);
+            int blocksCount = statistics.getBlocksCount();
+            if (blocksCount == 0) {
+                return sideRows;
+            }
+
+            float[] fractions = getDifferentFractions();
+            double[] entropySums = new double[height];
+            int[] blocksPerRow = new int[height];
+            for (int block = 0; block < blocksCount; block++) {
+                int startRow = (int) ((double) block / blocksCount * height);
+                int endRow = Math.max(startRow, (int) ((double) (block + 1) / blocksCount * height) - 1);
+                for (int row = startRow; row <= Math.min(endRow, height - 1); row++) {
+                    entropySums[row] += statistics.getEntropy(block);
+                    blocksPerRow[row]++;
+                    if (fractions != null && fractions[block] > 0) {
+                        sideRows.differentRows[row] = true;
+                    }
+                }
+            }
+            for (int row = 0; row < height; row++) {
+                if (blocksPerRow[row] > 0) {
+                    double entropy = entropySums[row] / blocksPerRow[row];
+                    int level = (int) Math.round(entropy / BinaryDataStatistics.MAX_ENTROPY * (ENTROPY_LEVELS - 1));
+                    sideRows.entropyColors[row] = ENTROPY_COLORS[Math.max(0, Math.min(level, ENTROPY_LEVELS - 1))];
+                }
+            }
+            return sideRows;
+        }
+    }
+
+    /**
+     * Pixel rows of strip.
+     */
+    private static class SideRows {
+
+        private final Color[] entropyColors;
+        private final boolean[] differentRows;
+
+        public SideRows(int height) {
+            entropyColors = new Color[height];
+            differentRows = new boolean[height];
+        }
+    }
+}
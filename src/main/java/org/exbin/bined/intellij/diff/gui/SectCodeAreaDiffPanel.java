@@ -15,22 +15,22 @@
  */
 package org.exbin.bined.intellij.diff.gui;
 
-import com.intellij.openapi.wm.impl.IdeBackgroundUtil;
-import com.intellij.ui.Graphics2DDelegate;
+import com.intellij.diff.util.TextDiffType;
 import org.exbin.auxiliary.binary_data.BinaryData;
 import org.exbin.bined.EditMode;
-import org.exbin.bined.basic.CodeAreaScrollPosition;
+import org.exbin.bined.intellij.diff.BinaryDataStatistics;
+import org.exbin.bined.intellij.diff.BinaryDiffAlignment;
+import org.exbin.bined.intellij.diff.BinaryDiffIndex;
+import org.exbin.bined.intellij.gui.EditorBackgroundCodeArea;
 import org.exbin.bined.swing.section.SectCodeArea;
 import org.exbin.bined.swing.section.SectionCodeAreaPainter;
-import org.exbin.bined.swing.section.diff.DiffHighlightCodeAreaColorAssessor;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.swing.JPanel;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
-import java.awt.Graphics;
-import java.awt.Graphics2D;
 
 /**
  * Panel for difference comparison of two code areas.
@@ -40,70 +40,25 @@ public class SectCodeAreaDiffPanel extends javax.swing.JPanel {
 
     protected final SectCodeArea leftCodeArea;
     protected final SectCodeArea rightCodeArea;
-    protected final DiffHighlightCodeAreaColorAssessor leftColorAssessor;
-    protected final DiffHighlightCodeAreaColorAssessor rightColorAssessor;
-    protected volatile boolean updatingScrolling = false;
+    protected final DiffIndexCodeAreaColorAssessor leftColorAssessor;
+    protected final DiffIndexCodeAreaColorAssessor rightColorAssessor;
+    protected final DiffOverviewPanel overviewPanel = new DiffOverviewPanel();
+    protected final DiffStatisticsPanel statisticsPanel = new DiffStatisticsPanel();
+    protected BinaryDiffIndex leftDiffIndex = null;
+    protected BinaryDiffIndex rightDiffIndex = null;
+    protected BinaryDiffAlignment alignment = null;
+    protected CodeAreaScrollCoordinator scrollCoordinator;
 
     public SectCodeAreaDiffPanel() {
         initComponents();
 
-        leftCodeArea = new SectCodeArea() {
-
-            private Graphics2DDelegate graphicsCache = null;
-
-            @Nonnull
-            @Override
-            protected Graphics getComponentGraphics(Graphics g) {
-                if (g instanceof Graphics2DDelegate) {
-                    return g;
-                }
-
-                if (graphicsCache != null && graphicsCache.getDelegate() == g) {
-                    return graphicsCache;
-                }
-
-                if (graphicsCache != null) {
-                    graphicsCache.dispose();
-                }
-
-                Graphics2D editorGraphics = IdeBackgroundUtil.withEditorBackground(g, this);
-                graphicsCache = editorGraphics instanceof Graphics2DDelegate ?
-                        (Graphics2DDelegate) editorGraphics :
-                        new Graphics2DDelegate(editorGraphics);
-                return graphicsCache;
-            }
-        };
-        rightCodeArea = new SectCodeArea() {
-
-            private Graphics2DDelegate graphicsCache = null;
-
-            @Nonnull
-            @Override
-            protected Graphics getComponentGraphics(Graphics g) {
-                if (g instanceof Graphics2DDelegate) {
-                    return g;
-                }
-
-                if (graphicsCache != null && graphicsCache.getDelegate() == g) {
-                    return graphicsCache;
-                }
-
-                if (graphicsCache != null) {
-                    graphicsCache.dispose();
-                }
-
-                Graphics2D editorGraphics = IdeBackgroundUtil.withEditorBackground(g, this);
-                graphicsCache = editorGraphics instanceof Graphics2DDelegate ?
-                        (Graphics2DDelegate) editorGraphics :
-                        new Graphics2DDelegate(editorGraphics);
-                return graphicsCache;
-            }
-        };
+        leftCodeArea = new EditorBackgroundCodeArea();
+        rightCodeArea = new EditorBackgroundCodeArea();
         SectionCodeAreaPainter leftCodeAreaPainter = (SectionCodeAreaPainter) leftCodeArea.getPainter();
-        leftColorAssessor = new DiffHighlightCodeAreaColorAssessor(leftCodeArea, leftCodeAreaPainter.getColorAssessor(), rightCodeArea.getContentData());
+        leftColorAssessor = new DiffIndexCodeAreaColorAssessor(leftCodeAreaPainter.getColorAssessor());
         leftCodeAreaPainter.setColorAssessor(leftColorAssessor);
         SectionCodeAreaPainter rightCodeAreaPainter = (SectionCodeAreaPainter) rightCodeArea.getPainter();
-        rightColorAssessor = new DiffHighlightCodeAreaColorAssessor(rightCodeArea, rightCodeAreaPainter.getColorAssessor(), leftCodeArea.getContentData());
+        rightColorAssessor = new DiffIndexCodeAreaColorAssessor(rightCodeAreaPainter.getColorAssessor());
         rightCodeAreaPainter.setColorAssessor(rightColorAssessor);
         init();
     }
@@ -115,41 +70,26 @@ public class SectCodeAreaDiffPanel extends javax.swing.JPanel {
         rightCodeArea.setPreferredSize(new Dimension(0, 150));
         leftPanel.add(leftCodeArea, BorderLayout.CENTER);
         rightPanel.add(rightCodeArea, BorderLayout.CENTER);
-
-        leftCodeArea.addScrollingListener(() -> {
-            if (!updatingScrolling) {
-                updatingScrolling = true;
-                CodeAreaScrollPosition currentScrollPosition = rightCodeArea.getScrollPosition();
-                CodeAreaScrollPosition scrollPosition = leftCodeArea.getScrollPosition();
-                long maxRowPosition = rightCodeArea.getDataSize() / rightCodeArea.getMaxBytesPerRow();
-                if (scrollPosition.getRowPosition() > maxRowPosition) {
-                    if (currentScrollPosition.getRowPosition() >= maxRowPosition) {
-                        updatingScrolling = false;
-                        return;
-                    }
-                    scrollPosition.setRowPosition(maxRowPosition);
-                }
-                rightCodeArea.setScrollPosition(scrollPosition);
-                updatingScrolling = false;
+        DiffOverviewPanel.PositionListener positionListener = (rightSide, position) -> {
+            if (rightSide) {
+                showRightPosition(position);
+            } else {
+                showLeftPosition(position);
             }
-        });
-
-        rightCodeArea.addScrollingListener(() -> {
-            if (!updatingScrolling) {
-                updatingScrolling = true;
-                CodeAreaScrollPosition currentScrollPosition = leftCodeArea.getScrollPosition();
-                CodeAreaScrollPosition scrollPosition = rightCodeArea.getScrollPosition();
-                long maxRowPosition = leftCodeArea.getDataSize() / leftCodeArea.getMaxBytesPerRow();
-                if (scrollPosition.getRowPosition() > maxRowPosition) {
-                    if (currentScrollPosition.getRowPosition() >= maxRowPosition) {
-                        updatingScrolling = false;
-                        return;
-                    }
-                    scrollPosition.setRowPosition(maxRowPosition);
-                }
-                leftCodeArea.setScrollPosition(scrollPosition);
-                updatingScrolling = false;
+        };
+        overviewPanel.setPositionListener(positionListener);
+        statisticsPanel.setPositionListener(positionListener);
+        JPanel stripsPanel = new JPanel(new BorderLayout());
+        stripsPanel.add(statisticsPanel, BorderLayout.WEST);
+        stripsPanel.add(overviewPanel, BorderLayout.EAST);
+        add(stripsPanel, BorderLayout.EAST);
+
+        scrollCoordinator = new CodeAreaScrollCoordinator(leftCodeArea, rightCodeArea);
+        scrollCoordinator.setPositionMapper((sourceCodeArea, targetCodeArea, position) -> {
+            if (alignment == null) {
+                return position;
             }
+            return sourceCodeArea == leftCodeArea ? alignment.mapLeftToRight(position) : alignment.mapRightToLeft(position);
         });
     }
 
@@ -209,11 +149,106 @@ public class SectCodeAreaDiffPanel extends javax.swing.JPanel {
 
     public void setLeftContentData(BinaryData contentData) {
         leftCodeArea.setContentData(contentData);
-        rightColorAssessor.setComparedData(contentData);
+        setDiffIndex(null);
+        setStatistics(null, null);
     }
 
     public void setRightContentData(BinaryData contentData) {
         rightCodeArea.setContentData(contentData);
-        leftColorAssessor.setComparedData(contentData);
+        setDiffIndex(null);
+        setStatistics(null, null);
+    }
+
+    /**
+     * Sets statistics of data blocks shown next to differences overview.
+     *
+     * @param leftStatistics left data statistics or null if not available
+     * @param rightStatistics right data statistics or null if not available
+     */
+    public void setStatistics(@Nullable BinaryDataStatistics leftStatistics, @Nullable BinaryDataStatistics rightStatistics) {
+        statisticsPanel.setStatistics(leftStatistics, rightStatistics);
+    }
+
+    @Nullable
+    public BinaryDiffIndex getLeftDiffIndex() {
+        return leftDiffIndex;
+    }
+
+    @Nullable
+    public BinaryDiffIndex getRightDiffIndex() {
+        return rightDiffIndex;
+    }
+
+    @Nullable
+    public BinaryDiffAlignment getAlignment() {
+        return alignment;
+    }
+
+    /**
+     * Sets index of byte to byte differences between left and right data.
+     *
+     * @param diffIndex difference index or null if not available
+     */
+    public void setDiffIndex(@Nullable BinaryDiffIndex diffIndex) {
+        leftDiffIndex = diffIndex;
+        rightDiffIndex = diffIndex;
+        alignment = null;
+        leftColorAssessor.setDiffIndex(diffIndex, rightCodeArea.getDataSize());
+        rightColorAssessor.setDiffIndex(diffIndex, leftCodeArea.getDataSize());
+        overviewPanel.setDiffIndexes(diffIndex, diffIndex);
+        statisticsPanel.setDiffIndexes(diffIndex, diffIndex);
+        leftCodeArea.repaint();
+        rightCodeArea.repaint();
+    }
+
+    /**
+     * Sets alignment of left and right data with inserted and deleted bytes.
+     *
+     * @param alignment data alignment
+     */
+    public void setAlignment(BinaryDiffAlignment alignment) {
+        this.alignment = alignment;
+        leftDiffIndex = alignment.getLeftIndex();
+        rightDiffIndex = alignment.getRightIndex();
+        leftColorAssessor.setDiffIndex(leftDiffIndex, TextDiffType.DELETED);
+        rightColorAssessor.setDiffIndex(rightDiffIndex, TextDiffType.INSERTED);
+        overviewPanel.setDiffIndexes(leftDiffIndex, rightDiffIndex);
+        statisticsPanel.setDiffIndexes(leftDiffIndex, rightDiffIndex);
+        leftCodeArea.repaint();
+        rightCodeArea.repaint();
+    }
+
+    /**
+     * Moves cursor in left code area to given position and scrolls both code
+     * areas to it.
+     *
+     * @param position data position
+     */
+    public void showLeftPosition(long position) {
+        if (alignment == null && position > leftCodeArea.getDataSize()) {
+            // Difference beyond the end of shorter data
+            showPosition(rightCodeArea, position);
+            return;
+        }
+        showPosition(leftCodeArea, position);
+    }
+
+    /**
+     * Moves cursor in right code area to given position and scrolls both
+     * code areas to it.
+     *
+     * @param position data position
+     */
+    public void showRightPosition(long position) {
+        if (alignment == null && position > rightCodeArea.getDataSize()) {
+            showPosition(leftCodeArea, position);
+            return;
+        }
+        showPosition(rightCodeArea, position);
+    }
+
+    private static void showPosition(SectCodeArea codeArea, long position) {
+        codeArea.setActiveCaretPosition(position);
+        codeArea.centerOnCursor();
     }
 }
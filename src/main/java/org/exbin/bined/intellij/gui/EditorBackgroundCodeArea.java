@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.gui;
+
+import com.intellij.openapi.wm.impl.IdeBackgroundUtil;
+import com.intellij.ui.Graphics2DDelegate;
+import org.exbin.bined.swing.section.SectCodeArea;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+
+/**
+ * Code area painted with IDE editor background image.
+ * <p>
+ * Wrapped graphics is cached and reused while component is painted using the
+ * same graphics.
+ */
+@ParametersAreNonnullByDefault
+public class EditorBackgroundCodeArea extends SectCodeArea {
+
+    private Graphics2DDelegate graphicsCache = null;
+
+    @Nonnull
+    @Override
+    protected Graphics getComponentGraphics(Graphics g) {
+        if (g instanceof Graphics2DDelegate) {
+            return g;
+        }
+
+        if (graphicsCache != null && graphicsCache.getDelegate() == g) {
+            return graphicsCache;
+        }
+
+        if (graphicsCache != null) {
+            graphicsCache.dispose();
+        }
+
+        Graphics2D editorGraphics = IdeBackgroundUtil.withEditorBackground(g, this);
+        graphicsCache = editorGraphics instanceof Graphics2DDelegate ?
+                (Graphics2DDelegate) editorGraphics :
+                new Graphics2DDelegate(editorGraphics);
+        return graphicsCache;
+    }
+}
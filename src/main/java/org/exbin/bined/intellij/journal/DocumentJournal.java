@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.journal;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.exbin.auxiliary.binary_data.BinaryData;
+import org.exbin.bined.intellij.diff.BinaryDiffAlignment;
+import org.exbin.bined.intellij.diff.BinaryDiffEngine;
+import org.exbin.bined.intellij.diff.FileChannelPageProvider;
+import org.exbin.bined.intellij.diff.VcdiffPatch;
+import org.exbin.bined.jaguif.objectdata.PageProviderBinaryData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Journal of unsaved changes of binary document.
+ * <p>
+ * Each checkpoint is appended as record containing VCDIFF patch from file on
+ * disk to current document data, so that only last valid record is needed
+ * for recovery. Journal is compacted to last record when it grows too large
+ * and records are written by single background thread.
+ */
+@ParametersAreNonnullByDefault
+public class DocumentJournal {
+
+    /**
+     * Maximum size of document with checkpoints, checkpoint requires snapshot
+     * of whole document data.
+     */
+    public static final long MAX_DOCUMENT_SIZE = 32L * 1024 * 1024;
+    private static final int HEADER_MAGIC = 0x42454a31;
+    private static final int RECORD_MAGIC = 0x52454331;
+    private static final int COMPACT_MIN_SIZE = 1024 * 1024;
+    private static final int COMPACT_RECORDS_RATIO = 4;
+    private static final ExecutorService EXECUTOR = AppExecutorUtil.createBoundedApplicationPoolExecutor("BinEd Journal", 1);
+
+    private final Path file;
+    private final Path journalFile;
+    private final AtomicLong generation = new AtomicLong();
+    private long lastRecordSize = 0;
+
+    public DocumentJournal(Path file) {
+        this.file = file.toAbsolutePath();
+        journalFile = getJournalDirectory().resolve(hashPath(this.file) + ".journal");
+    }
+
+    /**
+     * Schedules writing of checkpoint with given data in background.
+     * <p>
+     * Previously scheduled checkpoints which were not written yet are
+     * cancelled, so that only newest snapshot is kept.
+     *
+     * @param data snapshot of document data which is not modified later
+     */
+    public void scheduleCheckpoint(BinaryData data) {
+        long checkpointGeneration = generation.incrementAndGet();
+        EXECUTOR.execute(() -> {
+            try {
+                writeCheckpoint(data, () -> {
+                    if (generation.get() != checkpointGeneration) {
+                        throw new CancellationException();
+                    }
+                });
+            } catch (CancellationException ex) {
+                // Checkpoint was superseded
+            } catch (IOException ex) {
+                Logger.getLogger(DocumentJournal.class.getName()).log(Level.WARNING, "Unable to write journal for " + file, ex);
+            }
+        });
+    }
+
+    /**
+     * Cancels pending checkpoints and removes journal.
+     */
+    public void discard() {
+        generation.incrementAndGet();
+        EXECUTOR.execute(() -> {
+            try {
+                Files.deleteIfExists(journalFile);
+                lastRecordSize = 0;
+            } catch (IOException ex) {
+                Logger.getLogger(DocumentJournal.class.getName()).log(Level.WARNING, "Unable to delete journal for " + file, ex);
+            }
+        });
+    }
+
+    /**
+     * Reads patch of last valid checkpoint if it matches current file.
+     *
+     * @return patch or null if there is nothing to recover
+     */
+    @Nullable
+    public byte[] readRecoverablePatch() {
+        if (!Files.isRegularFile(journalFile)) {
+            return null;
+        }
+
+        byte[] patch = null;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile)))) {
+            if (input.readInt() != HEADER_MAGIC || !file.toString().equals(input.readUTF())) {
+                return null;
+            }
+
+            long fileSize = Files.size(file);
+            long fileModified = Files.getLastModifiedTime(file).toMillis();
+            while (true) {
+                Record record = readRecord(input);
+                if (record == null) {
+                    break;
+                }
+                patch = record.baseSize == fileSize && record.baseModified == fileModified ? record.patch : null;
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(DocumentJournal.class.getName()).log(Level.WARNING, "Unable to read journal for " + file, ex);
+        }
+        return patch;
+    }
+
+    /**
+     * Applies recovered patch to current file content.
+     *
+     * @param patch patch
+     * @param outputStream output stream for recovered data
+     * @param cancelCheck cancellation check
+     * @throws IOException if patch cannot be applied
+     */
+    public void recover(byte[] patch, OutputStream outputStream, Runnable cancelCheck) throws IOException {
+        try (FileChannelPageProvider baseProvider = new FileChannelPageProvider(file)) {
+            VcdiffPatch.apply(new PageProviderBinaryData(baseProvider), new ByteArrayInputStream(patch), outputStream, cancelCheck);
+        }
+    }
+
+    @Nonnull
+    public Path getFile() {
+        return file;
+    }
+
+    private void writeCheckpoint(BinaryData data, Runnable cancelCheck) throws IOException {
+        cancelCheck.run();
+        long baseSize = Files.size(file);
+        long baseModified = Files.getLastModifiedTime(file).toMillis();
+        ByteArrayOutputStream patchStream = new ByteArrayOutputStream();
+        try (FileChannelPageProvider baseProvider = new FileChannelPageProvider(file)) {
+            BinaryData baseData = new PageProviderBinaryData(baseProvider);
+            BinaryDiffAlignment alignment = BinaryDiffEngine.computeAlignment(baseData, data, cancelCheck);
+            VcdiffPatch.encode(baseData, data, alignment, patchStream, cancelCheck);
+        }
+        cancelCheck.run();
+
+        byte[] record = createRecord(baseSize, baseModified, patchStream.toByteArray());
+        Files.createDirectories(journalFile.getParent());
+        long journalSize = Files.isRegularFile(journalFile) ? Files.size(journalFile) : 0;
+        if (journalSize == 0 || (journalSize > COMPACT_MIN_SIZE && journalSize > (long) COMPACT_RECORDS_RATIO * Math.max(lastRecordSize, record.length))) {
+            // Only last record is needed, journal is replaced atomically
+            Path compactedFile = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(compactedFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(channel, createHeader());
+                writeFully(channel, record);
+                channel.force(false);
+            }
+            Files.move(compactedFile, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                writeFully(channel, record);
+                channel.force(false);
+            }
+        }
+        lastRecordSize = record.length;
+    }
+
+    @Nonnull
+    private byte[] createHeader() throws IOException {
+        ByteArrayOutputStream headerStream = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(headerStream);
+        output.writeInt(HEADER_MAGIC);
+        output.writeUTF(file.toString());
+        output.flush();
+        return headerStream.toByteArray();
+    }
+
+    @Nonnull
+    private static byte[] createRecord(long baseSize, long baseModified, byte[] patch) throws IOException {
+        ByteArrayOutputStream recordStream = new ByteArrayOutputStream(patch.length + 32);
+        DataOutputStream output = new DataOutputStream(recordStream);
+        output.writeInt(RECORD_MAGIC);
+        output.writeLong(baseSize);
+        output.writeLong(baseModified);
+        output.writeInt(patch.length);
+        output.write(patch);
+        output.writeLong(computeChecksum(baseSize, baseModified, patch));
+        output.flush();
+        return recordStream.toByteArray();
+    }
+
+    /**
+     * Reads next record, incomplete or corrupted record ends the journal.
+     */
+    @Nullable
+    private static Record readRecord(DataInputStream input) throws IOException {
+        try {
+            if (input.readInt() != RECORD_MAGIC) {
+                return null;
+            }
+            long baseSize = input.readLong();
+            long baseModified = input.readLong();
+            int patchLength = input.readInt();
+            if (patchLength < 0) {
+                return null;
+            }
+            byte[] patch = new byte[patchLength];
+            input.readFully(patch);
+            if (input.readLong() != computeChecksum(baseSize, baseModified, patch)) {
+                return null;
+            }
+            return new Record(baseSize, baseModified, patch);
+        } catch (EOFException ex) {
+            return null;
+        }
+    }
+
+    private static long computeChecksum(long baseSize, long baseModified, byte[] patch) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(16).putLong(baseSize).putLong(baseModified).array());
+        crc.update(patch);
+        return crc.getValue();
+    }
+
+    private static void writeFully(FileChannel channel, byte[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Nonnull
+    private static Path getJournalDirectory() {
+        return Path.of(PathManager.getSystemPath(), "bined", "journal");
+    }
+
+    @Nonnull
+    private static String hashPath(Path path) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(path.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder();
+            for (byte value : digest) {
+                builder.append(String.format("%02x", value));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            return Integer.toHexString(path.toString().hashCode());
+        }
+    }
+
+    /**
+     * Journal record.
+     */
+    private static class Record {
+
+        private final long baseSize;
+        private final long baseModified;
+        private final byte[] patch;
+
+        public Record(long baseSize, long baseModified, byte[] patch) {
+            this.baseSize = baseSize;
+            this.baseModified = baseModified;
+            this.patch = patch;
+        }
+    }
+}
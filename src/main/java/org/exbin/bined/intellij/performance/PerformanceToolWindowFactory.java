@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.performance;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.exbin.bined.intellij.performance.gui.PerformancePanel;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ResourceBundle;
+
+/**
+ * Tool window showing recorded performance spans.
+ */
+@ParametersAreNonnullByDefault
+public class PerformanceToolWindowFactory implements ToolWindowFactory, DumbAware {
+
+    @Override
+    public void createToolWindowContent(Project project, ToolWindow toolWindow) {
+        PerformancePanel performancePanel = new PerformancePanel();
+        performancePanel.setExportAction(() -> exportTrace(project, performancePanel.getResourceBundle()));
+        Content content = ContentFactory.getInstance().createContent(performancePanel, null, false);
+        toolWindow.getContentManager().addContent(content);
+    }
+
+    private static void exportTrace(Project project, ResourceBundle resourceBundle) {
+        FileSaverDescriptor descriptor = new FileSaverDescriptor(resourceBundle.getString("export.title"), resourceBundle.getString("export.description"), "json");
+        VirtualFileWrapper fileWrapper = FileChooserFactory.getInstance().createSaveFileDialog(descriptor, project).save((Path) null, null);
+        if (fileWrapper == null) {
+            return;
+        }
+
+        File traceFile = fileWrapper.getFile();
+        AppExecutorUtil.getAppExecutorService().execute(() -> {
+            try (Writer writer = Files.newBufferedWriter(traceFile.toPath(), StandardCharsets.UTF_8)) {
+                PerformanceTracker.exportChromeTrace(writer);
+            } catch (IOException ex) {
+                ApplicationManager.getApplication().invokeLater(() -> Messages.showErrorDialog(project, ex.getMessage(), resourceBundle.getString("export.failed")), ModalityState.any());
+            }
+        });
+    }
+}
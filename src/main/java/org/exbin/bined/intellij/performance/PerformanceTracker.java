@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.performance;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recorder of timing spans of plugin operations.
+ * <p>
+ * Last spans are kept in memory for performance tool window and can be
+ * exported as Chrome trace. Spans are also emitted as JFR events when flight
+ * recording is active.
+ */
+@ParametersAreNonnullByDefault
+public final class PerformanceTracker {
+
+    public static final String CATEGORY_STARTUP = "startup";
+    public static final String CATEGORY_EDITOR = "editor";
+    public static final String CATEGORY_SEARCH = "search";
+    public static final String CATEGORY_DIFF = "diff";
+
+    public static final int MAX_SPANS_COUNT = 10000;
+
+    private static final long ORIGIN_TIME = System.nanoTime();
+    private static final ArrayDeque<SpanRecord> SPANS = new ArrayDeque<>();
+    private static final List<Runnable> CHANGE_LISTENERS = new CopyOnWriteArrayList<>();
+    private static final AtomicLong THREAD_ID_COUNTER = new AtomicLong();
+    /**
+     * Own thread identifiers, Thread.getId() is deprecated since Java 19 and
+     * Thread.threadId() is not available in older runtimes.
+     */
+    private static final ThreadLocal<Long> THREAD_IDS = ThreadLocal.withInitial(THREAD_ID_COUNTER::incrementAndGet);
+
+    private PerformanceTracker() {
+    }
+
+    /**
+     * Starts span which is recorded when closed.
+     *
+     * @param category span category
+     * @param name span name
+     * @return span
+     */
+    @Nonnull
+    public static Span start(String category, String name) {
+        return new Span(category, name);
+    }
+
+    /**
+     * Records span which was already measured.
+     *
+     * @param category span category
+     * @param name span name
+     * @param startTime start time as from {@link System#nanoTime()}
+     * @param duration duration in nanoseconds
+     */
+    public static void record(String category, String name, long startTime, long duration) {
+        Thread thread = Thread.currentThread();
+        SpanRecord record = new SpanRecord(category, name, startTime - ORIGIN_TIME, duration, THREAD_IDS.get(), thread.getName());
+        synchronized (SPANS) {
+            if (SPANS.size() >= MAX_SPANS_COUNT) {
+                SPANS.removeFirst();
+            }
+            SPANS.addLast(record);
+        }
+        for (Runnable listener : CHANGE_LISTENERS) {
+            listener.run();
+        }
+    }
+
+    @Nonnull
+    public static List<SpanRecord> getSpans() {
+        synchronized (SPANS) {
+            return new ArrayList<>(SPANS);
+        }
+    }
+
+    public static void clear() {
+        synchronized (SPANS) {
+            SPANS.clear();
+        }
+        for (Runnable listener : CHANGE_LISTENERS) {
+            listener.run();
+        }
+    }
+
+    public static void addChangeListener(Runnable listener) {
+        CHANGE_LISTENERS.add(listener);
+    }
+
+    public static void removeChangeListener(Runnable listener) {
+        CHANGE_LISTENERS.remove(listener);
+    }
+
+    /**
+     * Writes recorded spans in Chrome trace event format.
+     * <p>
+     * Output can be opened in chrome://tracing or Perfetto UI.
+     *
+     * @param writer target writer
+     * @throws IOException if writing fails
+     */
+    public static void exportChromeTrace(Writer writer) throws IOException {
+        List<SpanRecord> spans = getSpans();
+        Map<Long, String> threads = new HashMap<>();
+        writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean first = true;
+        for (SpanRecord span : spans) {
+            threads.putIfAbsent(span.getThreadId(), span.getThreadName());
+            if (!first) {
+                writer.write(",");
+            }
+            first = false;
+            writer.write("\n{\"ph\":\"X\",\"pid\":1,\"tid\":" + span.getThreadId()
+                    + ",\"cat\":\"" + escapeJson(span.getCategory())
+                    + "\",\"name\":\"" + escapeJson(span.getName())
+                    + "\",\"ts\":" + span.getStartTime() / 1000
+                    + ",\"dur\":" + span.getDuration() / 1000 + "}");
+        }
+        for (Map.Entry<Long, String> thread : threads.entrySet()) {
+            if (!first) {
+                writer.write(",");
+            }
+            first = false;
+            writer.write("\n{\"ph\":\"M\",\"pid\":1,\"tid\":" + thread.getKey()
+                    + ",\"name\":\"thread_name\",\"args\":{\"name\":\"" + escapeJson(thread.getValue()) + "\"}}");
+        }
+        writer.write("\n]}\n");
+    }
+
+    @Nonnull
+    private static String escapeJson(String text) {
+        StringBuilder builder = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char value = text.charAt(i);
+            if (value == '"' || value == '\\') {
+                builder.append('\\').append(value);
+            } else if (value < 0x20) {
+                builder.append(String.format("\\u%04x", (int) value));
+            } else {
+                builder.append(value);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Running span.
+     */
+    public static final class Span implements AutoCloseable {
+
+        private final String category;
+        private final String name;
+        private final long startTime;
+        private final SpanEvent event;
+        private boolean closed = false;
+
+        private Span(String category, String name) {
+            this.category = category;
+            this.name = name;
+            SpanEvent spanEvent = new SpanEvent();
+            if (spanEvent.isEnabled()) {
+                spanEvent.category = category;
+                spanEvent.name = name;
+                spanEvent.begin();
+                event = spanEvent;
+            } else {
+                event = null;
+            }
+            startTime = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            long duration = System.nanoTime() - startTime;
+            if (event != null) {
+                event.end();
+                event.commit();
+            }
+            record(category, name, startTime, duration);
+        }
+    }
+
+    /**
+     * Recorded span.
+     */
+    public static final class SpanRecord {
+
+        private final String category;
+        private final String name;
+        private final long startTime;
+        private final long duration;
+        private final long threadId;
+        private final String threadName;
+
+        public SpanRecord(String category, String name, long startTime, long duration, long threadId, String threadName) {
+            this.category = category;
+            this.name = name;
+            this.startTime = startTime;
+            this.duration = duration;
+            this.threadId = threadId;
+            this.threadName = threadName;
+        }
+
+        @Nonnull
+        public String getCategory() {
+            return category;
+        }
+
+        @Nonnull
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns start time in nanoseconds since tracker initialization.
+         *
+         * @return start time
+         */
+        public long getStartTime() {
+            return startTime;
+        }
+
+        /**
+         * Returns duration in nanoseconds.
+         *
+         * @return duration
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        public long getThreadId() {
+            return threadId;
+        }
+
+        @Nonnull
+        public String getThreadName() {
+            return threadName;
+        }
+    }
+}
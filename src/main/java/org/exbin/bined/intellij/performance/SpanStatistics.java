@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.performance;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Duration statistics of spans with the same category and name.
+ */
+@ParametersAreNonnullByDefault
+public final class SpanStatistics {
+
+    /**
+     * Number of histogram buckets, bucket i covers durations below 2^i ms
+     * and last bucket all longer durations.
+     */
+    public static final int HISTOGRAM_BUCKETS_COUNT = 14;
+
+    private final String category;
+    private final String name;
+    private final long[] durations;
+    private final long totalDuration;
+    private final int[] histogram = new int[HISTOGRAM_BUCKETS_COUNT];
+
+    private SpanStatistics(String category, String name, long[] durations) {
+        this.category = category;
+        this.name = name;
+        this.durations = durations;
+        Arrays.sort(durations);
+        long total = 0;
+        for (long duration : durations) {
+            total += duration;
+            histogram[getHistogramBucket(duration)]++;
+        }
+        totalDuration = total;
+    }
+
+    /**
+     * Computes statistics grouped by category and name.
+     *
+     * @param spans recorded spans
+     * @return statistics in order of the first occurrence
+     */
+    @Nonnull
+    public static List<SpanStatistics> compute(List<PerformanceTracker.SpanRecord> spans) {
+        Map<String, List<PerformanceTracker.SpanRecord>> groups = new LinkedHashMap<>();
+        for (PerformanceTracker.SpanRecord span : spans) {
+            groups.computeIfAbsent(span.getCategory() + "\n" + span.getName(), key -> new ArrayList<>()).add(span);
+        }
+
+        List<SpanStatistics> result = new ArrayList<>(groups.size());
+        for (List<PerformanceTracker.SpanRecord> group : groups.values()) {
+            long[] durations = new long[group.size()];
+            for (int i = 0; i < durations.length; i++) {
+                durations[i] = group.get(i).getDuration();
+            }
+            PerformanceTracker.SpanRecord first = group.get(0);
+            result.add(new SpanStatistics(first.getCategory(), first.getName(), durations));
+        }
+        return result;
+    }
+
+    public static int getHistogramBucket(long duration) {
+        long millis = duration / 1000000;
+        int bucket = 0;
+        while (bucket < HISTOGRAM_BUCKETS_COUNT - 1 && millis >= (1L << bucket)) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    @Nonnull
+    public String getCategory() {
+        return category;
+    }
+
+    @Nonnull
+    public String getName() {
+        return name;
+    }
+
+    public int getCount() {
+        return durations.length;
+    }
+
+    public long getMinDuration() {
+        return durations[0];
+    }
+
+    public long getMaxDuration() {
+        return durations[durations.length - 1];
+    }
+
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    /**
+     * Returns duration percentile.
+     *
+     * @param percentile percentile in range 0 - 100
+     * @return duration in nanoseconds
+     */
+    public long getPercentile(int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * durations.length) - 1;
+        return durations[Math.max(0, Math.min(index, durations.length - 1))];
+    }
+
+    @Nonnull
+    public int[] getHistogram() {
+        return histogram;
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.performance.gui;
+
+import com.intellij.ui.JBSplitter;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.ui.JBUI;
+import com.intellij.util.ui.UIUtil;
+import org.exbin.bined.intellij.performance.PerformanceTracker;
+import org.exbin.bined.intellij.performance.SpanStatistics;
+import org.exbin.jaguif.App;
+import org.exbin.jaguif.language.api.LanguageModuleApi;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+
+/**
+ * Panel showing statistics of recorded performance spans.
+ */
+@ParametersAreNonnullByDefault
+public class PerformancePanel extends JPanel {
+
+    private static final int REFRESH_DELAY_MS = 500;
+    private static final String[] COLUMN_KEYS = {"column.category", "column.name", "column.count", "column.min", "column.median", "column.p90", "column.max", "column.total"};
+
+    private final ResourceBundle resourceBundle = App.getModule(LanguageModuleApi.class).getBundle(PerformancePanel.class);
+    private final StatisticsTableModel tableModel = new StatisticsTableModel();
+    private final JBTable table = new JBTable(tableModel);
+    private final HistogramComponent histogramComponent = new HistogramComponent();
+    private final JButton exportButton = new JButton();
+    private final Timer refreshTimer = new Timer(REFRESH_DELAY_MS, e -> refresh());
+    private final Runnable changeListener = () -> SwingUtilities.invokeLater(refreshTimer::restart);
+
+    public PerformancePanel() {
+        super(new BorderLayout());
+        refreshTimer.setRepeats(false);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getSelectionModel().addListSelectionListener(e -> {
+            int row = table.getSelectedRow();
+            histogramComponent.setStatistics(row >= 0 ? tableModel.statistics.get(table.convertRowIndexToModel(row)) : null);
+        });
+        table.setAutoCreateRowSorter(true);
+
+        JPanel toolbarPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton refreshButton = new JButton(resourceBundle.getString("refreshButton.text"));
+        refreshButton.addActionListener(e -> refresh());
+        toolbarPanel.add(refreshButton);
+        JButton clearButton = new JButton(resourceBundle.getString("clearButton.text"));
+        clearButton.addActionListener(e -> PerformanceTracker.clear());
+        toolbarPanel.add(clearButton);
+        exportButton.setText(resourceBundle.getString("exportButton.text"));
+        toolbarPanel.add(exportButton);
+
+        JBSplitter splitter = new JBSplitter(false, 0.7f);
+        splitter.setFirstComponent(new JBScrollPane(table));
+        splitter.setSecondComponent(histogramComponent);
+        add(toolbarPanel, BorderLayout.NORTH);
+        add(splitter, BorderLayout.CENTER);
+        refresh();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        PerformanceTracker.addChangeListener(changeListener);
+        refresh();
+    }
+
+    @Override
+    public void removeNotify() {
+        PerformanceTracker.removeChangeListener(changeListener);
+        refreshTimer.stop();
+        super.removeNotify();
+    }
+
+    public void setExportAction(Runnable exportAction) {
+        exportButton.addActionListener(e -> exportAction.run());
+    }
+
+    @Nonnull
+    public ResourceBundle getResourceBundle() {
+        return resourceBundle;
+    }
+
+    public void refresh() {
+        SpanStatistics selected = histogramComponent.statistics;
+        tableModel.setStatistics(SpanStatistics.compute(PerformanceTracker.getSpans()));
+        if (selected != null) {
+            for (int i = 0; i < tableModel.statistics.size(); i++) {
+                SpanStatistics statistics = tableModel.statistics.get(i);
+                if (statistics.getCategory().equals(selected.getCategory()) && statistics.getName().equals(selected.getName())) {
+                    int row = table.convertRowIndexToView(i);
+                    table.getSelectionModel().setSelectionInterval(row, row);
+                    return;
+                }
+            }
+        }
+        histogramComponent.setStatistics(null);
+    }
+
+    @Nonnull
+    private static String formatDuration(long duration) {
+        return String.format("%.2f", duration / 1000000.0);
+    }
+
+    private class StatisticsTableModel extends AbstractTableModel {
+
+        private List<SpanStatistics> statistics = new ArrayList<>();
+
+        private void setStatistics(List<SpanStatistics> statistics) {
+            this.statistics = statistics;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return statistics.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_KEYS.length;
+        }
+
+        @Nonnull
+        @Override
+        public String getColumnName(int column) {
+            return resourceBundle.getString(COLUMN_KEYS[column]);
+        }
+
+        @Nonnull
+        @Override
+        public Class<?> getColumnClass(int columnIndex) {
+            return columnIndex == 2 ? Integer.class : columnIndex > 2 ? Double.class : String.class;
+        }
+
+        @Nonnull
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            SpanStatistics rowStatistics = statistics.get(rowIndex);
+            switch (columnIndex) {
+                case 0:
+                    return rowStatistics.getCategory();
+                case 1:
+                    return rowStatistics.getName();
+                case 2:
+                    return rowStatistics.getCount();
+                case 3:
+                    return rowStatistics.getMinDuration() / 1000000.0;
+                case 4:
+                    return rowStatistics.getPercentile(50) / 1000000.0;
+                case 5:
+                    return rowStatistics.getPercentile(90) / 1000000.0;
+                case 6:
+                    return rowStatistics.getMaxDuration() / 1000000.0;
+                case 7:
+                    return rowStatistics.getTotalDuration() / 1000000.0;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+    }
+
+    /**
+     * Histogram of durations of selected span.
+     */
+    private class HistogramComponent extends JComponent {
+
+        private SpanStatistics statistics = null;
+
+        public HistogramComponent() {
+            setPreferredSize(new Dimension(JBUI.scale(200), JBUI.scale(100)));
+        }
+
+        public void setStatistics(@Nullable SpanStatistics statistics) {
+            this.statistics = statistics;
+            repaint();
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            g.setColor(UIUtil.getPanelBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+            FontMetrics metrics = g.getFontMetrics();
+            int lineHeight = metrics.getHeight();
+            g.setColor(UIUtil.getLabelForeground());
+            if (statistics == null) {
+                g.drawString(resourceBundle.getString("histogram.noSelection"), JBUI.scale(4), lineHeight);
+                return;
+            }
+
+            g.drawString(statistics.getName() + " (" + formatDuration(statistics.getPercentile(50)) + " ms)", JBUI.scale(4), lineHeight);
+            int[] histogram = statistics.getHistogram();
+            int maxCount = 1;
+            for (int count : histogram) {
+                maxCount = Math.max(maxCount, count);
+            }
+
+            int labelWidth = metrics.stringWidth("< 8192 ms") + JBUI.scale(8);
+            int barsWidth = Math.max(getWidth() - labelWidth - JBUI.scale(8), 1);
+            int top = lineHeight + JBUI.scale(4);
+            Color barColor = UIUtil.getListSelectionBackground(true);
+            for (int bucket = 0; bucket < histogram.length; bucket++) {
+                int y = top + bucket * lineHeight;
+                String label = bucket == histogram.length - 1 ? ">= " + (1L << (bucket - 1)) + " ms" : "< " + (1L << bucket) + " ms";
+                g.setColor(UIUtil.getLabelForeground());
+                g.drawString(label, JBUI.scale(4), y + metrics.getAscent());
+                if (histogram[bucket] > 0) {
+                    int barWidth = Math.max(1, (int) ((long) barsWidth * histogram[bucket] / maxCount));
+                    g.setColor(barColor);
+                    g.fillRect(labelWidth, y + 2, barWidth, lineHeight - 4);
+                    g.setColor(UIUtil.getLabelForeground());
+                    g.drawString(String.valueOf(histogram[bucket]), labelWidth + JBUI.scale(4), y + metrics.getAscent());
+                }
+            }
+        }
+    }
+}
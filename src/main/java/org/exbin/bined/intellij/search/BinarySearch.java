@@ -17,6 +17,7 @@ package org.exbin.bined.intellij.search;
 
 import org.exbin.auxiliary.binary_data.array.ByteArrayEditableData;
 import org.exbin.auxiliary.binary_data.EditableBinaryData;
+import org.exbin.bined.intellij.performance.PerformanceTracker;
 import org.exbin.bined.intellij.search.gui.BinarySearchIntelliJPanel;
 import org.exbin.jaguif.App;
 import org.exbin.bined.jaguif.search.ReplaceParameters;
@@ -43,6 +44,7 @@ import javax.swing.JPopupMenu;
 import java.awt.Dialog;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.ResourceBundle;
 
 /**
@@ -412,18 +414,21 @@ public class BinarySearch {
 
         @Override
         public void run() {
-            switch (currentSearchOperation) {
-                case FIND:
-                    binarySearchService.performFind(currentSearchParameters, searchStatusListener);
-                    break;
-                case FIND_AGAIN:
-                    binarySearchService.performFindAgain(searchStatusListener);
-                    break;
-                case REPLACE:
-                    binarySearchService.performReplace(currentSearchParameters, currentReplaceParameters);
-                    break;
-                default:
-                    throw new UnsupportedOperationException("Not supported yet.");
+            SearchOperation searchOperation = currentSearchOperation;
+            try (PerformanceTracker.Span span = PerformanceTracker.start(PerformanceTracker.CATEGORY_SEARCH, "Search " + searchOperation.name().toLowerCase(Locale.ROOT))) {
+                switch (searchOperation) {
+                    case FIND:
+                        binarySearchService.performFind(currentSearchParameters, searchStatusListener);
+                        break;
+                    case FIND_AGAIN:
+                        binarySearchService.performFindAgain(searchStatusListener);
+                        break;
+                    case REPLACE:
+                        binarySearchService.performReplace(currentSearchParameters, currentReplaceParameters);
+                        break;
+                    default:
+                        throw new UnsupportedOperationException("Not supported yet.");
+                }
             }
         }
     }
@@ -44,6 +44,9 @@ public class IntegrationOptions implements SettingsOptions {
     public static final String PREFERENCES_REGISTER_BYTE_TO_BYTE_DIFF_TOOL = "registerByteToByteDiffTool";
 
     public static final String PREFERENCES_REGISTER_EDIT_AS_BINARY_FOR_DB_COLUMN = "registerEditAsBinaryForDbColumn";
+    public static final String PREFERENCES_UNDO_MEMORY_LIMIT = "undoMemoryLimit";
+
+    public static final int DEFAULT_UNDO_MEMORY_LIMIT = 256;
 
     public IntegrationOptions(OptionsStorage storage) {
         this.storage = storage;
@@ -192,6 +195,19 @@ public class IntegrationOptions implements SettingsOptions {
         storage.putBoolean(PREFERENCES_REGISTER_EDIT_AS_BINARY_FOR_DB_COLUMN, registerEditAsBinaryForDbColumn);
     }
 
+    /**
+     * Returns memory limit for undo history of binary document.
+     *
+     * @return limit in megabytes
+     */
+    public int getUndoMemoryLimit() {
+        return storage.getInt(PREFERENCES_UNDO_MEMORY_LIMIT, DEFAULT_UNDO_MEMORY_LIMIT);
+    }
+
+    public void setUndoMemoryLimit(int undoMemoryLimit) {
+        storage.putInt(PREFERENCES_UNDO_MEMORY_LIMIT, undoMemoryLimit);
+    }
+
     @Override
     public void copyTo(SettingsOptions options) {
         IntegrationOptions with = (IntegrationOptions) options;
@@ -205,5 +221,6 @@ public class IntegrationOptions implements SettingsOptions {
         with.setRegisterDebugViewAsBinary(isRegisterDebugViewAsBinary());
         with.setRegisterByteToByteDiffTool(isRegisterByteToByteDiffTool());
         with.setRegisterEditAsBinaryForDbColumn(isRegisterEditAsBinaryForDbColumn());
+        with.setUndoMemoryLimit(getUndoMemoryLimit());
     }
 }
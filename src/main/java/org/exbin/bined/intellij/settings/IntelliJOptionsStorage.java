@@ -16,22 +16,38 @@
 package org.exbin.bined.intellij.settings;
 
 import com.intellij.ide.util.PropertiesComponent;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.exbin.jaguif.options.api.OptionsStorage;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Wrapper for preferences.
+ * <p>
+ * Values are cached together with their parsed form and changes are written
+ * to properties component in batch shortly after last change or on flush.
  */
 @ParametersAreNonnullByDefault
 public class IntelliJOptionsStorage implements OptionsStorage {
 
+    private static final long FLUSH_DELAY_MS = 500;
+
     private final PropertiesComponent properties;
     private final String prefix;
+    private final Map<String, Value> values = new HashMap<>();
+    private final Set<String> pendingKeys = new LinkedHashSet<>();
+    private boolean flushScheduled = false;
+    private long modificationCount = 0;
 
     public IntelliJOptionsStorage(PropertiesComponent properties, String prefix) {
         this.properties = Objects.requireNonNull(properties);
@@ -40,110 +56,212 @@ public class IntelliJOptionsStorage implements OptionsStorage {
 
     @Override
     public boolean exists(String key) {
-        return properties.isValueSet(prefix + key);
+        return getValue(key).text != null;
     }
 
     @Nonnull
     @Override
     public Optional<String> get(String key) {
-        return exists(key) ? Optional.ofNullable(properties.getValue(prefix + key)) : Optional.empty();
+        return Optional.ofNullable(getValue(key).text);
     }
 
     @Nonnull
     @Override
     public String get(String key, String def) {
-        return properties.getValue(prefix + key, Objects.requireNonNull(def));
+        String text = getValue(key).text;
+        return text == null ? Objects.requireNonNull(def) : text;
     }
 
     @Override
     public void put(String key, @Nullable String value) {
-        if (value == null) {
-            properties.unsetValue(prefix + key);
-        } else {
-            properties.setValue(prefix + key, value);
-        }
+        setValue(key, new Value(value, null));
     }
 
     @Override
     public void remove(String key) {
-        properties.unsetValue(prefix + key);
+        setValue(key, new Value(null, null));
     }
 
     @Override
     public void putInt(String key, int value) {
-        properties.setValue(prefix + key, value, value + 1);
+        setValue(key, new Value(String.valueOf(value), value));
     }
 
     @Override
     public int getInt(String key, int def) {
-        return properties.getInt(prefix + key, def);
+        Object parsed = getParsed(key, Integer.class, Integer::valueOf);
+        return parsed == null ? def : (Integer) parsed;
     }
 
     @Override
     public void putLong(String key, long value) {
-        properties.setValue(prefix + key, String.valueOf(value));
+        setValue(key, new Value(String.valueOf(value), value));
     }
 
     @Override
     public long getLong(String key, long defaultValue) {
-        try {
-            String value = properties.getValue(prefix + key);
-            return value == null ? defaultValue : Long.parseLong(value);
-        }
-        catch (NumberFormatException e) {
-            return defaultValue;
-        }
+        Object parsed = getParsed(key, Long.class, Long::valueOf);
+        return parsed == null ? defaultValue : (Long) parsed;
     }
 
     @Override
     public void putBoolean(String key, boolean value) {
-        properties.setValue(prefix + key, value, !value);
+        setValue(key, new Value(String.valueOf(value), value));
     }
 
     @Override
     public boolean getBoolean(String key, boolean def) {
-        return properties.getBoolean(prefix + key, def);
+        Object parsed = getParsed(key, Boolean.class, Boolean::valueOf);
+        return parsed == null ? def : (Boolean) parsed;
     }
 
     @Override
     public void putFloat(String key, float value) {
-        properties.setValue(prefix + key, value, value + 1);
+        setValue(key, new Value(String.valueOf(value), value));
     }
 
     @Override
     public float getFloat(String key, float def) {
-        return properties.getFloat(prefix + key, def);
+        Object parsed = getParsed(key, Float.class, Float::valueOf);
+        return parsed == null ? def : (Float) parsed;
     }
 
     @Override
     public void putDouble(String key, double value) {
-        properties.setValue(prefix + key, (float) value, (float) (value + 1));
+        setValue(key, new Value(String.valueOf(value), value));
     }
 
     @Override
     public double getDouble(String key, double def) {
-        return properties.getFloat(prefix + key, (float) def);
+        Object parsed = getParsed(key, Double.class, Double::valueOf);
+        return parsed == null ? def : (Double) parsed;
     }
 
     @Override
     public void putByteArray(String key, byte[] value) {
-        // preferences.setValue(prefix + key, value);
-        throw new UnsupportedOperationException();
+        setValue(key, new Value(Base64.getEncoder().withoutPadding().encodeToString(value), value.clone()));
     }
 
     @Override
     public byte[] getByteArray(String key, byte[] def) {
-        // return preferences.getValue(prefix + key, def);
-        throw new UnsupportedOperationException();
+        Object parsed = getParsed(key, byte[].class, Base64.getDecoder()::decode);
+        return parsed == null ? def : ((byte[]) parsed).clone();
     }
 
+    /**
+     * Writes pending changes to properties component.
+     */
     @Override
     public void flush() {
-        // empty
+        synchronized (values) {
+            for (String key : pendingKeys) {
+                String text = values.get(key).text;
+                if (text == null) {
+                    properties.unsetValue(prefix + key);
+                } else {
+                    properties.setValue(prefix + key, text);
+                }
+            }
+            pendingKeys.clear();
+        }
     }
 
+    /**
+     * Writes pending changes and drops cached values, so that values are
+     * read again from properties component.
+     */
     @Override
     public void sync() {
-        // empty
+        synchronized (values) {
+            flush();
+            values.clear();
+            modificationCount++;
+        }
+    }
+
+    /**
+     * Returns counter increased on every change of values.
+     *
+     * @return modification count
+     */
+    public long getModificationCount() {
+        synchronized (values) {
+            return modificationCount;
+        }
+    }
+
+    @Nonnull
+    private Value getValue(String key) {
+        synchronized (values) {
+            Value value = values.get(key);
+            if (value == null) {
+                String fullKey = prefix + key;
+                value = new Value(properties.isValueSet(fullKey) ? properties.getValue(fullKey) : null, null);
+                values.put(key, value);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Returns value parsed to given type or null if value is not set or
+     * invalid.
+     */
+    @Nullable
+    private Object getParsed(String key, Class<?> type, ValueParser parser) {
+        synchronized (values) {
+            Value value = getValue(key);
+            if (type.isInstance(value.parsed)) {
+                return value.parsed;
+            }
+            if (value.text == null) {
+                return null;
+            }
+
+            try {
+                Object parsed = parser.parse(value.text.trim());
+                values.put(key, new Value(value.text, parsed));
+                return parsed;
+            } catch (IllegalArgumentException ex) {
+                return null;
+            }
+        }
+    }
+
+    private void setValue(String key, Value value) {
+        synchronized (values) {
+            values.put(key, value);
+            pendingKeys.add(key);
+            modificationCount++;
+            if (!flushScheduled) {
+                flushScheduled = true;
+                AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> {
+                    synchronized (values) {
+                        flushScheduled = false;
+                        flush();
+                    }
+                }, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Cached value with its parsed form.
+     */
+    private static final class Value {
+
+        private final String text;
+        private final Object parsed;
+
+        public Value(@Nullable String text, @Nullable Object parsed) {
+            this.text = text;
+            this.parsed = parsed;
+        }
+    }
+
+    private interface ValueParser {
+
+        @Nonnull
+        Object parse(String text);
     }
 }
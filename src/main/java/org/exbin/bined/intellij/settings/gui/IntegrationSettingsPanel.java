@@ -73,6 +73,7 @@ public class IntegrationSettingsPanel extends javax.swing.JPanel implements Sett
         options.setRegisterDebugViewAsBinary(openAsBinaryInDebugViewCheckBox.isSelected());
         options.setRegisterByteToByteDiffTool(byteToByteDiffToolCheckBox.isSelected());
         options.setRegisterEditAsBinaryForDbColumn(editAsBinaryForDbColumnCheckBox.isSelected());
+        options.setUndoMemoryLimit((Integer) undoMemoryLimitSpinner.getValue());
     }
 
     @Override
@@ -96,6 +97,7 @@ public class IntegrationSettingsPanel extends javax.swing.JPanel implements Sett
         openAsBinaryInDebugViewCheckBox.setSelected(options.isRegisterDebugViewAsBinary());
         byteToByteDiffToolCheckBox.setSelected(options.isRegisterByteToByteDiffTool());
         editAsBinaryForDbColumnCheckBox.setSelected(options.isRegisterEditAsBinaryForDbColumn());
+        undoMemoryLimitSpinner.setValue(options.getUndoMemoryLimit());
     }
 
     private static int findMatchingElement(ComboBoxModel<String> model, String value) {
@@ -174,6 +176,8 @@ public class IntegrationSettingsPanel extends javax.swing.JPanel implements Sett
         nativeBinaryFileCheckBox = new javax.swing.JCheckBox();
         byteToByteDiffToolCheckBox = new javax.swing.JCheckBox();
         editAsBinaryForDbColumnCheckBox = new javax.swing.JCheckBox();
+        undoMemoryLimitLabel = new javax.swing.JLabel();
+        undoMemoryLimitSpinner = new javax.swing.JSpinner();
 
         languageComboBox.addItemListener(new java.awt.event.ItemListener() {
             public void itemStateChanged(java.awt.event.ItemEvent evt) {
@@ -252,6 +256,15 @@ public class IntegrationSettingsPanel extends javax.swing.JPanel implements Sett
             }
         });
 
+        undoMemoryLimitLabel.setText(resourceBundle.getString("undoMemoryLimitLabel.text")); // NOI18N
+
+        undoMemoryLimitSpinner.setModel(new javax.swing.SpinnerNumberModel(256, 16, 65536, 16));
+        undoMemoryLimitSpinner.addChangeListener(new javax.swing.event.ChangeListener() {
+            public void stateChanged(javax.swing.event.ChangeEvent evt) {
+                undoMemoryLimitSpinnerStateChanged(evt);
+            }
+        });
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(this);
         this.setLayout(layout);
         layout.setHorizontalGroup(
@@ -273,7 +286,12 @@ public class IntegrationSettingsPanel extends javax.swing.JPanel implements Sett
                     .addComponent(openAsBinaryInDebugViewCheckBox, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                     .addComponent(byteToByteDiffToolCheckBox, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                     .addComponent(editAsBinaryForDbColumnCheckBox, javax.swing.GroupLayout.Alignment.TRAILING, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
-                    .addComponent(nativeBinaryFileCheckBox, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
+                    .addComponent(nativeBinaryFileCheckBox, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                    .addGroup(layout.createSequentialGroup()
+                        .addComponent(undoMemoryLimitLabel)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(undoMemoryLimitSpinner, javax.swing.GroupLayout.PREFERRED_SIZE, 100, javax.swing.GroupLayout.PREFERRED_SIZE)
+                        .addGap(0, 0, Short.MAX_VALUE)))
                 .addContainerGap())
         );
         layout.setVerticalGroup(
@@ -303,6 +321,10 @@ public class IntegrationSettingsPanel extends javax.swing.JPanel implements Sett
                 .addComponent(byteToByteDiffToolCheckBox)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(editAsBinaryForDbColumnCheckBox)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(undoMemoryLimitLabel)
+                    .addComponent(undoMemoryLimitSpinner, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
                 .addContainerGap(javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
         );
     }// </editor-fold>//GEN-END:initComponents
@@ -347,6 +369,10 @@ public class IntegrationSettingsPanel extends javax.swing.JPanel implements Sett
         notifyModified();
     }//GEN-LAST:event_iconSetComboBoxItemStateChanged
 
+    private void undoMemoryLimitSpinnerStateChanged(javax.swing.event.ChangeEvent evt) {//GEN-FIRST:event_undoMemoryLimitSpinnerStateChanged
+        notifyModified();
+    }//GEN-LAST:event_undoMemoryLimitSpinnerStateChanged
+
     /**
      * Test method for this panel.
      *
@@ -369,6 +395,8 @@ public class IntegrationSettingsPanel extends javax.swing.JPanel implements Sett
     private javax.swing.JCheckBox openAsBinaryInDebugViewCheckBox;
     private javax.swing.JCheckBox openFileAsBinaryCheckBox;
     private javax.swing.JCheckBox openFileToolbarBinaryCheckBox;
+    private javax.swing.JLabel undoMemoryLimitLabel;
+    private javax.swing.JSpinner undoMemoryLimitSpinner;
     // End of variables declaration//GEN-END:variables
 
     private void notifyModified() {
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) ExBin Project, https://exbin.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.exbin.bined.intellij.utils;
+
+import org.exbin.auxiliary.binary_data.array.paged.ByteArrayPagedData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.OutputStream;
+
+/**
+ * Output stream appending written bytes to paged data.
+ */
+@ParametersAreNonnullByDefault
+public class PagedDataOutputStream extends OutputStream {
+
+    private final ByteArrayPagedData data;
+
+    public PagedDataOutputStream() {
+        this(new ByteArrayPagedData());
+    }
+
+    public PagedDataOutputStream(ByteArrayPagedData data) {
+        this.data = data;
+    }
+
+    @Override
+    public void write(int value) {
+        data.insert(data.getDataSize(), new byte[]{(byte) value});
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) {
+        if (length > 0) {
+            data.insert(data.getDataSize(), buffer, offset, length);
+        }
+    }
+
+    @Nonnull
+    public ByteArrayPagedData getData() {
+        return data;
+    }
+}